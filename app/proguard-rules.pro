@@ -19,6 +19,8 @@
 -dontwarn android.net.http.AndroidHttpClient
 -dontwarn com.google.android.gms.**
 -dontwarn com.android.volley.toolbox.**
+-dontwarn okhttp3.**
+-dontwarn okio.**
 -keepclassmembers class ** {
     public void onEvent*(**);
 }
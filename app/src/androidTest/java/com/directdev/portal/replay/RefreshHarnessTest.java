@@ -0,0 +1,187 @@
+package com.directdev.portal.replay;
+
+import android.content.Context;
+import android.os.Bundle;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+
+import com.directdev.portal.R;
+import com.directdev.portal.tools.helper.BaseUrl;
+import com.directdev.portal.tools.helper.Portal;
+import com.directdev.portal.tools.helper.Pref;
+import com.directdev.portal.tools.model.Course;
+import com.directdev.portal.tools.model.Grades;
+import com.directdev.portal.tools.model.Terms;
+import com.directdev.portal.tools.services.UpdateService;
+import com.directdev.portal.tools.sync.Dataset;
+import com.directdev.portal.tools.sync.RefreshHandle;
+import com.directdev.portal.tools.sync.SyncResult;
+import com.directdev.portal.tools.sync.TelemetryRecord;
+import com.directdev.portal.tools.sync.Trace;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.realm.Realm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs a whole first refresh (every dataset, then the resources of every course) against a
+ * ReplayServer on the device and reports where the time went for each dataset. The report is
+ * logged under the RefreshHarness tag and sent as instrumentation status, so it shows up in the
+ * output of am instrument.
+ *
+ * The account size and the network come from instrumentation arguments, eg.
+ * ./gradlew connectedAndroidTest -Pandroid.testInstrumentationRunnerArguments.terms=9
+ * terms, courses, sessions: the Scale of BinusmayaRoutes (default the recorded fixtures)
+ * latency (ms), bandwidth (bytes per second, 0 is unlimited), errorRate (0 to 1), seed
+ * trace=true also writes a Chrome trace of each refresh to files/traces of the app, see Trace
+ *
+ * The login is not part of this, the requests go out with whatever cookie is saved.
+ */
+@RunWith(AndroidJUnit4.class)
+public class RefreshHarnessTest {
+    private static final String TAG = "RefreshHarness";
+    private static final long TIMEOUT_MINUTES = 10;
+
+    private Context ctx;
+    private ReplayServer server;
+    private BinusmayaRoutes.Scale scale;
+    private double errorRate;
+
+    @Before
+    public void setUp() throws Exception {
+        ctx = InstrumentationRegistry.getTargetContext();
+        Bundle args = InstrumentationRegistry.getArguments();
+        BinusmayaRoutes.Scale recorded = BinusmayaRoutes.Scale.RECORDED;
+        scale = new BinusmayaRoutes.Scale(
+                intArg(args, "terms", recorded.terms),
+                intArg(args, "courses", recorded.courses),
+                intArg(args, "sessions", recorded.sessions));
+        errorRate = Double.parseDouble(args.getString("errorRate", "0"));
+        server = new ReplayServer.Builder()
+                .latency(intArg(args, "latency", 0))
+                .bandwidth(intArg(args, "bandwidth", 0))
+                .errorRate(errorRate)
+                .seed(intArg(args, "seed", 1))
+                .start(new BinusmayaRoutes(scale));
+        BaseUrl.set(server.getBaseUrl());
+        Trace.setEnabled(Boolean.parseBoolean(args.getString("trace", "false")));
+
+        //Start from an empty account, so it is the first refresh that downloads everything
+        Portal.getInstance().clearApplicationData();
+        Pref.save(ctx, "trackUpdates", 0);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        Pref.save(ctx, ctx.getString(R.string.atomic_refresh_pref), false);
+        BaseUrl.reset();
+        Trace.setEnabled(false);
+        server.close();
+    }
+
+    @Test
+    public void firstRefresh() throws Exception {
+        long start = System.currentTimeMillis();
+        RefreshHandle refresh = UpdateService.Companion.all(ctx);
+        assertTrue("The refresh didn't finish", refresh.await(TIMEOUT_MINUTES, TimeUnit.MINUTES));
+        RefreshHandle resources = UpdateService.Companion.resources(ctx);
+        assertTrue("The resources didn't finish", resources.await(TIMEOUT_MINUTES, TimeUnit.MINUTES));
+        long wall = System.currentTimeMillis() - start;
+
+        StringBuilder report = new StringBuilder();
+        report.append(String.format(Locale.US, "%s against %s%n", scale, server.getBaseUrl()));
+        report.append(String.format(Locale.US, "%-10s %-12s %8s %8s %8s %10s %8s %8s %8s %8s %6s%n",
+                "dataset", "outcome", "wall ms", "queue ms", "requests", "bytes", "ttfb ms", "dl ms",
+                "parse ms", "write ms", "rows"));
+        appendResults(report, refresh);
+        appendResults(report, resources);
+        report.append(String.format(Locale.US, "total %dms, %d requests, %d errors, %d bytes sent%n",
+                wall, server.getRequests(), server.getErrors(), server.getBytesSent()));
+        for (String line : report.toString().split("\n")) {
+            Log.i(TAG, line);
+        }
+        Bundle status = new Bundle();
+        status.putString("report", report.toString());
+        status.putLong("wallMillis", wall);
+        InstrumentationRegistry.getInstrumentation().sendStatus(0, status);
+
+        //With errors injected the refresh is measured, not checked
+        if (errorRate == 0) {
+            assertTrue("A dataset failed:\n" + report, refresh.isSuccessful() && resources.isSuccessful());
+        }
+    }
+
+    /**
+     * On an empty account GRADES and COURSE need the terms that TERMS parsed in the same refresh. In
+     * atomic mode those are not in Realm before the whole refresh is saved.
+     */
+    @Test
+    public void atomicFirstRefresh_isSavedAtTheEnd() throws Exception {
+        Pref.save(ctx, ctx.getString(R.string.atomic_refresh_pref), true);
+        final AtomicLong termsSeenByGrades = new AtomicLong(-1);
+        RefreshHandle refresh = UpdateService.Companion.all(ctx);
+        refresh.addListener(new RefreshHandle.Listener() {
+            @Override
+            public void onDatasetFinished(SyncResult result) {
+                if (result.getDataset() == Dataset.GRADES) {
+                    termsSeenByGrades.set(count(Terms.class));
+                }
+            }
+
+            @Override
+            public void onPriorityFinished(RefreshHandle refresh, Dataset.Priority priority) {
+            }
+
+            @Override
+            public void onRefreshFinished(RefreshHandle refresh) {
+            }
+        });
+        assertTrue("The refresh didn't finish", refresh.await(TIMEOUT_MINUTES, TimeUnit.MINUTES));
+
+        assertTrue(refresh.isSuccessful());
+        assertEquals(0, termsSeenByGrades.get());
+        //The service flushes in onRefreshFinished and only stops after that
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(30);
+        while (UpdateService.Companion.isActive() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        assertTrue(count(Terms.class) > 0);
+        assertTrue(count(Course.class) > 0);
+        assertTrue(count(Grades.class) > 0);
+    }
+
+    private static long count(Class<? extends io.realm.RealmObject> clazz) {
+        Realm realm = Realm.getDefaultInstance();
+        try {
+            return realm.where(clazz).count();
+        } finally {
+            realm.close();
+        }
+    }
+
+    private static void appendResults(StringBuilder report, RefreshHandle refresh) {
+        for (SyncResult result : refresh.getResults()) {
+            TelemetryRecord record = TelemetryRecord.of(result);
+            report.append(String.format(Locale.US, "%-10s %-12s %8d %8d %8d %10d %8d %8d %8d %8d %6d%n",
+                    record.getDataset(), record.getOutcome(), record.getDurationMs(), record.getQueueWaitMs(),
+                    record.getRequests(), record.getBytes(), record.getFirstByteMs(), record.getDownloadMs(),
+                    record.getParseMs(), record.getWriteMs(), record.getRowsChanged()));
+        }
+    }
+
+    private static int intArg(Bundle args, String name, int fallback) {
+        String value = args.getString(name);
+        return value == null ? fallback : Integer.parseInt(value);
+    }
+}
@@ -0,0 +1,115 @@
+package com.directdev.portal.replay;
+
+import android.content.Context;
+
+import com.directdev.portal.tools.helper.GsonHelper;
+import com.directdev.portal.tools.helper.PortalMigration;
+import com.directdev.portal.tools.model.Course;
+import com.directdev.portal.tools.model.Dates;
+import com.directdev.portal.tools.model.Exam;
+import com.directdev.portal.tools.model.Finance;
+import com.directdev.portal.tools.model.Grades;
+import com.directdev.portal.tools.model.Resource;
+import com.directdev.portal.tools.model.Schedule;
+import com.directdev.portal.tools.sync.RowDiff;
+import com.directdev.portal.tools.sync.RowFormats;
+import com.directdev.portal.tools.sync.parse.DatedRows;
+import com.directdev.portal.tools.sync.parse.GradesPage;
+import com.directdev.portal.tools.sync.parse.ResponseParser;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import io.realm.Realm;
+import io.realm.RealmConfiguration;
+
+/**
+ * Realm files that hold a BinusmayaRoutes account, as if a refresh had downloaded it. The responses
+ * go through ResponseParser and get their ids from RowFormats like in UpdateService, but they are
+ * written in one transaction without diffing, there is nothing to diff against.
+ *
+ * Tests of the screens can make the file the default Realm to render a large account without
+ * refreshing first.
+ */
+public class SyntheticRealm {
+    //Named after the scale, eg. synthetic-30x8x13x10.realm for X10
+    public static RealmConfiguration configuration(Context ctx, BinusmayaRoutes.Scale scale) {
+        return new RealmConfiguration.Builder(ctx)
+                .name("synthetic-" + scale.terms + "x" + scale.courses + "x" + scale.sessions + "x"
+                        + scale.scheduledTerms + ".realm")
+                .schemaVersion(PortalMigration.SCHEMA_VERSION)
+                .migration(new PortalMigration())
+                .build();
+    }
+
+    //Writes the account into a new file, replacing the one that was there
+    public static RealmConfiguration create(Context ctx, BinusmayaRoutes.Scale scale) {
+        RealmConfiguration configuration = configuration(ctx, scale);
+        Realm.deleteRealm(configuration);
+        BinusmayaRoutes routes = new BinusmayaRoutes(scale);
+        ResponseParser parser = new ResponseParser(GsonHelper.get());
+
+        DatedRows<Schedule> schedules = parser.schedules(new StringReader(routes.respond(BinusmayaRoutes.SCHEDULE)));
+        DatedRows<Exam> exams = parser.exams(new StringReader(routes.respond(BinusmayaRoutes.EXAM)));
+        DatedRows<Finance> finances = parser.finances(new StringReader(routes.respond(BinusmayaRoutes.FINANCE)));
+        RowDiff.assignIds(schedules.rows, RowFormats.SCHEDULE);
+        RowDiff.assignIds(exams.rows, RowFormats.EXAM);
+        RowDiff.assignIds(finances.rows, RowFormats.FINANCE);
+        //Dates are keyed by the day, the same day comes up in all three
+        Map<String, Dates> dates = new HashMap<>();
+        for (DatedRows<?> rows : new DatedRows<?>[]{schedules, exams, finances}) {
+            for (Dates date : rows.dates) {
+                dates.put(date.getDatePK(), date);
+            }
+        }
+
+        Realm realm = Realm.getInstance(configuration);
+        try {
+            realm.beginTransaction();
+            realm.copyToRealmOrUpdate(schedules.rows);
+            realm.copyToRealmOrUpdate(exams.rows);
+            realm.copyToRealmOrUpdate(finances.rows);
+            realm.copyToRealmOrUpdate(new ArrayList<>(dates.values()));
+            realm.copyToRealmOrUpdate(parser.terms(new StringReader(routes.respond(BinusmayaRoutes.TERMS))));
+            for (int t = 0; t < scale.terms; t++) {
+                String strm = BinusmayaRoutes.term(t);
+                GradesPage page = parser.grades(new StringReader(routes.respond(BinusmayaRoutes.GRADES + strm)), strm);
+                realm.copyToRealm(page.grades);
+                realm.copyToRealmOrUpdate(page.courses);
+                realm.copyToRealmOrUpdate(parser.courses(new StringReader(routes.respond(BinusmayaRoutes.COURSE + strm)), strm));
+            }
+            //Parsed one course at a time, at X100 the responses of every course together are too big
+            for (String courseId : routes.getCourseIds()) {
+                realm.copyToRealm(parser.resources(new StringReader(routes.respond(BinusmayaRoutes.RESOURCES + courseId)), courseId));
+            }
+            realm.commitTransaction();
+        } catch (RuntimeException e) {
+            realm.cancelTransaction();
+            throw e;
+        } finally {
+            realm.close();
+        }
+        return configuration;
+    }
+
+    //Rows of every model in the file, for the report of a test
+    public static String describe(RealmConfiguration configuration) {
+        Realm realm = Realm.getInstance(configuration);
+        try {
+            List<String> counts = new ArrayList<>();
+            counts.add(realm.where(Schedule.class).count() + " schedules");
+            counts.add(realm.where(Exam.class).count() + " exams");
+            counts.add(realm.where(Finance.class).count() + " finances");
+            counts.add(realm.where(Dates.class).count() + " dates");
+            counts.add(realm.where(Course.class).count() + " courses");
+            counts.add(realm.where(Grades.class).count() + " grades");
+            counts.add(realm.where(Resource.class).count() + " resources");
+            return configuration.getRealmFileName() + ": " + counts;
+        } finally {
+            realm.close();
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.directdev.portal.replay;
+
+import android.content.Context;
+import android.os.Bundle;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+
+import com.directdev.portal.tools.model.Course;
+import com.directdev.portal.tools.model.Dates;
+import com.directdev.portal.tools.model.Resource;
+import com.directdev.portal.tools.model.Schedule;
+import com.directdev.portal.ui.main.journal.JournalDates;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.util.Date;
+
+import io.realm.Realm;
+import io.realm.RealmConfiguration;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Builds the synthetic Realm files on the device and checks they hold the whole account. The files
+ * stay in the files dir of the app, adb pull them to use them somewhere else.
+ *
+ * Which scales are built comes from the scales instrumentation argument, eg.
+ * -Pandroid.testInstrumentationRunnerArguments.scales=1,10,100 (default 1,10, X100 takes minutes)
+ */
+@RunWith(AndroidJUnit4.class)
+public class SyntheticRealmTest {
+    private static final String TAG = "SyntheticRealm";
+
+    @Test
+    public void scaledAccounts() {
+        Context ctx = InstrumentationRegistry.getTargetContext();
+        Bundle args = InstrumentationRegistry.getArguments();
+        for (String factor : args.getString("scales", "1,10").split(",")) {
+            BinusmayaRoutes.Scale scale = BinusmayaRoutes.Scale.X1.times(Integer.parseInt(factor.trim()));
+
+            long start = System.currentTimeMillis();
+            RealmConfiguration configuration = SyntheticRealm.create(ctx, scale);
+            long took = System.currentTimeMillis() - start;
+
+            Realm realm = Realm.getInstance(configuration);
+            try {
+                int courses = scale.terms * scale.courses;
+                assertEquals(courses, realm.where(Course.class).count());
+                assertEquals(scale.scheduledTerms * scale.courses * scale.sessions, realm.where(Schedule.class).count());
+                assertEquals(courses * scale.sessions * 2, realm.where(Resource.class).count());
+
+                //What the journal does every time it is shown
+                long journalStart = System.nanoTime();
+                int upcoming = JournalDates.upcoming(realm.where(Dates.class).findAll(), new Date()).size();
+                long journalMicros = (System.nanoTime() - journalStart) / 1000;
+
+                Log.i(TAG, "x" + factor.trim() + " " + scale + ", built in " + took + "ms, "
+                        + new File(configuration.getPath()).length() + " bytes, journal " + upcoming
+                        + " dates in " + journalMicros + "us");
+            } finally {
+                realm.close();
+            }
+            Log.i(TAG, SyntheticRealm.describe(configuration));
+        }
+    }
+}
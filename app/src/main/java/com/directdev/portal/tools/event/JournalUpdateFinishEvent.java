@@ -0,0 +1,5 @@
+package com.directdev.portal.tools.event;
+
+//Posted by UpdateService when the datasets of the journal are saved, the rest of the refresh may still be running
+public class JournalUpdateFinishEvent {
+}
@@ -0,0 +1,15 @@
+package com.directdev.portal.tools.event;
+
+//Posted by LoginTask when the login is done
+public class LoginFinishEvent {
+    public static final int SIGNED_IN = 0;
+    //Binusmaya didn't accept the username and password
+    public static final int REJECTED = 1;
+    //Binusmaya couldn't be reached, or didn't answer like it should
+    public static final int FAILED = 2;
+
+    public int result;
+    public LoginFinishEvent(int result) {
+        this.result = result;
+    }
+}
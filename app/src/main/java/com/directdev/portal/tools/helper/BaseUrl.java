@@ -0,0 +1,34 @@
+package com.directdev.portal.tools.helper;
+
+/**
+ * Where Binusmaya requests go. The request urls in strings.xml all point at the live host, Request
+ * swaps that host for the one set here, so tests and benchmarks can point the whole sync at a local
+ * stand-in server without touching the urls.
+ */
+public class BaseUrl {
+    public static final String BINUSMAYA = "https://newbinusmaya.binus.ac.id";
+
+    private static volatile String base = BINUSMAYA;
+
+    //eg. "http://127.0.0.1:8080", without a trailing slash
+    public static void set(String url) {
+        base = url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+    }
+
+    public static void reset() {
+        base = BINUSMAYA;
+    }
+
+    public static String get() {
+        return base;
+    }
+
+    //Urls of other hosts are left alone
+    public static String resolve(String url) {
+        String current = base;
+        if (current.equals(BINUSMAYA) || !url.startsWith(BINUSMAYA)) {
+            return url;
+        }
+        return current + url.substring(BINUSMAYA.length());
+    }
+}
@@ -0,0 +1,98 @@
+package com.directdev.portal.tools.helper;
+
+import com.directdev.portal.tools.sync.Trace;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.URL;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Opens a connection to Binusmaya before the first request of a refresh needs it. The host is
+ * resolved, and a HEAD request goes through the client of Transport, the same one Volley's requests
+ * use (see OkHttpStack), so the connection it leaves in the pool is the one the first request gets.
+ * With the legacyTransport pref set, Volley goes through TimingHurlStack instead, and so does the HEAD
+ * request, through HttpURLConnection and its own pool. When that connection was closed in the meantime, the TLS session it negotiated is still in the
+ * session cache and the next handshake is resumed instead of a full one.
+ *
+ * MainActivity starts it when it comes up and JournalFragment when pull-to-refresh starts, both on a
+ * background thread. It isn't done again within FRESH_MILLIS of the last time.
+ */
+public class ConnectionWarmer {
+    //Android keeps idle connections for 5 minutes, this stays well inside that
+    public static final long FRESH_MILLIS = 60000;
+    private static final String TAG = "ConnectionWarmer";
+    private static final int TIMEOUT_MILLIS = 15000;
+
+    private static final AtomicBoolean running = new AtomicBoolean();
+    private static volatile long warmedAt;
+
+    public static void start(final boolean legacyTransport) {
+        if (System.currentTimeMillis() - warmedAt < FRESH_MILLIS || !running.compareAndSet(false, true)) {
+            return;
+        }
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    warm(BaseUrl.get(), legacyTransport);
+                } finally {
+                    running.set(false);
+                }
+            }
+        }, TAG).start();
+    }
+
+    /**
+     * Blocks until the connection is open and the response to the HEAD arrived. Returns how long that
+     * took, which is about what the first request would have waited for on top of its own time, or
+     * -1 when the server couldn't be reached (the first request then tries on its own).
+     */
+    public static long warm(String baseUrl, boolean legacyTransport) {
+        Trace.Span span = Trace.begin("fetch", "warm-up");
+        long start = System.nanoTime();
+        try {
+            URL url = new URL(baseUrl + "/");
+            InetAddress.getAllByName(url.getHost());
+            long nanos;
+            if (legacyTransport) {
+                HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+                connection.setRequestMethod("HEAD");
+                connection.setInstanceFollowRedirects(false);
+                connection.setConnectTimeout(TIMEOUT_MILLIS);
+                connection.setReadTimeout(TIMEOUT_MILLIS);
+                connection.getResponseCode();
+                nanos = System.nanoTime() - start;
+                release(connection);
+            } else {
+                Response response = Transport.get().newCall(new Request.Builder().url(url).head().build()).execute();
+                nanos = System.nanoTime() - start;
+                //The connection only goes back to the pool once the response is closed
+                response.body().close();
+            }
+            warmedAt = System.currentTimeMillis();
+            return nanos;
+        } catch (IOException e) {
+            return -1;
+        } finally {
+            span.end();
+        }
+    }
+
+    //HttpURLConnection only returns the connection to its pool once the response is read to the end
+    private static void release(HttpURLConnection connection) {
+        try {
+            InputStream in = connection.getErrorStream();
+            if (in == null) {
+                in = connection.getInputStream();
+            }
+            in.close();
+        } catch (IOException ignored) {
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.directdev.portal.tools.helper;
+
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * Reads the "yyyy-MM-dd" dates of Binusmaya, the replacement of GsonBuilder.setDateFormat().
+ *
+ * Gson's date adapter parses every date through one synchronized DateFormat, so all sync workers
+ * queue up on it. Here the digits are read straight out of the string into a Calendar of the current
+ * thread, and only dates that don't start with yyyy-MM-dd go through a SimpleDateFormat, which
+ * parses the same way Gson used to (eg. "2016-4-7", or anything after the day is ignored).
+ *
+ * Dates are midnight in the time zone the device is in at the time, like with Gson. The threads that
+ * parse live as long as the app, so their Calendar is set to the current time zone on every use.
+ */
+public class DayDateAdapter extends TypeAdapter<Date> {
+    private static final String PATTERN = "yyyy-MM-dd";
+
+    private static final ThreadLocal<Calendar> CALENDAR = new ThreadLocal<Calendar>() {
+        @Override
+        protected Calendar initialValue() {
+            return Calendar.getInstance();
+        }
+    };
+
+    @Override
+    public Date read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        return parse(in.nextString());
+    }
+
+    @Override
+    public void write(JsonWriter out, Date value) throws IOException {
+        if (value == null) {
+            out.nullValue();
+            return;
+        }
+        Calendar calendar = calendar();
+        calendar.setTime(value);
+        char[] day = new char[10];
+        digits(day, 0, 4, calendar.get(Calendar.YEAR));
+        day[4] = '-';
+        digits(day, 5, 2, calendar.get(Calendar.MONTH) + 1);
+        day[7] = '-';
+        digits(day, 8, 2, calendar.get(Calendar.DAY_OF_MONTH));
+        out.value(new String(day));
+    }
+
+    static Date parse(String date) {
+        if (isDay(date)) {
+            Calendar calendar = calendar();
+            calendar.clear();
+            calendar.set(number(date, 0, 4), number(date, 5, 2) - 1, number(date, 8, 2));
+            return calendar.getTime();
+        }
+        try {
+            return new SimpleDateFormat(PATTERN, Locale.US).parse(date);
+        } catch (ParseException e) {
+            throw new JsonSyntaxException(date, e);
+        }
+    }
+
+    private static Calendar calendar() {
+        Calendar calendar = CALENDAR.get();
+        calendar.setTimeZone(TimeZone.getDefault());
+        return calendar;
+    }
+
+    private static boolean isDay(String date) {
+        if (date.length() < 10 || date.charAt(4) != '-' || date.charAt(7) != '-') {
+            return false;
+        }
+        for (int i = 0; i < 10; i++) {
+            if (i != 4 && i != 7 && (date.charAt(i) < '0' || date.charAt(i) > '9')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int number(String date, int start, int length) {
+        int number = 0;
+        for (int i = start; i < start + length; i++) {
+            number = number * 10 + date.charAt(i) - '0';
+        }
+        return number;
+    }
+
+    private static void digits(char[] out, int start, int length, int number) {
+        for (int i = start + length - 1; i >= start; i--) {
+            out[i] = (char) ('0' + number % 10);
+            number /= 10;
+        }
+    }
+}
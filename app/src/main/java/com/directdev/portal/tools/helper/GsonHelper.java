@@ -2,13 +2,28 @@ package com.directdev.portal.tools.helper;
 
 import com.google.gson.ExclusionStrategy;
 import com.google.gson.FieldAttributes;
+import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 
+import java.util.Date;
+
 import io.realm.RealmObject;
 
+/**
+ * The one Gson of the app. Gson is thread safe once it is built, so every sync worker shares it
+ * instead of building a new one (and its adapter cache) for every response. The models parsed from
+ * Binusmaya have their own TypeAdapters, see ModelAdapters.
+ */
 public class GsonHelper {
-    public static com.google.gson.Gson create(){
-        return new GsonBuilder().setDateFormat("yyyy-MM-dd")
+    private static final Gson GSON = build();
+
+    public static Gson get() {
+        return GSON;
+    }
+
+    private static Gson build() {
+        GsonBuilder builder = new GsonBuilder()
+                .registerTypeAdapter(Date.class, new DayDateAdapter())
                 .setExclusionStrategies(new ExclusionStrategy() {
                     @Override
                     public boolean shouldSkipField(FieldAttributes f) {
@@ -19,6 +34,8 @@ public class GsonHelper {
                     public boolean shouldSkipClass(Class<?> clazz) {
                         return false;
                     }
-                }).create();
+                });
+        ModelAdapters.register(builder);
+        return builder.create();
     }
 }
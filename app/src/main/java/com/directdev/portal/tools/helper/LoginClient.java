@@ -0,0 +1,355 @@
+package com.directdev.portal.tools.helper;
+
+import com.directdev.portal.tools.sync.Trace;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.CookieManager;
+import java.net.HttpCookie;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Signs in to Binusmaya with plain HTTP requests, the same way the login page does it in a browser:
+ * login.php redirects to an ASP.NET form, the form is posted back with its hidden fields (__VIEWSTATE,
+ * __EVENTVALIDATION...) and the username and password, and a successful post redirects to
+ * /newStudent/. The cookies collected on the way are the session, in the same "name=value; ..."
+ * form that the CookieManager of a WebView gives, ready for login_cookie_pref.
+ *
+ * Like in a browser the cookies are kept per host (and Domain and Path when the server sets them),
+ * every request of the redirect chain only gets the cookies that are meant for its url, and only the
+ * cookies of the Binusmaya host are returned. A hop to another host (eg. a single sign-on page)
+ * neither sees the Binusmaya session nor changes it.
+ *
+ * Blocks until it is done, so it has to run off the main thread (see LoginTask).
+ */
+public class LoginClient {
+    public static final String LOGIN_PATH = "/login.php";
+    //Where Binusmaya sends the browser after a successful login
+    public static final String SIGNED_IN_PATH = "/newStudent/";
+    private static final int MAX_REDIRECTS = 10;
+    private static final int TIMEOUT_MILLIS = 30000;
+
+    //Ids of the fields of the form, the names that are posted are read from the form itself
+    private static final String USERNAME_ID = "ctl00_ContentPlaceHolder1_UsernameTextBoxBMNew";
+    private static final String PASSWORD_ID = "ctl00_ContentPlaceHolder1_PasswordTextBoxBMNew";
+    private static final String SUBMIT_ID = "ctl00_ContentPlaceHolder1_SubmitButtonBMNew";
+
+    private static final Pattern FORM = Pattern.compile("<form\\b([^>]*)>(.*?)</form>", Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+    private static final Pattern INPUT = Pattern.compile("<input\\b([^>]*)>", Pattern.CASE_INSENSITIVE);
+    private static final Pattern ATTRIBUTE = Pattern.compile("([\\w:\\-]+)\\s*=\\s*(?:\"([^\"]*)\"|'([^']*)')");
+
+    //The username and password were posted, but the form came back instead of the redirect
+    public static class RejectedException extends IOException {
+        RejectedException(String message) {
+            super(message);
+        }
+    }
+
+    private final String baseUrl;
+    private final CookieManager cookies = new CookieManager();
+
+    //baseUrl is BaseUrl.get() in the app, the replay server in tests
+    public LoginClient(String baseUrl) {
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+    }
+
+    /**
+     * Returns the session cookies. Throws RejectedException when Binusmaya doesn't accept the
+     * username and password, and IOException when it can't be reached or sends something that is
+     * not the login form.
+     */
+    public String login(String username, String password) throws IOException {
+        Trace.Span span = Trace.begin("login", "HTTP login");
+        try {
+            Page page = follow(new URL(baseUrl + LOGIN_PATH), null);
+            if (page.signedIn) {
+                return getCookies();
+            }
+            Form form = Form.parse(page);
+            form.fields.put(form.nameOf(USERNAME_ID), username);
+            form.fields.put(form.nameOf(PASSWORD_ID), password);
+            form.fields.put(form.nameOf(SUBMIT_ID), form.valueOf(SUBMIT_ID));
+
+            Page result = follow(form.action, encode(form.fields));
+            if (!result.signedIn) {
+                throw new RejectedException("Login form came back from " + result.url);
+            }
+            return getCookies();
+        } finally {
+            span.end();
+        }
+    }
+
+    /**
+     * Whether a response of the JSON services is what they send when the session ran out: they
+     * redirect to login.php, and HttpURLConnection follows that to the login form, so the body is a
+     * HTML page instead of JSON.
+     */
+    public static boolean looksSignedOut(String body) {
+        for (int i = 0; i < body.length(); i++) {
+            if (!Character.isWhitespace(body.charAt(i))) {
+                return body.charAt(i) == '<';
+            }
+        }
+        return false;
+    }
+
+    //Cookies of the Binusmaya host so far, eg. "PHPSESSID=...; ASP.NET_SessionId=..."
+    public String getCookies() throws IOException {
+        return header(cookies.getCookieStore().get(uri(new URL(baseUrl + "/"))));
+    }
+
+    //The cookies for the url, without the ones of other paths and the secure ones on plain http
+    private String cookiesFor(URL url) throws IOException {
+        List<HttpCookie> matching = new ArrayList<>();
+        for (HttpCookie cookie : cookies.getCookieStore().get(uri(url))) {
+            String path = cookie.getPath() == null ? "/" : cookie.getPath();
+            String urlPath = url.getPath().isEmpty() ? "/" : url.getPath();
+            if (urlPath.startsWith(path) && (!cookie.getSecure() || url.getProtocol().equals("https"))) {
+                matching.add(cookie);
+            }
+        }
+        return header(matching);
+    }
+
+    //Without the quotes that HttpCookie.toString() puts around the values of RFC 2965 cookies
+    private static String header(List<HttpCookie> cookies) {
+        StringBuilder header = new StringBuilder();
+        for (HttpCookie cookie : cookies) {
+            if (header.length() > 0) {
+                header.append("; ");
+            }
+            header.append(cookie.getName()).append('=').append(cookie.getValue());
+        }
+        return header.toString();
+    }
+
+    private static URI uri(URL url) throws IOException {
+        try {
+            return url.toURI();
+        } catch (URISyntaxException e) {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * Sends the request (a POST when there is a body) and follows the redirects with GETs, until a
+     * page is returned or a redirect goes to SIGNED_IN_PATH, which isn't requested anymore.
+     */
+    private Page follow(URL url, String body) throws IOException {
+        for (int i = 0; i <= MAX_REDIRECTS; i++) {
+            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+            connection.setInstanceFollowRedirects(false);
+            connection.setConnectTimeout(TIMEOUT_MILLIS);
+            connection.setReadTimeout(TIMEOUT_MILLIS);
+            String cookie = cookiesFor(url);
+            if (!cookie.isEmpty()) {
+                connection.setRequestProperty("Cookie", cookie);
+            }
+            if (body != null) {
+                byte[] bytes = body.getBytes("UTF-8");
+                connection.setRequestMethod("POST");
+                connection.setDoOutput(true);
+                connection.setRequestProperty("Content-Type", "application/x-www-form-urlencoded");
+                connection.setFixedLengthStreamingMode(bytes.length);
+                OutputStream out = connection.getOutputStream();
+                try {
+                    out.write(bytes);
+                } finally {
+                    out.close();
+                }
+            }
+            int status = connection.getResponseCode();
+            cookies.put(uri(url), connection.getHeaderFields());
+            String location = connection.getHeaderField("Location");
+            if (status >= 300 && status < 400 && location != null) {
+                drain(connection);
+                url = new URL(BaseUrl.resolve(new URL(url, location).toString()));
+                if (url.getPath().equals(SIGNED_IN_PATH)) {
+                    return new Page(url, "", true);
+                }
+                body = null;
+                continue;
+            }
+            if (status != HttpURLConnection.HTTP_OK) {
+                drain(connection);
+                throw new IOException(status + " from " + url);
+            }
+            return new Page(url, read(connection.getInputStream()), url.getPath().equals(SIGNED_IN_PATH));
+        }
+        throw new IOException("More than " + MAX_REDIRECTS + " redirects from " + url);
+    }
+
+    private static String encode(Map<String, String> fields) throws UnsupportedEncodingException {
+        StringBuilder body = new StringBuilder();
+        for (Map.Entry<String, String> field : fields.entrySet()) {
+            if (body.length() > 0) {
+                body.append('&');
+            }
+            body.append(URLEncoder.encode(field.getKey(), "UTF-8")).append('=')
+                    .append(URLEncoder.encode(field.getValue(), "UTF-8"));
+        }
+        return body.toString();
+    }
+
+    //Error bodies are read too, so the connection can be reused for the next request
+    private static void drain(HttpURLConnection connection) {
+        try {
+            InputStream in = connection.getErrorStream();
+            if (in == null) {
+                in = connection.getInputStream();
+            }
+            read(in);
+        } catch (IOException ignored) {
+        }
+    }
+
+    private static String read(InputStream in) throws IOException {
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return out.toString("UTF-8");
+        } finally {
+            in.close();
+        }
+    }
+
+    private static class Page {
+        final URL url;
+        final String html;
+        final boolean signedIn;
+
+        Page(URL url, String html, boolean signedIn) {
+            this.url = url;
+            this.html = html;
+            this.signedIn = signedIn;
+        }
+    }
+
+    //The login form: where it is posted to, the fields it posts, and the names of the inputs by id
+    private static class Form {
+        URL action;
+        final Map<String, String> fields = new LinkedHashMap<>();
+        final Map<String, String> names = new HashMap<>();
+        final Map<String, String> values = new HashMap<>();
+
+        static Form parse(Page page) throws IOException {
+            Matcher forms = FORM.matcher(page.html);
+            while (forms.find()) {
+                if (!forms.group(2).contains(USERNAME_ID)) {
+                    continue;
+                }
+                Form form = new Form();
+                String action = attributes(forms.group(1)).get("action");
+                form.action = new URL(BaseUrl.resolve(new URL(page.url, action == null ? "" : action).toString()));
+                Matcher inputs = INPUT.matcher(forms.group(2));
+                while (inputs.find()) {
+                    Map<String, String> input = attributes(inputs.group(1));
+                    String name = input.get("name");
+                    if (name == null) {
+                        continue;
+                    }
+                    String value = input.containsKey("value") ? input.get("value") : "";
+                    if (input.containsKey("id")) {
+                        form.names.put(input.get("id"), name);
+                        form.values.put(input.get("id"), value);
+                    }
+                    //Hidden fields are what ASP.NET needs back, the other ones are filled in by login()
+                    if ("hidden".equalsIgnoreCase(input.get("type"))) {
+                        form.fields.put(name, value);
+                    }
+                }
+                return form;
+            }
+            throw new IOException("No login form at " + page.url);
+        }
+
+        String nameOf(String id) throws IOException {
+            String name = names.get(id);
+            if (name == null) {
+                throw new IOException("The login form has no " + id);
+            }
+            return name;
+        }
+
+        String valueOf(String id) {
+            String value = values.get(id);
+            return value == null ? "" : value;
+        }
+
+        private static Map<String, String> attributes(String tag) {
+            Map<String, String> attributes = new HashMap<>();
+            Matcher matcher = ATTRIBUTE.matcher(tag);
+            while (matcher.find()) {
+                String value = matcher.group(2) != null ? matcher.group(2) : matcher.group(3);
+                attributes.put(matcher.group(1).toLowerCase(Locale.US), unescape(value));
+            }
+            return attributes;
+        }
+
+        //The entities that show up in attribute values, anything else is left as it is
+        private static String unescape(String html) {
+            if (html.indexOf('&') < 0) {
+                return html;
+            }
+            StringBuilder text = new StringBuilder();
+            int i = 0;
+            while (i < html.length()) {
+                int end = html.charAt(i) == '&' ? html.indexOf(';', i) : -1;
+                String decoded = end < 0 ? null : entity(html.substring(i + 1, end));
+                if (decoded == null) {
+                    text.append(html.charAt(i));
+                    i++;
+                } else {
+                    text.append(decoded);
+                    i = end + 1;
+                }
+            }
+            return text.toString();
+        }
+
+        private static String entity(String name) {
+            switch (name) {
+                case "amp":
+                    return "&";
+                case "lt":
+                    return "<";
+                case "gt":
+                    return ">";
+                case "quot":
+                    return "\"";
+                case "apos":
+                    return "'";
+            }
+            try {
+                if (name.startsWith("#x") || name.startsWith("#X")) {
+                    return String.valueOf((char) Integer.parseInt(name.substring(2), 16));
+                }
+                if (name.startsWith("#")) {
+                    return String.valueOf((char) Integer.parseInt(name.substring(1)));
+                }
+            } catch (NumberFormatException ignored) {
+            }
+            return null;
+        }
+    }
+}
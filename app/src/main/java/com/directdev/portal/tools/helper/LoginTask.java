@@ -0,0 +1,108 @@
+package com.directdev.portal.tools.helper;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import com.directdev.portal.R;
+import com.directdev.portal.tools.event.LoginFinishEvent;
+import com.directdev.portal.tools.sync.SessionLifetime;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import de.greenrobot.event.EventBus;
+
+/**
+ * Signs in with the saved username and password using LoginClient. When it succeeds the session
+ * cookie is saved to login_cookie_pref, and the time it was issued goes into the SessionLifetime.
+ *
+ * start() does it on a background thread and posts a LoginFinishEvent, login() blocks and is for code
+ * that is on a background thread already (see UpdateService, which renews the session mid-refresh).
+ */
+public class LoginTask {
+    private static final String TAG = "LoginTask";
+    private static final AtomicBoolean running = new AtomicBoolean();
+    private static final Object lock = new Object();
+    private static SessionLifetime lifetime;
+
+    //Returns false when a login is already running, its LoginFinishEvent is the one to wait for
+    public static boolean start(Context ctx) {
+        if (!running.compareAndSet(false, true)) {
+            return false;
+        }
+        final Context app = ctx.getApplicationContext();
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                //Whatever happens a LoginFinishEvent is posted, the screen that started the login waits for it
+                int result = LoginFinishEvent.FAILED;
+                try {
+                    result = login(app);
+                } catch (RuntimeException e) {
+                    Log.e(TAG, "login failed", e);
+                } finally {
+                    running.set(false);
+                    EventBus.getDefault().post(new LoginFinishEvent(result));
+                }
+            }
+        }, TAG).start();
+        return true;
+    }
+
+    public static boolean isRunning() {
+        return running.get();
+    }
+
+    //Returns one of the LoginFinishEvent results, only one login runs at a time
+    public static int login(Context ctx) {
+        synchronized (lock) {
+            try {
+                String cookie = new LoginClient(BaseUrl.get()).login(
+                        Pref.read(ctx, R.string.login_username_pref, ""),
+                        Pref.read(ctx, R.string.login_password_pref, ""));
+                SharedPreferences sp = ctx.getSharedPreferences(ctx.getString(R.string.shared_preferences), Context.MODE_PRIVATE);
+                sp.edit().putString(ctx.getString(R.string.login_cookie_pref), cookie)
+                        .putInt(ctx.getString(R.string.login_condition_pref), 1)
+                        .putBoolean(ctx.getString(R.string.is_no_session), false)
+                        .commit();
+                lifetime(ctx).issued(System.currentTimeMillis());
+                saveLifetime(ctx);
+                return LoginFinishEvent.SIGNED_IN;
+            } catch (LoginClient.RejectedException e) {
+                return LoginFinishEvent.REJECTED;
+            } catch (IOException e) {
+                Log.e(TAG, "login failed", e);
+                return LoginFinishEvent.FAILED;
+            }
+        }
+    }
+
+    //How long the sessions last, see SessionLifetime
+    public static SessionLifetime lifetime(Context ctx) {
+        synchronized (lock) {
+            if (lifetime == null) {
+                lifetime = SessionLifetime.decode(Pref.read(ctx, R.string.session_lifetime_pref, ""));
+            }
+            return lifetime;
+        }
+    }
+
+    //A request made with the cookie saved last was signed out
+    public static void expired(Context ctx) {
+        SessionLifetime session = lifetime(ctx);
+        session.expired(System.currentTimeMillis());
+        saveLifetime(ctx);
+    }
+
+    //A request made with `cookie` got data back, it is saved with the next saveLifetime()
+    public static void used(Context ctx, String cookie) {
+        if (cookie.equals(Pref.read(ctx, R.string.login_cookie_pref, ""))) {
+            lifetime(ctx).used(System.currentTimeMillis());
+        }
+    }
+
+    public static void saveLifetime(Context ctx) {
+        Pref.save(ctx, ctx.getString(R.string.session_lifetime_pref), lifetime(ctx).encode());
+    }
+}
@@ -0,0 +1,563 @@
+package com.directdev.portal.tools.helper;
+
+import com.directdev.portal.tools.model.Course;
+import com.directdev.portal.tools.model.Dates;
+import com.directdev.portal.tools.model.Exam;
+import com.directdev.portal.tools.model.Finance;
+import com.directdev.portal.tools.model.Grades;
+import com.directdev.portal.tools.model.GradesCourse;
+import com.directdev.portal.tools.model.Resource;
+import com.directdev.portal.tools.model.Schedule;
+import com.directdev.portal.tools.model.Terms;
+import com.google.gson.GsonBuilder;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+/**
+ * Hand written TypeAdapters of the models that are parsed from Binusmaya responses, so Gson doesn't
+ * bind them with reflection. Every adapter reads the same JSON names that the fields (and their
+ * SerializedName) used to map to, and reads values as leniently as Gson did: numbers and booleans
+ * into String fields, numeric strings into int fields, and null leaves int fields at 0.
+ *
+ * When a field is added to one of these models, it has to be added here too, or it is never filled.
+ */
+class ModelAdapters {
+    private static final DayDateAdapter DATE = new DayDateAdapter();
+
+    static void register(GsonBuilder builder) {
+        builder.registerTypeAdapter(Schedule.class, SCHEDULE);
+        builder.registerTypeAdapter(Exam.class, EXAM);
+        builder.registerTypeAdapter(Finance.class, FINANCE);
+        builder.registerTypeAdapter(Grades.class, GRADES);
+        builder.registerTypeAdapter(GradesCourse.class, GRADES_COURSE);
+        builder.registerTypeAdapter(Course.class, COURSE);
+        builder.registerTypeAdapter(Resource.class, RESOURCE);
+        builder.registerTypeAdapter(Terms.class, TERMS);
+        builder.registerTypeAdapter(Dates.class, DATES);
+    }
+
+    static final TypeAdapter<Schedule> SCHEDULE = new TypeAdapter<Schedule>() {
+        @Override
+        public Schedule read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            Schedule schedule = new Schedule();
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "CourseID":
+                        schedule.setCourseID(string(in));
+                        break;
+                    case "CourseName":
+                        schedule.setCourseName(string(in));
+                        break;
+                    case "Date":
+                        schedule.setDate(DATE.read(in));
+                        break;
+                    case "Session":
+                        if (in.peek() == JsonToken.NULL) {
+                            in.nextNull();
+                        } else {
+                            schedule.setSession(in.nextInt());
+                        }
+                        break;
+                    case "Room":
+                        schedule.setRoom(string(in));
+                        break;
+                    case "Mode":
+                        schedule.setMode(string(in));
+                        break;
+                    case "Class":
+                        schedule.setClasscode(string(in));
+                        break;
+                    case "Type":
+                        schedule.setType(string(in));
+                        break;
+                    case "Week":
+                        schedule.setWeek(string(in));
+                        break;
+                    case "Shift":
+                        schedule.setShift(string(in));
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            in.endObject();
+            return schedule;
+        }
+
+        @Override
+        public void write(JsonWriter out, Schedule schedule) throws IOException {
+            if (schedule == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            out.name("CourseID").value(schedule.getCourseID());
+            out.name("CourseName").value(schedule.getCourseName());
+            out.name("Date");
+            DATE.write(out, schedule.getDate());
+            out.name("Session").value(schedule.getSession());
+            out.name("Room").value(schedule.getRoom());
+            out.name("Mode").value(schedule.getMode());
+            out.name("Class").value(schedule.getClasscode());
+            out.name("Type").value(schedule.getType());
+            out.name("Week").value(schedule.getWeek());
+            out.name("Shift").value(schedule.getShift());
+            out.endObject();
+        }
+    };
+
+    static final TypeAdapter<Exam> EXAM = new TypeAdapter<Exam>() {
+        @Override
+        public Exam read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            Exam exam = new Exam();
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "DESCR":
+                        exam.setDESCR(string(in));
+                        break;
+                    case "KDMTK":
+                        exam.setKDMTK(string(in));
+                        break;
+                    case "ExamDate":
+                        exam.setExamDate(DATE.read(in));
+                        break;
+                    case "ExamStartTime":
+                        exam.setExamStartTime(string(in));
+                        break;
+                    case "Duration":
+                        exam.setDuration(string(in));
+                        break;
+                    case "ROOM":
+                        exam.setROOM(string(in));
+                        break;
+                    case "ChairNumber":
+                        exam.setChairNumber(string(in));
+                        break;
+                    case "COURSE_TITLE_LONG":
+                        exam.setCOURSE_TITLE_LONG(string(in));
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            in.endObject();
+            return exam;
+        }
+
+        @Override
+        public void write(JsonWriter out, Exam exam) throws IOException {
+            if (exam == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            out.name("DESCR").value(exam.getDESCR());
+            out.name("KDMTK").value(exam.getKDMTK());
+            out.name("ExamDate");
+            DATE.write(out, exam.getExamDate());
+            out.name("ExamStartTime").value(exam.getExamStartTime());
+            out.name("Duration").value(exam.getDuration());
+            out.name("ROOM").value(exam.getROOM());
+            out.name("ChairNumber").value(exam.getChairNumber());
+            out.name("COURSE_TITLE_LONG").value(exam.getCOURSE_TITLE_LONG());
+            out.endObject();
+        }
+    };
+
+    static final TypeAdapter<Finance> FINANCE = new TypeAdapter<Finance>() {
+        @Override
+        public Finance read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            Finance finance = new Finance();
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "DUE_DT":
+                        finance.setDUE_DT(DATE.read(in));
+                        break;
+                    case "ITEM_EFFECTIVE_DT":
+                        finance.setITEM_EFFECTIVE_DT(DATE.read(in));
+                        break;
+                    case "ITEM_TERM":
+                        finance.setITEM_TERM(string(in));
+                        break;
+                    case "DESCR":
+                        finance.setDESCR(string(in));
+                        break;
+                    case "ITEM_TYPE_CD":
+                        finance.setITEM_TYPE_CD(string(in));
+                        break;
+                    case "ITEM_AMT":
+                        if (in.peek() == JsonToken.NULL) {
+                            in.nextNull();
+                        } else {
+                            finance.setITEM_AMT(in.nextInt());
+                        }
+                        break;
+                    case "ITEM_NBR":
+                        finance.setITEM_NBR(string(in));
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            in.endObject();
+            return finance;
+        }
+
+        @Override
+        public void write(JsonWriter out, Finance finance) throws IOException {
+            if (finance == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            out.name("DUE_DT");
+            DATE.write(out, finance.getDUE_DT());
+            out.name("ITEM_EFFECTIVE_DT");
+            DATE.write(out, finance.getITEM_EFFECTIVE_DT());
+            out.name("ITEM_TERM").value(finance.getITEM_TERM());
+            out.name("DESCR").value(finance.getDESCR());
+            out.name("ITEM_TYPE_CD").value(finance.getITEM_TYPE_CD());
+            out.name("ITEM_AMT").value(finance.getITEM_AMT());
+            out.name("ITEM_NBR").value(finance.getITEM_NBR());
+            out.endObject();
+        }
+    };
+
+    static final TypeAdapter<Grades> GRADES = new TypeAdapter<Grades>() {
+        @Override
+        public Grades read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            Grades grades = new Grades();
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "kodemtk":
+                        grades.setKodemtk(string(in));
+                        break;
+                    case "course":
+                        grades.setCourse(string(in));
+                        break;
+                    case "lam":
+                        grades.setLam(string(in));
+                        break;
+                    case "scu":
+                        grades.setScu(string(in));
+                        break;
+                    case "weight":
+                        grades.setWeight(string(in));
+                        break;
+                    case "score":
+                        grades.setScore(string(in));
+                        break;
+                    case "grade":
+                        grades.setGrade(string(in));
+                        break;
+                    case "course_grade":
+                        grades.setCourse_grade(string(in));
+                        break;
+                    case "STRM":
+                        grades.setStrm(string(in));
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            in.endObject();
+            return grades;
+        }
+
+        @Override
+        public void write(JsonWriter out, Grades grades) throws IOException {
+            if (grades == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            out.name("kodemtk").value(grades.getKodemtk());
+            out.name("course").value(grades.getCourse());
+            out.name("lam").value(grades.getLam());
+            out.name("scu").value(grades.getScu());
+            out.name("weight").value(grades.getWeight());
+            out.name("score").value(grades.getScore());
+            out.name("grade").value(grades.getGrade());
+            out.name("course_grade").value(grades.getCourse_grade());
+            out.name("STRM").value(grades.getStrm());
+            out.endObject();
+        }
+    };
+
+    static final TypeAdapter<GradesCourse> GRADES_COURSE = new TypeAdapter<GradesCourse>() {
+        @Override
+        public GradesCourse read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            GradesCourse course = new GradesCourse();
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "STRM":
+                        course.setSTRM(string(in));
+                        break;
+                    case "kodemtk":
+                        course.setKodemtk(string(in));
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            in.endObject();
+            return course;
+        }
+
+        @Override
+        public void write(JsonWriter out, GradesCourse course) throws IOException {
+            if (course == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            out.name("STRM").value(course.getSTRM());
+            out.name("kodemtk").value(course.getKodemtk());
+            out.endObject();
+        }
+    };
+
+    static final TypeAdapter<Course> COURSE = new TypeAdapter<Course>() {
+        @Override
+        public Course read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            Course course = new Course();
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "CRSE_ID":
+                        course.setCRSE_ID(string(in));
+                        break;
+                    case "COURSENAME":
+                        course.setCOURSENAME(string(in));
+                        break;
+                    case "COURSEID":
+                        course.setCOURSEID(string(in));
+                        break;
+                    case "STRM":
+                        course.setSTRM(string(in));
+                        break;
+                    case "SSR_COMPONENT":
+                        course.setSSR_COMPONENT(string(in));
+                        break;
+                    case "CLASS_NBR":
+                        course.setCLASS_NBR(string(in));
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            in.endObject();
+            return course;
+        }
+
+        @Override
+        public void write(JsonWriter out, Course course) throws IOException {
+            if (course == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            out.name("CRSE_ID").value(course.getCRSE_ID());
+            out.name("COURSENAME").value(course.getCOURSENAME());
+            out.name("COURSEID").value(course.getCOURSEID());
+            out.name("STRM").value(course.getSTRM());
+            out.name("SSR_COMPONENT").value(course.getSSR_COMPONENT());
+            out.name("CLASS_NBR").value(course.getCLASS_NBR());
+            out.endObject();
+        }
+    };
+
+    static final TypeAdapter<Resource> RESOURCE = new TypeAdapter<Resource>() {
+        @Override
+        public Resource read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            Resource resource = new Resource();
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "courseOutlineTopicID":
+                        resource.setCourseOutlineTopicID(string(in));
+                        break;
+                    case "mediaTypeId":
+                        if (in.peek() == JsonToken.NULL) {
+                            in.nextNull();
+                        } else {
+                            resource.setMediaTypeId(in.nextInt());
+                        }
+                        break;
+                    case "mediaType":
+                        resource.setMediaType(string(in));
+                        break;
+                    case "Title":
+                        resource.setTitle(string(in));
+                        break;
+                    case "description":
+                        resource.setDescription(string(in));
+                        break;
+                    case "pathid":
+                        resource.setPathid(string(in));
+                        break;
+                    case "path":
+                        resource.setPath(string(in));
+                        break;
+                    case "location":
+                        resource.setLocation(string(in));
+                        break;
+                    case "filename":
+                        resource.setFilename(string(in));
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            in.endObject();
+            return resource;
+        }
+
+        @Override
+        public void write(JsonWriter out, Resource resource) throws IOException {
+            if (resource == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            out.name("courseOutlineTopicID").value(resource.getCourseOutlineTopicID());
+            out.name("mediaTypeId").value(resource.getMediaTypeId());
+            out.name("mediaType").value(resource.getMediaType());
+            out.name("Title").value(resource.getTitle());
+            out.name("description").value(resource.getDescription());
+            out.name("pathid").value(resource.getPathid());
+            out.name("path").value(resource.getPath());
+            out.name("location").value(resource.getLocation());
+            out.name("filename").value(resource.getFilename());
+            out.endObject();
+        }
+    };
+
+    static final TypeAdapter<Terms> TERMS = new TypeAdapter<Terms>() {
+        @Override
+        public Terms read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            Terms terms = new Terms();
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "value":
+                        terms.setValue(string(in));
+                        break;
+                    case "field":
+                        terms.setField(string(in));
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            in.endObject();
+            return terms;
+        }
+
+        @Override
+        public void write(JsonWriter out, Terms terms) throws IOException {
+            if (terms == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            out.name("value").value(terms.getValue());
+            out.name("field").value(terms.getField());
+            out.endObject();
+        }
+    };
+
+    static final TypeAdapter<Dates> DATES = new TypeAdapter<Dates>() {
+        @Override
+        public Dates read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            Dates dates = new Dates();
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "Date":
+                        dates.setDatePK(string(in));
+                        break;
+                    case "ExamDate":
+                        dates.setDatePK(string(in));
+                        break;
+                    case "ITEM_EFFECTIVE_DT":
+                        dates.setDatePK(string(in));
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            in.endObject();
+            return dates;
+        }
+
+        @Override
+        public void write(JsonWriter out, Dates dates) throws IOException {
+            if (dates == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            out.name("Date").value(dates.getDatePK());
+            out.endObject();
+        }
+    };
+
+    //Like Gson's String adapter, numbers and booleans are read as their text
+    private static String string(JsonReader in) throws IOException {
+        JsonToken token = in.peek();
+        if (token == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        if (token == JsonToken.BOOLEAN) {
+            return Boolean.toString(in.nextBoolean());
+        }
+        return in.nextString();
+    }
+}
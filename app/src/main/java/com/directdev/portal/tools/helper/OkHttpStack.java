@@ -0,0 +1,127 @@
+package com.directdev.portal.tools.helper;
+
+import com.android.volley.AuthFailureError;
+import com.android.volley.toolbox.HttpStack;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.ProtocolVersion;
+import org.apache.http.entity.BasicHttpEntity;
+import org.apache.http.message.BasicHeader;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.http.message.BasicStatusLine;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Headers;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+/**
+ * Volley's HttpStack on top of an OkHttpClient (see Transport), in place of HurlStack. Like
+ * TimingHurlStack it tells our Requests when they were sent and when the first byte of the response
+ * came back: execute() returns once the status line and headers are read, the body is read by Volley
+ * afterwards.
+ */
+public class OkHttpStack implements HttpStack {
+    private final OkHttpClient client;
+
+    public OkHttpStack(OkHttpClient client) {
+        this.client = client;
+    }
+
+    @Override
+    public HttpResponse performRequest(com.android.volley.Request<?> request, Map<String, String> additionalHeaders)
+            throws IOException, AuthFailureError {
+        OkHttpClient client = this.client;
+        if (request.getTimeoutMs() != client.readTimeoutMillis()) {
+            //Shares the pool of the client
+            client = client.newBuilder()
+                    .connectTimeout(request.getTimeoutMs(), TimeUnit.MILLISECONDS)
+                    .readTimeout(request.getTimeoutMs(), TimeUnit.MILLISECONDS)
+                    .writeTimeout(request.getTimeoutMs(), TimeUnit.MILLISECONDS)
+                    .build();
+        }
+        okhttp3.Request.Builder builder = new okhttp3.Request.Builder().url(request.getUrl());
+        Map<String, String> headers = new HashMap<>(request.getHeaders());
+        headers.putAll(additionalHeaders);
+        for (Map.Entry<String, String> header : headers.entrySet()) {
+            builder.header(header.getKey(), header.getValue());
+        }
+        setMethod(builder, request);
+
+        long sentAt = System.nanoTime();
+        Response response = client.newCall(builder.build()).execute();
+        if (request instanceof Request) {
+            ((Request) request).markFirstByte(sentAt, System.nanoTime());
+        }
+
+        //Volley only looks at the status code, HurlStack says HTTP/1.1 for everything too
+        BasicHttpResponse httpResponse = new BasicHttpResponse(
+                new BasicStatusLine(new ProtocolVersion("HTTP", 1, 1), response.code(), response.message()));
+        httpResponse.setEntity(entity(response.body()));
+        Headers responseHeaders = response.headers();
+        for (int i = 0; i < responseHeaders.size(); i++) {
+            httpResponse.addHeader(new BasicHeader(responseHeaders.name(i), responseHeaders.value(i)));
+        }
+        return httpResponse;
+    }
+
+    private static BasicHttpEntity entity(ResponseBody body) {
+        BasicHttpEntity entity = new BasicHttpEntity();
+        entity.setContent(body.byteStream());
+        entity.setContentLength(body.contentLength());
+        if (body.contentType() != null) {
+            entity.setContentType(body.contentType().toString());
+        }
+        return entity;
+    }
+
+    private static void setMethod(okhttp3.Request.Builder builder, com.android.volley.Request<?> request)
+            throws AuthFailureError {
+        switch (request.getMethod()) {
+            case com.android.volley.Request.Method.DEPRECATED_GET_OR_POST:
+                byte[] postBody = request.getPostBody();
+                if (postBody != null) {
+                    builder.post(RequestBody.create(MediaType.parse(request.getPostBodyContentType()), postBody));
+                }
+                break;
+            case com.android.volley.Request.Method.GET:
+                builder.get();
+                break;
+            case com.android.volley.Request.Method.DELETE:
+                builder.delete();
+                break;
+            case com.android.volley.Request.Method.POST:
+                builder.post(body(request));
+                break;
+            case com.android.volley.Request.Method.PUT:
+                builder.put(body(request));
+                break;
+            case com.android.volley.Request.Method.HEAD:
+                builder.head();
+                break;
+            case com.android.volley.Request.Method.OPTIONS:
+                builder.method("OPTIONS", null);
+                break;
+            case com.android.volley.Request.Method.TRACE:
+                builder.method("TRACE", null);
+                break;
+            case com.android.volley.Request.Method.PATCH:
+                builder.patch(body(request));
+                break;
+            default:
+                throw new IllegalStateException("Unknown method type.");
+        }
+    }
+
+    private static RequestBody body(com.android.volley.Request<?> request) throws AuthFailureError {
+        byte[] body = request.getBody();
+        return RequestBody.create(MediaType.parse(request.getBodyContentType()), body == null ? new byte[0] : body);
+    }
+}
@@ -16,9 +16,11 @@ import com.directdev.portal.tools.model.Outlines;
 import com.directdev.portal.tools.model.People;
 import com.directdev.portal.tools.model.Resource;
 import com.directdev.portal.tools.model.Schedule;
+import com.directdev.portal.tools.model.SyncState;
 import com.directdev.portal.tools.model.Terms;
 import com.directdev.portal.tools.model.Textbook;
 import com.directdev.portal.tools.model.assignment;
+import com.directdev.portal.tools.sync.Trace;
 import com.google.android.gms.analytics.GoogleAnalytics;
 import com.google.android.gms.analytics.Tracker;
 
@@ -43,8 +45,14 @@ public class Portal extends Application {
         Fabric.with(this, new Crashlytics());
         instance = this;
 
-        RealmConfiguration realmConfiguration = new RealmConfiguration.Builder(this).build();
+        RealmConfiguration realmConfiguration = new RealmConfiguration.Builder(this)
+                .schemaVersion(PortalMigration.SCHEMA_VERSION)
+                .migration(new PortalMigration())
+                .build();
         Realm.setDefaultConfiguration(realmConfiguration);
+
+        //Opt-in, writes a Chrome trace of every refresh to files/traces, see Trace
+        Trace.setEnabled(Pref.read(this, R.string.trace_refresh_pref, false));
         //TODO: Delete below when going live
 
     }
@@ -76,6 +84,7 @@ public class Portal extends Application {
         realm.clear(People.class);
         realm.clear(Resource.class);
         realm.clear(Schedule.class);
+        realm.clear(SyncState.class);
         realm.clear(Terms.class);
         realm.clear(Textbook.class);
         realm.clear(assignment.class);
@@ -84,5 +93,7 @@ public class Portal extends Application {
         File dir = getFilesDir();
         File file = new File(dir, getString(R.string.resource_photo));
         boolean deleted = file.delete();
+
+        VolleySingleton.getInstance(this).clearCache();
     }
 }
\ No newline at end of file
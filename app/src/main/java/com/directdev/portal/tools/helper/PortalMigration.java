@@ -0,0 +1,49 @@
+package com.directdev.portal.tools.helper;
+
+import io.realm.DynamicRealm;
+import io.realm.FieldAttribute;
+import io.realm.RealmMigration;
+import io.realm.RealmSchema;
+
+/**
+ * Upgrades the Realm file of older versions of Portal. Everything in Realm can be downloaded again,
+ * so when old data can't be converted it is simply cleared and the next refresh fills it back.
+ *
+ * Every time a model in tools.model changes, bump SCHEMA_VERSION and add a step below.
+ */
+public class PortalMigration implements RealmMigration {
+    public static final long SCHEMA_VERSION = 3;
+
+    @Override
+    public void migrate(DynamicRealm realm, long oldVersion, long newVersion) {
+        RealmSchema schema = realm.getSchema();
+
+        //Version 1: SyncState is added, and Grades now keeps the term it belongs to
+        if (oldVersion == 0) {
+            schema.create("SyncState")
+                    .addField("key", String.class, FieldAttribute.PRIMARY_KEY)
+                    .addField("fetchedAt", long.class)
+                    .addField("finalised", boolean.class);
+            realm.clear("Grades");
+            realm.clear("GradesCourse");
+            oldVersion++;
+        }
+
+        //Version 2: Schedule, Exam and Finance get a primary key so they can be updated instead of replaced
+        if (oldVersion == 1) {
+            for (String className : new String[]{"Schedule", "Exam", "Finance"}) {
+                realm.clear(className);
+                schema.get(className).addField("id", String.class, FieldAttribute.PRIMARY_KEY);
+            }
+            //Journal dates without anything on them would show up empty until the next refresh
+            realm.clear("Dates");
+            oldVersion++;
+        }
+
+        //Version 3: SyncState remembers the digest of the last saved response
+        if (oldVersion == 2) {
+            schema.get("SyncState").addField("digest", String.class);
+            oldVersion++;
+        }
+    }
+}
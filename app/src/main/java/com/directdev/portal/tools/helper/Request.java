@@ -4,37 +4,120 @@ import android.content.Context;
 
 import com.android.volley.AuthFailureError;
 import com.android.volley.DefaultRetryPolicy;
+import com.android.volley.NetworkResponse;
+import com.android.volley.RequestQueue;
 import com.android.volley.Response;
+import com.android.volley.toolbox.HttpHeaderParser;
 import com.android.volley.toolbox.StringRequest;
 import com.directdev.portal.R;
+import com.directdev.portal.tools.sync.Trace;
 
+import java.io.UnsupportedEncodingException;
 import java.util.HashMap;
 import java.util.Map;
 
 
 public class Request extends StringRequest {
     private String cookie;
+    //Volley sends requests of a higher priority first, see UpdateService.enqueue()
+    private Priority priority = Priority.NORMAL;
+    private volatile int responseBytes;
+    //System.nanoTime() of the last attempt, set by TimingHurlStack, 0 when it never went to the network
+    private volatile long sentAt;
+    private volatile long firstByteAt;
+    private volatile long receivedAt;
 
-    private Request(Context ctx, String url, Response.Listener<String> listener, Response.ErrorListener errorListener) {
-        super(Method.GET, url, listener, errorListener);
-        this.cookie = Pref.read(ctx, R.string.login_cookie_pref, "");
+    private Request(String cookie, String url, Response.Listener<String> listener, Response.ErrorListener errorListener) {
+        super(Method.GET, BaseUrl.resolve(url), listener, errorListener);
+        this.cookie = cookie;
     }
 
+    //Volley doesn't retry, UpdateService does it with a backoff (see UpdateService.await())
     public static Request create(Context ctx, String url, Response.Listener<String> listener, Response.ErrorListener error) {
-        Request request =  new Request(ctx, url, listener,error);
-        request.setRetryPolicy(new DefaultRetryPolicy(30000, DefaultRetryPolicy.DEFAULT_MAX_RETRIES, DefaultRetryPolicy.DEFAULT_BACKOFF_MULT));
+        return create(Pref.read(ctx, R.string.login_cookie_pref, ""), url, listener, error);
+    }
+
+    static Request create(String cookie, String url, Response.Listener<String> listener, Response.ErrorListener error) {
+        Request request =  new Request(cookie, url, listener,error);
+        request.setRetryPolicy(new DefaultRetryPolicy(30000, 0, DefaultRetryPolicy.DEFAULT_BACKOFF_MULT));
         return request;
     }
 
+    /**
+     * Adds a request that is sent again after the session was renewed. Whatever is cached for its
+     * url is dropped first, otherwise Volley could answer it from the cache with the same response
+     * that came back signed out.
+     */
+    public static void resend(RequestQueue queue, Request request) {
+        queue.getCache().remove(request.getCacheKey());
+        queue.add(request);
+    }
+
     @Override
     public Map<String, String> getHeaders() throws AuthFailureError {
         HashMap<String, String> headers = new HashMap<>();
         headers.put("Cookie", cookie);
-        headers.put("Referer", "https://newbinusmaya.binus.ac.id/newStudent/index.html");
+        headers.put("Referer", BaseUrl.resolve(BaseUrl.BINUSMAYA + "/newStudent/index.html"));
         return headers;
 
     }
 
+    /**
+     * Same as StringRequest, except that the cache entry comes from ValidatorCache. On a 304 Volley
+     * passes the cached body in here, so the listener gets the same string as last time.
+     */
+    @Override
+    protected Response<String> parseNetworkResponse(NetworkResponse response) {
+        responseBytes = response.data.length;
+        receivedAt = System.nanoTime();
+        if (sentAt != 0 && Trace.isEnabled()) {
+            String url = getUrl();
+            Trace.complete("fetch", url.startsWith(BaseUrl.get()) ? url.substring(BaseUrl.get().length()) : url,
+                    sentAt, receivedAt);
+        }
+        String parsed;
+        try {
+            parsed = new String(response.data, HttpHeaderParser.parseCharset(response.headers));
+        } catch (UnsupportedEncodingException e) {
+            parsed = new String(response.data);
+        }
+        return Response.success(parsed, ValidatorCache.entryFor(response, parsed, System.currentTimeMillis(), ValidatorCache.getMaxAge()));
+    }
+
+    //The login_cookie_pref it was made with, to tell whether the session was renewed since
+    public String getCookie() {
+        return cookie;
+    }
+
+    @Override
+    public Priority getPriority() {
+        return priority;
+    }
+
+    public void setPriority(Priority priority) {
+        this.priority = priority;
+    }
+
+    //Size of the body, or of the cached body on a 304, 0 until the response arrived
+    public int getResponseBytes() {
+        return responseBytes;
+    }
+
+    void markFirstByte(long sentAt, long firstByteAt) {
+        this.sentAt = sentAt;
+        this.firstByteAt = firstByteAt;
+    }
+
+    //From sending the request to the status line and headers of the response
+    public long getFirstByteNanos() {
+        return sentAt == 0 ? 0 : firstByteAt - sentAt;
+    }
+
+    //From sending the request to having the whole body
+    public long getDownloadNanos() {
+        return sentAt == 0 || receivedAt < sentAt ? 0 : receivedAt - sentAt;
+    }
+
     @Override
     protected Map<String, String> getParams() throws AuthFailureError {
         return super.getParams();
@@ -0,0 +1,27 @@
+package com.directdev.portal.tools.helper;
+
+import com.android.volley.AuthFailureError;
+import com.android.volley.toolbox.HurlStack;
+
+import org.apache.http.HttpResponse;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * HurlStack that tells our Requests when they were sent and when the first byte of the response came
+ * back. HurlStack returns as soon as the status line and headers are read, the body is read by Volley
+ * afterwards, so the time performRequest takes is the time to first byte.
+ */
+public class TimingHurlStack extends HurlStack {
+    @Override
+    public HttpResponse performRequest(com.android.volley.Request<?> request, Map<String, String> additionalHeaders)
+            throws IOException, AuthFailureError {
+        long sentAt = System.nanoTime();
+        HttpResponse response = super.performRequest(request, additionalHeaders);
+        if (request instanceof Request) {
+            ((Request) request).markFirstByte(sentAt, System.nanoTime());
+        }
+        return response;
+    }
+}
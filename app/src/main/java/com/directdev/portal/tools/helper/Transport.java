@@ -0,0 +1,49 @@
+package com.directdev.portal.tools.helper;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.ConnectionPool;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+
+/**
+ * The OkHttpClient that the requests to Binusmaya go through (see OkHttpStack, which puts it under
+ * Volley, and ConnectionWarmer). There is one for the whole app, so every request shares its pool:
+ *
+ * - Idle connections are kept alive for KEEP_ALIVE_MINUTES and reused by the next request, up to
+ * MAX_IDLE_CONNECTIONS of them, which is more than Volley sends at the same time (see
+ * VolleySingleton.networkThreads).
+ * - HTTP/2 is negotiated with ALPN where the server and Android (5.0 and up) support it, every
+ * request then is a stream on one connection. Otherwise it is HTTP/1.1 with a connection per request
+ * in flight.
+ * - Responses are asked for gzipped and unzipped on the way, the Requests get the plain body.
+ */
+public class Transport {
+    public static final int MAX_IDLE_CONNECTIONS = 8;
+    public static final long KEEP_ALIVE_MINUTES = 5;
+    private static final long TIMEOUT_SECONDS = 30;
+
+    private static volatile OkHttpClient client;
+
+    public static OkHttpClient get() {
+        if (client == null) {
+            synchronized (Transport.class) {
+                if (client == null) {
+                    client = create();
+                }
+            }
+        }
+        return client;
+    }
+
+    private static OkHttpClient create() {
+        return new OkHttpClient.Builder()
+                .connectionPool(new ConnectionPool(MAX_IDLE_CONNECTIONS, KEEP_ALIVE_MINUTES, TimeUnit.MINUTES))
+                .protocols(Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1))
+                .connectTimeout(TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                .readTimeout(TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                .writeTimeout(TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                .build();
+    }
+}
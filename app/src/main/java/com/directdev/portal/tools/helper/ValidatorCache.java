@@ -0,0 +1,102 @@
+package com.directdev.portal.tools.helper;
+
+import com.android.volley.Cache;
+import com.android.volley.NetworkResponse;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decides how responses of Request are kept in the Volley disk cache. Binusmaya marks everything as
+ * no-cache, so Volley's own HttpHeaderParser would never cache anything.
+ *
+ * Responses with an ETag or Last-Modified are always revalidated, Volley then sends If-None-Match
+ * and If-Modified-Since, and a 304 gives back the cached body without downloading it again. Since
+ * that body is the same as last time, UpdateService sees the same digest and skips the ingestion.
+ * Responses without validators are reused for maxAge without asking the server at all.
+ *
+ * Only JSON is cached. When the session ran out the services answer with the login page (see
+ * LoginClient.looksSignedOut()), and other failures come back as HTML too, those are never cached,
+ * so the next request goes to the network again.
+ */
+public class ValidatorCache {
+    public static final long DEFAULT_MAX_AGE = TimeUnit.MINUTES.toMillis(5);
+    private static final String HTTP_DATE = "EEE, dd MMM yyyy HH:mm:ss zzz";
+
+    private static volatile long maxAge = DEFAULT_MAX_AGE;
+
+    //0 turns the fallback off, responses without validators are then not cached at all
+    public static void setMaxAge(long millis) {
+        maxAge = millis;
+    }
+
+    public static long getMaxAge() {
+        return maxAge;
+    }
+
+    /**
+     * The cache entry for the response, or null if it shouldn't be cached. body is the response as
+     * the Request parsed it.
+     */
+    static Cache.Entry entryFor(NetworkResponse response, String body, long now, long maxAge) {
+        if (LoginClient.looksSignedOut(body) || !isJson(body)) {
+            return null;
+        }
+        Map<String, String> headers = response.headers;
+        Cache.Entry entry = new Cache.Entry();
+        entry.data = response.data;
+        entry.responseHeaders = headers;
+        entry.etag = headers.get("ETag");
+        entry.lastModified = parseDate(headers.get("Last-Modified"));
+        entry.serverDate = parseDate(headers.get("Date"));
+
+        if (entry.etag != null || entry.lastModified > 0) {
+            //Expired right away, so every request asks the server with the validators
+            entry.ttl = 0;
+            entry.softTtl = 0;
+        } else if (maxAge > 0) {
+            entry.ttl = now + maxAge;
+            entry.softTtl = entry.ttl;
+        } else {
+            return null;
+        }
+        return entry;
+    }
+
+    //Reads through the body without building anything, the parsing itself is done by ResponseParser
+    static boolean isJson(String body) {
+        JsonReader reader = new JsonReader(new StringReader(body));
+        try {
+            JsonToken first = reader.peek();
+            if (first != JsonToken.BEGIN_ARRAY && first != JsonToken.BEGIN_OBJECT) {
+                return false;
+            }
+            reader.skipValue();
+            return reader.peek() == JsonToken.END_DOCUMENT;
+        } catch (IOException | IllegalStateException e) {
+            return false;
+        }
+    }
+
+    static long parseDate(String date) {
+        if (date == null) {
+            return 0;
+        }
+        //SimpleDateFormat isn't thread safe and responses are parsed on every network thread
+        SimpleDateFormat format = new SimpleDateFormat(HTTP_DATE, Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone("GMT"));
+        try {
+            return format.parse(date).getTime();
+        } catch (ParseException e) {
+            return 0;
+        }
+    }
+}
@@ -3,8 +3,12 @@ package com.directdev.portal.tools.model;
 import java.util.Date;
 
 import io.realm.RealmObject;
+import io.realm.annotations.PrimaryKey;
 
 public class Exam extends RealmObject {
+    //See RowFormats.EXAM
+    @PrimaryKey
+    private String id;
     private String DESCR;
     private String KDMTK;
     private Date ExamDate;
@@ -14,6 +18,14 @@ public class Exam extends RealmObject {
     private String ChairNumber;
     private String COURSE_TITLE_LONG;
 
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
     public String getCOURSE_TITLE_LONG() {
         return COURSE_TITLE_LONG;
     }
@@ -3,8 +3,12 @@ package com.directdev.portal.tools.model;
 import java.util.Date;
 
 import io.realm.RealmObject;
+import io.realm.annotations.PrimaryKey;
 
 public class Finance extends RealmObject {
+    //See RowFormats.FINANCE
+    @PrimaryKey
+    private String id;
     private Date DUE_DT;
     private Date ITEM_EFFECTIVE_DT;
     private String ITEM_TERM;
@@ -13,6 +17,14 @@ public class Finance extends RealmObject {
     private int ITEM_AMT;
     private String ITEM_NBR;
 
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
     public String getITEM_NBR() {
         return ITEM_NBR;
     }
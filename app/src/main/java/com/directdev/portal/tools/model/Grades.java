@@ -1,5 +1,6 @@
 package com.directdev.portal.tools.model;
 
+import com.google.gson.annotations.SerializedName;
 
 import io.realm.RealmObject;
 
@@ -12,6 +13,7 @@ public class Grades extends RealmObject{
     private String score;
     private String grade;
     private String course_grade;
+    @SerializedName(value = "STRM")
     private String strm;
 
     public String getStrm() {
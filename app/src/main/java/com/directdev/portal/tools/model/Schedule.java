@@ -5,10 +5,14 @@ import com.google.gson.annotations.SerializedName;
 import java.util.Date;
 
 import io.realm.RealmObject;
+import io.realm.annotations.PrimaryKey;
 
 
 public class Schedule extends RealmObject {
 
+    //See RowFormats.SCHEDULE
+    @PrimaryKey
+    private String id;
     private String CourseID;
     private String CourseName;
     private Date Date;
@@ -30,6 +34,14 @@ public class Schedule extends RealmObject {
 
     private String Shift;
 
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
     public String getRoom() {
         return Room;
     }
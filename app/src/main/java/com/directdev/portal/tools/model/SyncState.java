@@ -0,0 +1,50 @@
+package com.directdev.portal.tools.model;
+
+import io.realm.RealmObject;
+import io.realm.annotations.PrimaryKey;
+
+/**
+ * Bookkeeping for UpdateService, one row for every part of a dataset that is synced on its own,
+ * eg. "grades/1510" for the grades of the 2015 odd semester.
+ */
+public class SyncState extends RealmObject {
+    @PrimaryKey
+    private String key;
+    private long fetchedAt;
+    //Finalised data never changes on the server anymore, so it doesn't have to be downloaded again
+    private boolean finalised;
+    //See ResponseDigest
+    private String digest;
+
+    public String getKey() {
+        return key;
+    }
+
+    public void setKey(String key) {
+        this.key = key;
+    }
+
+    public long getFetchedAt() {
+        return fetchedAt;
+    }
+
+    public void setFetchedAt(long fetchedAt) {
+        this.fetchedAt = fetchedAt;
+    }
+
+    public boolean isFinalised() {
+        return finalised;
+    }
+
+    public void setFinalised(boolean finalised) {
+        this.finalised = finalised;
+    }
+
+    public String getDigest() {
+        return digest;
+    }
+
+    public void setDigest(String digest) {
+        this.digest = digest;
+    }
+}
@@ -1,30 +1,67 @@
 package com.directdev.portal.tools.services
 
-import android.app.IntentService
+import android.app.Service
 import android.content.Context
 import android.content.Intent
+import android.os.IBinder
 import android.util.Base64
-import com.android.volley.Response
+import android.util.Log
+import com.android.volley.AuthFailureError
+import com.android.volley.NetworkError
+import com.android.volley.Request.Priority
+import com.android.volley.ServerError
+import com.android.volley.TimeoutError
 import com.android.volley.toolbox.RequestFuture
 import com.directdev.portal.R
+import com.directdev.portal.tools.event.JournalUpdateFinishEvent
+import com.directdev.portal.tools.event.LoginFinishEvent
+import com.directdev.portal.tools.event.NotSignedInEvent
 import com.directdev.portal.tools.event.PhotoResponseEvent
 import com.directdev.portal.tools.event.UpdateErrorEvent
 import com.directdev.portal.tools.event.UpdateFailedEvent
 import com.directdev.portal.tools.event.UpdateFinishEvent
 import com.directdev.portal.tools.helper.GsonHelper
+import com.directdev.portal.tools.helper.LoginClient
+import com.directdev.portal.tools.helper.LoginTask
 import com.directdev.portal.tools.helper.Pref
 import com.directdev.portal.tools.helper.Request
 import com.directdev.portal.tools.helper.VolleySingleton
 import com.directdev.portal.tools.model.*
-import com.google.gson.JsonSyntaxException
-import com.google.gson.reflect.TypeToken
+import com.directdev.portal.tools.sync.Backoff
+import com.directdev.portal.tools.sync.CircuitBreaker
+import com.directdev.portal.tools.sync.Dataset
+import com.directdev.portal.tools.sync.DatasetMetrics
+import com.directdev.portal.tools.sync.DigestCheck
+import com.directdev.portal.tools.sync.GroupCommitWriter
+import com.directdev.portal.tools.sync.Pipeline
+import com.directdev.portal.tools.sync.RealmTransactor
+import com.directdev.portal.tools.sync.RefreshHandle
+import com.directdev.portal.tools.sync.ResponseDigest
+import com.directdev.portal.tools.sync.RowDiff
+import com.directdev.portal.tools.sync.RowFormat
+import com.directdev.portal.tools.sync.RowFormats
+import com.directdev.portal.tools.sync.SyncEngine
+import com.directdev.portal.tools.sync.SyncResult
+import com.directdev.portal.tools.sync.StagedWrite
+import com.directdev.portal.tools.sync.SyncResult.Outcome
+import com.directdev.portal.tools.sync.SyncTask
+import com.directdev.portal.tools.sync.Telemetry
+import com.directdev.portal.tools.sync.Trace
+import com.directdev.portal.tools.sync.parse.GradesPage
+import com.directdev.portal.tools.sync.parse.ResponseParser
+import com.google.gson.JsonParseException
 import de.greenrobot.event.EventBus
 import io.realm.Realm
 import io.realm.RealmObject
 import org.json.JSONException
 import org.json.JSONObject
+import java.io.File
+import java.io.IOException
+import java.io.StringReader
 import java.text.SimpleDateFormat
 import java.util.*
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.TimeUnit
 
 /**This uses Kotlin (https://kotlinlang.org/)
  *
@@ -34,63 +71,118 @@ import java.util.*
 
  * How this work:
  * 1. We call either the all() function or specific functions(schedule(),exam()...). These are
- * helper functions.
+ * helper functions, they all end up in refresh().
 
- * 2. The helper function that is called will prepare the intent and set the action(SCHEDULE, EXAM, etc)
- * and then call startService() which will launch the service according to the action specified.
- * A IntentService is a singleton, only one instance of this service will be created, if service already exist
- * and startService() is called, it will be queued. When the service is launched, static field isActive will be
+ * 2. refresh() adds the requested datasets(SCHEDULE, EXAM, etc) to the current RefreshHandle, and
+ * then call startService() with the datasets in the intent. The RefreshHandle is returned to the caller,
+ * so the caller can observe the refresh. When the service is launched, static field isActive will be
  * set to true.
 
- * 3. startService() will start this service and then trigger onHandleIntent(). onHandleIntent() will
- * then look at the action that is set on step 2, and launch the appropriate function(handleSchedule(), handleExam())
+ * 3. startService() will start this service and then trigger onStartCommand(). onStartCommand() hands
+ * the datasets to the SyncEngine, which runs them at the same time on its worker threads. Datasets that
+ * need data from another dataset declare it in Dataset (eg. GRADES needs TERMS), and SyncEngine only
+ * starts them when what they need is saved, if that failed they are skipped. For each dataset handle()
+ * launch the appropriate function(handleSchedule(), handleExam())
 
  * 4. The handle functions(handleExam(), handleSchedule()) will request the data and returns it using
- * future, the data then will be saved into a realm database, if the data failed to be saved (because
+ * future, the data is parsed, and only then saved into a realm database in a short write transaction
+ * that it shares with the other datasets (see GroupCommitWriter), so the Realm write lock is never held
+ * while waiting for the network. If the data
+ * failed to be saved (because
  * session expired or other things that is not the data were sent to us), using EventBus, we send an
  * UpdateFailedEvent which then will be captured by our activity to launch a function that handles this error.
+ * A session that runs out during the refresh is renewed on the way, see await().
 
- * 5. When everything finished (onHandleIntent()chose which handle function to run, run it, receive data,
- * save data to Realm DB), the service will be destroyed by calling onDestroy(), if multiple call to
- * startService() were made, onHandleIntent() will be called again to serve the queued startService()
- * calls until all call is served, and then onDestroy() is called. onDestroy will call EventBus and
- * sent and UpdateFinishEvent, which will then be used to refresh data on the views. Also, isActive
- * will be set to false.
+ * 5. Schedule, exam and finance run first (they are FOREGROUND in Dataset), the other datasets make
+ * way for them. As soon as those three are saved a JournalUpdateFinishEvent is posted, so the journal is
+ * updated without waiting for grades, courses or the photo.
+
+ * 6. When every dataset in the RefreshHandle finished, the service stops itself, which calls onDestroy().
+ * onDestroy will call EventBus and sent and UpdateFinishEvent, which will then be used to refresh data
+ * on the views. Also, isActive will be set to false.
  */
 
-class UpdateService : IntentService("UpdateService") {
-    var photo = " "
+class UpdateService : Service() {
+    @Volatile var photo = " "
+    private var lastStartId = 0
+    private var observed: RefreshHandle? = null
+    /**
+     * What TERMS and COURSE parsed in the observed refresh. GRADES, COURSE and RESOURCES read it
+     * together with Realm (see knownTerms()), so they don't need those writes to be committed first
+     * and an atomic refresh is saved in one transaction.
+     */
+    private val parsedTerms = Collections.synchronizedSet(HashSet<String>())
+    private val parsedCourses = Collections.synchronizedList(ArrayList<Course>())
 
     override fun onCreate() {
         isActive = true
         super.onCreate()
     }
 
+    override fun onBind(intent: Intent?): IBinder? = null
+
     //This get called when startService is called
-    override fun onHandleIntent(intent: Intent?) {
-        if (intent != null) {
-            val action = intent.action
-            if (SCHEDULE == action) {
-                handleSchedule()
-            } else if (EXAM == action) {
-                handleExam()
-            } else if (FINANCE == action) {
-                handleFinance()
-            } else if (GRADES == action) {
-                handleGrades()
-            } else if (TERMS == action) {
-                handleTerms()
-            } else if (COURSE == action) {
-                handleCourse()
-            } else if (ACCOUNT == action) {
-                handleAccount()
-            } else if (RESOURCES == action) {
-                handleResource()
-            } else if (PHOTO == action) {
-                handlePhoto()
-            } else if (GPA == action) {
-                handleGPA()
-            }
+    override fun onStartCommand(intent: Intent?, flags: Int, startId: Int): Int {
+        lastStartId = startId
+        val refresh = current
+        val names = intent?.getStringArrayExtra(EXTRA_DATASETS)
+        if (refresh == null || names == null || refresh.isFinished) {
+            stopSelf(startId)
+            return START_NOT_STICKY
+        }
+        if (observed !== refresh) {
+            observed = refresh
+            parsedTerms.clear()
+            parsedCourses.clear()
+            writer.setAtomic(Pref.read(this, R.string.atomic_refresh_pref, false))
+            refresh.addListener(object : RefreshHandle.Listener {
+                override fun onDatasetFinished(result: SyncResult) {
+                    telemetry(application).record(result)
+                }
+
+                //In atomic mode nothing is saved before the whole refresh is, UpdateFinishEvent is the one then
+                override fun onPriorityFinished(refresh: RefreshHandle, priority: Dataset.Priority) {
+                    if (priority == Dataset.Priority.FOREGROUND && !writer.isAtomic && !refresh.isCancelled) {
+                        flushWrites()
+                        EventBus.getDefault().post(JournalUpdateFinishEvent())
+                    }
+                }
+
+                override fun onRefreshFinished(refresh: RefreshHandle) {
+                    if (refresh.isCancelled) {
+                        //When a new refresh took over, what is held now is its writes, see refresh()
+                        if (refresh === current) {
+                            writer.discard()
+                        }
+                    } else {
+                        flushWrites()
+                    }
+                    writeTrace()
+                    LoginTask.saveLifetime(this@UpdateService)
+                    //A new refresh may have been started in the meantime, it stops the service when it is done
+                    if (refresh === current) {
+                        stopSelf(lastStartId)
+                    }
+                }
+            })
+        }
+        engine.submit(refresh, names.map { Dataset.valueOf(it) }, SyncTask { handle(it) })
+        return START_NOT_STICKY
+    }
+
+    private fun handle(dataset: Dataset): Outcome {
+        renewIfExpiring()
+        return when (dataset) {
+            Dataset.SCHEDULE -> handleSchedule()
+            Dataset.EXAM -> handleExam()
+            Dataset.FINANCE -> handleFinance()
+            Dataset.GRADES -> handleGrades()
+            Dataset.TERMS -> handleTerms()
+            Dataset.COURSE -> handleCourse()
+            Dataset.ACCOUNT -> handleAccount()
+            Dataset.RESOURCES -> handleResource()
+            Dataset.PHOTO -> handlePhoto()
+            Dataset.GPA -> handleGPA()
         }
     }
 
@@ -102,30 +194,27 @@ class UpdateService : IntentService("UpdateService") {
      * ==================================================================================================================================
      */
 
-    private fun handleSchedule() {
+    private fun handleSchedule(): Outcome {
         //Call the API url, and receives the data as string
         val response = bimayApiCall(getString(R.string.request_schedule))
+        return digests.sync(responseKey(Dataset.SCHEDULE), response, DigestCheck.Ingest { digest ->
+            //if data returned is not empty
+            if (response != "[]") {
+                try {
+                    //Turn the response(Which is a JSONArray) to a list of object(Here it is the Schedule and Dates Objects)
+                    val schedules = parsing { parser.schedules(StringReader(response)) }
+
+                    //And save the list objects to realm
+                    ingest(Schedule::class.java, RowFormats.SCHEDULE, schedules.rows, schedules.dates, Dataset.SCHEDULE, digest)
+
+                } catch (e: JsonParseException) {
+                    isSuccess = false
+                    return@Ingest dataParsingError("Schedule")
+                }
 
-        //if data returned is not empty
-        if (response != "[]") {
-            try {
-                //Turn the response(Which is a JSONArray) to a list of object(Here it is the Schedule and Dates Objects)
-                val schedules = GsonHelper.create().fromJson<List<Schedule>>(response, object : TypeToken<List<Schedule>>() {
-
-                }.type)
-                val dates = GsonHelper.create().fromJson<List<Dates>>(response, object : TypeToken<List<Dates>>() {
-
-                }.type)
-
-                //And save the list objects that is return by Gson to realm
-                insertToRealm(Schedule::class.java, schedules, dates)
-
-            } catch (e: JsonSyntaxException) {
-                isSuccess = false
-                dataParsingError("Schedule")
             }
-
-        }
+            Outcome.SUCCESS
+        })
     }
 
     /**==================================================================================================================================
@@ -133,22 +222,18 @@ class UpdateService : IntentService("UpdateService") {
      * ==================================================================================================================================
      */
 
-    private fun handleExam() {
+    private fun handleExam(): Outcome {
         val response = bimayApiCall(getString(R.string.request_exam))
+        return digests.sync(responseKey(Dataset.EXAM), response, DigestCheck.Ingest { digest ->
+            try {
+                val exams = parsing { parser.exams(StringReader(response)) }
 
-        try {
-            val exams = GsonHelper.create().fromJson<List<Exam>>(response, object : TypeToken<List<Exam>>() {
-
-            }.type)
-            val dates = GsonHelper.create().fromJson<List<Dates>>(response, object : TypeToken<List<Dates>>() {
-
-            }.type)
-
-            insertToRealm(Exam::class.java, exams, dates)
-        } catch (e: JsonSyntaxException) {
-            dataParsingError("Exam")
-        }
-
+                ingest(Exam::class.java, RowFormats.EXAM, exams.rows, exams.dates, Dataset.EXAM, digest)
+            } catch (e: JsonParseException) {
+                return@Ingest dataParsingError("Exam")
+            }
+            Outcome.SUCCESS
+        })
     }
 
 
@@ -157,31 +242,22 @@ class UpdateService : IntentService("UpdateService") {
      * ==================================================================================================================================
      */
 
-    private fun handleFinance() {
-        val data: String
+    private fun handleFinance(): Outcome {
         val response = bimayApiCall(getString(R.string.request_finance))
-
-        try {
-            /**
-             * Finance data is structured like this {"Status":[*Data that we want*]}. The GSON requires
-             * the JSONArray of the *Data that we want* to turn it into a List of object(List).
-             * So we have to get the JSONArray out of the "Status" property of the JSONObject
-             */
-            val finance = JSONObject(response)
-            data = finance.getJSONArray("Status").toString()
-
-            val finances = GsonHelper.create().fromJson<List<Finance>>(data, object : TypeToken<List<Finance>>() {
-
-            }.type)
-            val dates = GsonHelper.create().fromJson<List<Dates>>(data, object : TypeToken<List<Dates>>() {
-
-            }.type)
-
-            insertToRealm(Finance::class.java, finances, dates)
-        } catch (e: JSONException) {
-            dataParsingError("Finance")
-        }
-
+        return digests.sync(responseKey(Dataset.FINANCE), response, DigestCheck.Ingest { digest ->
+            try {
+                /**
+                 * Finance data is structured like this {"Status":[*Data that we want*]}, the parser reads
+                 * the elements straight out of the "Status" property
+                 */
+                val finances = parsing { parser.finances(StringReader(response)) }
+
+                ingest(Finance::class.java, RowFormats.FINANCE, finances.rows, finances.dates, Dataset.FINANCE, digest)
+            } catch (e: JsonParseException) {
+                return@Ingest dataParsingError("Finance")
+            }
+            Outcome.SUCCESS
+        })
     }
 
 
@@ -208,42 +284,61 @@ class UpdateService : IntentService("UpdateService") {
      * 1430 = 2014 Short Semester
      * 1510 = 2015 Odd Semester
 
-     * All those final links must be called one by one.
+     * All those final links are requested at the same time (at most fetchParallelism of them), and go
+     * through a Pipeline as they arrive: while one term downloads, the term before it is parsed and the
+     * one before that is written. Every term is saved in its own short transaction.
+
+     * Grades of past terms don't change anymore once every course has its final grade, those terms are
+     * marked as finalised in SyncState and are not requested again. Only the latest term and terms that
+     * are not finalised yet are downloaded. A term is only rewritten when its response differs from the
+     * one saved last time (see DigestCheck), a past term with the same response is only parsed to see
+     * whether it can be marked as finalised now. When no term changed the dataset is NOT_MODIFIED.
      */
-    private fun handleGrades() {
-        val realm = Realm.getDefaultInstance()
+    private fun handleGrades(): Outcome {
+        val terms = knownTerms()
+        val latest = terms.max()
+        val open = read { realm -> terms.filter { it == latest || !isFinalised(realm, gradesKey(it)) } }
+        //A term with its response, then with its parsed grades
+        val pipeline = Pipeline<Realm, TermResponse, Pair<TermResponse, GradesPage>>(writer,
+                Pipeline.Parse<TermResponse, Pair<TermResponse, GradesPage>> {
+                    Pair(it, parsing { parser.grades(StringReader(it.response), it.term) })
+                },
+                Pipeline.Persist<Realm, Pair<TermResponse, GradesPage>> { parsed ->
+                    val term = parsed.first.term
+                    val digest = parsed.first.digest
+                    val page = parsed.second
+                    val finalised = term != latest && !page.grades.isEmpty() &&
+                            page.grades.all { !it.course_grade.isNullOrBlank() }
+                    //The grades are saved already, the term is only marked when it is finalised now
+                    if (parsed.first.unchanged) {
+                        return@Persist if (finalised) StagedWrite<Realm> { realm -> saveSyncState(realm, gradesKey(term), true, digest) } else null
+                    }
+                    //Counted here, the write itself runs on the writer thread
+                    DatasetMetrics.recordRows(page.grades.size + page.courses.size)
+                    StagedWrite<Realm> { realm ->
+                        realm.where(Grades::class.java).equalTo("strm", term).findAll().clear()
+                        realm.where(GradesCourse::class.java).equalTo("STRM", term).findAll().clear()
+                        realm.copyToRealm(page.grades)
+                        realm.copyToRealmOrUpdate(page.courses)
+                        saveSyncState(realm, gradesKey(term), finalised, digest)
+                    }
+                })
+        var changed = open.isEmpty()
         try {
-            val terms = realm.where(Terms::class.java).findAll()
-            realm.beginTransaction()
-            realm.clear(Grades::class.java)
-            realm.clear(GradesCourse::class.java)
-            for (term in terms) {
-                val data: String
-                val response = bimayApiCall(getString(R.string.request_grades) + term.value)
-
-                val arrays = JSONObject(response).getJSONArray("score")
-                for (j in 0..arrays.length() - 1) {
-                    arrays.getJSONObject(j).put("STRM", term.value)
+            fetchEach(getString(R.string.request_grades), open.map { getString(R.string.request_grades) + it }) { i, response ->
+                val digest = ResponseDigest.of(response)
+                val unchanged = digests.isUnchanged(gradesKey(open[i]), digest)
+                changed = changed || !unchanged
+                //An unchanged past term is still parsed, its grades may all be final by now
+                if (!unchanged || open[i] != latest) {
+                    pipeline.submit(TermResponse(open[i], response, digest, unchanged))
                 }
-                data = arrays.toString()
-                val grades = GsonHelper.create().fromJson<List<Grades>>(data, object : TypeToken<List<Grades>>() {
-
-                }.type)
-                val course = GsonHelper.create().fromJson<List<GradesCourse>>(data, object : TypeToken<List<GradesCourse>>() {
-
-                }.type)
-
-                realm.copyToRealm(grades)
-                realm.copyToRealmOrUpdate(course)
             }
-            realm.commitTransaction()
-
-
-        } catch (e: JSONException) {
-            dataParsingError("Grades")
-        } finally {
-            realm.close()
+            pipeline.finish()
+        } catch (e: JsonParseException) {
+            return dataParsingError("Grades")
         }
+        return if (changed) Outcome.SUCCESS else Outcome.NOT_MODIFIED
     }
 
 
@@ -252,22 +347,22 @@ class UpdateService : IntentService("UpdateService") {
      * ==================================================================================================================================
      */
 
-    private fun handleTerms() {
+    private fun handleTerms(): Outcome {
         val response = bimayApiCall(getString(R.string.request_terms))
-
-        try {
-            val terms = GsonHelper.create().fromJson<List<Terms>>(response, object : TypeToken<List<Terms>>() {
-
-            }.type)
-            val realm = Realm.getDefaultInstance()
-            realm.beginTransaction()
-            realm.copyToRealmOrUpdate(terms)
-            realm.commitTransaction()
-            realm.close()
-        } catch (e: JsonSyntaxException) {
-            dataParsingError("Terms")
-        }
-
+        return digests.sync(responseKey(Dataset.TERMS), response, DigestCheck.Ingest { digest ->
+            try {
+                val terms = parsing { parser.terms(StringReader(response)) }
+                parsedTerms.addAll(terms.map { it.value })
+                writer.commit(StagedWrite<Realm> { realm ->
+                    realm.copyToRealmOrUpdate(terms)
+                    saveDigest(realm, Dataset.TERMS, digest)
+                })
+                DatasetMetrics.recordRows(terms.size)
+            } catch (e: JsonParseException) {
+                return@Ingest dataParsingError("Terms")
+            }
+            Outcome.SUCCESS
+        })
     }
 
 
@@ -276,36 +371,30 @@ class UpdateService : IntentService("UpdateService") {
      * ==================================================================================================================================
      */
 
-    private fun handleCourse() {
-        val realm = Realm.getDefaultInstance()
+    private fun handleCourse(): Outcome {
+        //Courses of a term don't change, so only terms that have no course saved yet are requested
+        val terms = knownTerms()
+        val parsed = synchronized(parsedCourses) { parsedCourses.map { it.strm }.toHashSet() }
+        val missing = read { realm ->
+            terms.filter {
+                !parsed.contains(it) && realm.where(Course::class.java).equalTo("STRM", it).count() == 0L
+            }
+        }
         try {
-            val terms = realm.where(Terms::class.java).findAll()
-            realm.beginTransaction()
-            for (term in terms) {
-                val course = realm.where(Course::class.java).equalTo("STRM", term.value).findAll()
-                if (course.isEmpty()) {
-                    val data: String
-                    val response = bimayApiCall(getString(R.string.request_course) + term.value)
-
-                    val arrays = JSONObject(response).getJSONArray("Courses")
-                    for (j in 0..arrays.length() - 1) {
-                        arrays.getJSONObject(j).put("STRM", term.value)
-                    }
-                    data = arrays.toString()
-
-                    val courses = GsonHelper.create().fromJson<List<Course>>(data, object : TypeToken<List<Course>>() {
-
-                    }.type)
+            val responses = bimayApiCalls(getString(R.string.request_course), missing.map { getString(R.string.request_course) + it })
 
-                    realm.copyToRealmOrUpdate(courses)
-                }
+            val courses = ArrayList<Course>()
+            for ((i, response) in responses.withIndex()) {
+                courses.addAll(parsing { parser.courses(StringReader(response), missing[i]) })
             }
-            realm.commitTransaction()
-        } catch (e: JSONException) {
-            dataParsingError("Course")
-        } finally {
-            realm.close()
+
+            parsedCourses.addAll(courses)
+            writer.commit(StagedWrite<Realm> { realm -> realm.copyToRealmOrUpdate(courses) })
+            DatasetMetrics.recordRows(courses.size)
+        } catch (e: JsonParseException) {
+            return dataParsingError("Course")
         }
+        return Outcome.SUCCESS
     }
 
 
@@ -314,7 +403,7 @@ class UpdateService : IntentService("UpdateService") {
      * ==================================================================================================================================
      */
 
-    private fun handleAccount() {
+    private fun handleAccount(): Outcome {
         val response = bimayApiCall(getString(R.string.request_student_info))
 
         try {
@@ -331,8 +420,9 @@ class UpdateService : IntentService("UpdateService") {
                 this.photo = photo
             }
         } catch (e: JSONException) {
-            dataParsingError("Account")
+            return dataParsingError("Account")
         }
+        return Outcome.SUCCESS
 
     }
 
@@ -342,7 +432,7 @@ class UpdateService : IntentService("UpdateService") {
      * ==================================================================================================================================
      */
 
-    private fun handlePhoto() {
+    private fun handlePhoto(): Outcome {
         if (existNewPhoto) {
             val response = bimayApiCall(getString(R.string.request_photo))
             try {
@@ -356,10 +446,11 @@ class UpdateService : IntentService("UpdateService") {
                 EventBus.getDefault().post(PhotoResponseEvent())
                 Pref.save(this, getString(R.string.resource_small_photo), this.photo)
             } catch (e: Exception) {
-                dataParsingError("Photo")
+                return dataParsingError("Photo")
             }
 
         }
+        return Outcome.SUCCESS
     }
 
 
@@ -367,93 +458,140 @@ class UpdateService : IntentService("UpdateService") {
      * ===========================================Retrieves Main GPA=====================================================================
      * ==================================================================================================================================
      */
-    private fun handleGPA() {
+    private fun handleGPA(): Outcome {
         val response = bimayApiCall(getString(R.string.request_dashboard))
-
-        try {
-            var data4 = "-.-"
+        return digests.sync(responseKey(Dataset.GPA), response, DigestCheck.Ingest { digest ->
             try {
-                data4 = JSONObject(response).getJSONObject("WidgetData").getJSONArray("GPA").getJSONObject(0).getString("GPA").substring(0, 3)
-            } catch (e: StringIndexOutOfBoundsException) {
-                data4 = "N/A"
-            } finally {
-                Pref.save(this, getString(R.string.resource_gpa), data4)
+                var data4 = "-.-"
+                try {
+                    data4 = JSONObject(response).getJSONObject("WidgetData").getJSONArray("GPA").getJSONObject(0).getString("GPA").substring(0, 3)
+                } catch (e: StringIndexOutOfBoundsException) {
+                    data4 = "N/A"
+                } finally {
+                    Pref.save(this, getString(R.string.resource_gpa), data4)
+                }
+            } catch (e: JSONException) {
+                return@Ingest dataParsingError("GPA")
             }
-        } catch (e: JSONException) {
-            dataParsingError("GPA")
-        }
-
+            writer.commit(StagedWrite<Realm> { realm -> saveDigest(realm, Dataset.GPA, digest) })
+            Outcome.SUCCESS
+        })
     }
 
 
     /**==================================================================================================================================
      * ===========================================Retrieves Course Resources data========================================================
      * ==================================================================================================================================
-     */
 
-    private fun handleResource() {
-        val realm = Realm.getDefaultInstance()
-        val courses = realm.where(Course::class.java).findAll()
-        var shouldUpdate = false
-        for (course in courses) {
-            val resources = realm.where(Resource::class.java).equalTo("description", course.courseid).findAll()
-            if (resources.isEmpty()) {
-                shouldUpdate = true
-                break
-            }
-        }
-        if (shouldUpdate) {
-            try {
-                realm.beginTransaction()
-                realm.clear(Resource::class.java)
-                for (course in courses) {
-                    val data: String
-                    val url = (getString(R.string.request_resources)
-                    +course.courseid + "/"
-                    +course.crsE_ID + "/"
-                    +course.strm + "/"
-                    +course.ssR_COMPONENT + "/"
-                    +course.clasS_NBR)
-                    val response = bimayApiCall(url)
-                    val `object` = JSONObject(response)
-                    val pathArray = `object`.getJSONArray("Path")
-                    if (pathArray.length() != 0) {
-                        val sessionArray = `object`.getJSONArray("Resources")
-                        for (i in 0..pathArray.length() - 1) {
-                            pathArray.getJSONObject(i).put("description", course.courseid)
-                            for (j in 0..sessionArray.length() - 1) {
-                                if (sessionArray.getJSONObject(j).getInt("courseOutlineTopicID") == pathArray.getJSONObject(i).getInt("courseOutlineTopicID")) {
-                                    pathArray.getJSONObject(i).put("courseOutlineTopicID", sessionArray.getJSONObject(j).getString("sessionIDNUM"))
-                                    break
-                                }
-                            }
-                        }
-                        data = pathArray.toString()
-                        val resources = GsonHelper.create().fromJson<List<Resource>>(data, object : TypeToken<List<Resource>>() {
 
-                        }.type)
-                        realm.copyToRealm(resources)
+     * Resources are synced course by course. Only courses without any resource yet, and courses of the
+     * latest term that were last downloaded more than RESOURCES_MAX_AGE ago are requested (at the same
+     * time, see fetchEach()), and only the resources of those courses are replaced. Resources are
+     * saved under the COURSEID, so classes that share it (eg. LEC and LAB) are always synced together:
+     * the responses of one course go through the Pipeline as one item and are saved in one transaction.
+     *
+     * The resources of a course are only replaced when the responses of its classes differ from the
+     * ones saved last time (see DigestCheck). Courses that are the same only get their fetch time
+     * moved, all of them in one write at the end, and when no course changed the dataset is NOT_MODIFIED.
+     */
+    private fun handleResource(): Outcome {
+        //Pairs of COURSEID and the url of one class of that course, classes of a course next to each other
+        val toFetch = read { realm ->
+            val courses = realm.where(Course::class.java).findAll().toCollection(ArrayList<Course>())
+            val saved = courses.map { it.clasS_NBR }.toHashSet()
+            synchronized(parsedCourses) { parsedCourses.filterTo(courses) { !saved.contains(it.clasS_NBR) } }
+            val latest = courses.map { it.strm }.max()
+            val stale = courses.filter { needsResources(realm, it, latest) }.map { it.courseid }.toSet()
+            courses.filter { stale.contains(it.courseid) }.map {
+                Pair(it.courseid, (getString(R.string.request_resources)
+                +it.courseid + "/"
+                +it.crsE_ID + "/"
+                +it.strm + "/"
+                +it.ssR_COMPONENT + "/"
+                +it.clasS_NBR))
+            }.sortedBy { it.first }
+        }
+        if (toFetch.isEmpty()) {
+            return Outcome.SUCCESS
+        }
+        //COURSEID, the digest and the responses of its classes, then COURSEID, the digest and its resources
+        val pipeline = Pipeline<Realm, Triple<String, String, List<String>>, Triple<String, String, List<Resource>>>(writer,
+                Pipeline.Parse<Triple<String, String, List<String>>, Triple<String, String, List<Resource>>> {
+                    Triple(it.first, it.second, parsing { parseResources(it.first, it.third) })
+                },
+                Pipeline.Persist<Realm, Triple<String, String, List<Resource>>> { parsed ->
+                    DatasetMetrics.recordRows(parsed.third.size)
+                    StagedWrite<Realm> { realm ->
+                        realm.where(Resource::class.java).equalTo("description", parsed.first).findAll().clear()
+                        realm.copyToRealm(parsed.third)
+                        saveSyncState(realm, resourcesKey(parsed.first), false, parsed.second)
+                    }
+                })
+        //Pairs of COURSEID and the digest of its responses
+        val unchanged = ArrayList<Pair<String, String>>()
+        try {
+            var responses = ArrayList<String>()
+            fetchEach(getString(R.string.request_resources), toFetch.map { it.second }) { i, response ->
+                responses.add(response)
+                if (i == toFetch.size - 1 || toFetch[i + 1].first != toFetch[i].first) {
+                    val courseId = toFetch[i].first
+                    val digest = ResponseDigest.of(responses)
+                    if (digests.isUnchanged(resourcesKey(courseId), digest)) {
+                        unchanged.add(Pair(courseId, digest))
                     } else {
-                        val resource = Resource()
-                        resource.description = course.courseid
-                        resource.courseOutlineTopicID = "N/A"
-                        resource.filename = "N/A"
-                        resource.location = "N/A"
-                        resource.mediaType = "N/A"
-                        resource.mediaTypeId = 5
-                        resource.path = "N/A"
-                        resource.pathid = "N/A"
-                        resource.title = "N/A"
-                        realm.copyToRealm(resource)
+                        pipeline.submit(Triple(courseId, digest, responses))
                     }
+                    responses = ArrayList()
                 }
-                realm.commitTransaction()
-            } catch (e: JSONException) {
-                dataParsingError("Resource & material")
-            } finally {
-                realm.close()
             }
+            pipeline.finish()
+        } catch (e: JsonParseException) {
+            return dataParsingError("Resource & material")
         }
+        if (unchanged.isEmpty()) {
+            return Outcome.SUCCESS
+        }
+        writer.commit(StagedWrite<Realm> { realm ->
+            for (course in unchanged) {
+                saveSyncState(realm, resourcesKey(course.first), false, course.second)
+            }
+        })
+        return if (unchanged.size == toFetch.map { it.first }.distinct().size) Outcome.NOT_MODIFIED else Outcome.SUCCESS
+    }
+
+    //A class without any resource gets one placeholder, so it isn't requested again on every refresh
+    private fun parseResources(courseId: String, responses: List<String>): List<Resource> {
+        val resources = ArrayList<Resource>()
+        for (response in responses) {
+            val paths = parser.resources(StringReader(response), courseId)
+            if (!paths.isEmpty()) {
+                resources.addAll(paths)
+            } else {
+                val resource = Resource()
+                resource.description = courseId
+                resource.courseOutlineTopicID = "N/A"
+                resource.filename = "N/A"
+                resource.location = "N/A"
+                resource.mediaType = "N/A"
+                resource.mediaTypeId = 5
+                resource.path = "N/A"
+                resource.pathid = "N/A"
+                resource.title = "N/A"
+                resources.add(resource)
+            }
+        }
+        return resources
+    }
+
+    private fun needsResources(realm: Realm, course: Course, latestTerm: String?): Boolean {
+        if (realm.where(Resource::class.java).equalTo("description", course.courseid).count() == 0L) {
+            return true
+        }
+        if (course.strm != latestTerm) {
+            return false
+        }
+        val state = realm.where(SyncState::class.java).equalTo("key", resourcesKey(course.courseid)).findFirst()
+        return state == null || System.currentTimeMillis() - state.fetchedAt > RESOURCES_MAX_AGE
     }
 
 
@@ -465,6 +603,9 @@ class UpdateService : IntentService("UpdateService") {
     override fun onDestroy() {
         isActive = false
 
+        //The service can also be stopped from outside (eg. when signing out), datasets that haven't started are dropped
+        current?.cancel()
+
         //Post the UpdateFinishEvent to eventbus when update finish and service is destroyed
         EventBus.getDefault().post(UpdateFinishEvent())
         if (isSuccess) {
@@ -480,141 +621,444 @@ class UpdateService : IntentService("UpdateService") {
      * ==================================================================================================================================
      */
 
+    /**
+     * Requests one url. Every helper below throws an IOException when a request failed for good (see
+     * await()), the dataset then fails without aborting the other datasets of the refresh.
+     */
     private fun bimayApiCall(url: String): String {
+        return await(enqueue(url, url))
+    }
+
+    /**
+     * Requests every url, keeping at most `parallelism` of them in flight at the same time. Returns the
+     * responses in the same order as the urls. The urls all go to `endpoint` (the url without the
+     * term, course...), which is what the CircuitBreaker is kept for.
+     */
+    private fun bimayApiCalls(endpoint: String, urls: List<String>, parallelism: Int = fetchParallelism): List<String> {
+        val responses = ArrayList<String>(urls.size)
+        fetchEach(endpoint, urls, parallelism) { i, response -> responses.add(response) }
+        return responses
+    }
+
+    /**
+     * Like bimayApiCalls(), but hands every response to `each` (with the index of its url) as soon as
+     * it and the ones before it arrived, instead of waiting for all of them. While `each` runs no new
+     * request is started, so when it blocks (see Pipeline.submit()) the downloads wait for it.
+     */
+    private fun fetchEach(endpoint: String, urls: List<String>, parallelism: Int = fetchParallelism,
+                          each: (Int, String) -> Unit) {
+        val calls = ArrayList<Call>(urls.size)
+        var done = 0
+        for (url in urls) {
+            if (calls.size - done >= parallelism) {
+                each(done, await(calls[done]))
+                done++
+            }
+            calls.add(enqueue(endpoint, url))
+        }
+        while (done < calls.size) {
+            each(done, await(calls[done]))
+            done++
+        }
+    }
+
+    /**
+     * The request isn't sent when the breaker of the endpoint is open, await() then fails right away.
+     * Requests of FOREGROUND datasets are sent before the ones of BACKGROUND datasets that are still
+     * waiting in Volley's queue.
+     */
+    private fun enqueue(endpoint: String, url: String, resend: Boolean = false): Call {
         val future = RequestFuture.newFuture<String>()
+        if (!breaker(endpoint).allow(System.currentTimeMillis())) {
+            return Call(endpoint, url, null, future)
+        }
+        val request = Request.create(this, url, future, future)
+        request.priority = when (SyncEngine.currentDataset()?.priority) {
+            Dataset.Priority.FOREGROUND -> Priority.HIGH
+            Dataset.Priority.BACKGROUND -> Priority.LOW
+            else -> Priority.NORMAL
+        }
         val queue = VolleySingleton.getInstance(this).queue
-        queue.add(Request.create(this, url, future, Response.ErrorListener { error ->
-            EventBus.getDefault().post(UpdateErrorEvent(error.toString()))
-            stopSelf()
-        }))
+        if (resend) Request.resend(queue, request) else queue.add(request)
+        return Call(endpoint, url, request, future)
+    }
+
+    /**
+     * Waits for the response. Timeouts, lost connections and 5xx are sent again after a Backoff
+     * delay, every attempt counts for the CircuitBreaker of the endpoint. When the request still
+     * failed, or the breaker is open, an UpdateErrorEvent is posted (once per refresh) and this throws.
+     *
+     * A 401/403 or the login page instead of JSON (see LoginClient.looksSignedOut()) means the
+     * session ran out, it is renewed and only this request is sent again, once, past Volley's cache
+     * (see Request.resend()).
+     */
+    private fun await(first: Call): String {
+        var call = first
+        var retry = 0
+        var renewed = false
+        while (true) {
+            val request = call.request ?: throw fetchFailed(call, null)
+            try {
+                val response = call.future.get()
+                breaker(call.endpoint).onSuccess()
+                if (!LoginClient.looksSignedOut(response)) {
+                    LoginTask.used(this, request.cookie)
+                    DatasetMetrics.recordFetch(request.responseBytes.toLong(), request.firstByteNanos, request.downloadNanos)
+                    return response
+                }
+                DatasetMetrics.recordFailedFetch()
+            } catch (e: ExecutionException) {
+                val error = e.cause
+                DatasetMetrics.recordFailedFetch()
+                //The endpoint did answer, the session is what is wrong
+                if (error is AuthFailureError) {
+                    breaker(call.endpoint).onSuccess()
+                } else {
+                    breaker(call.endpoint).onFailure(System.currentTimeMillis())
+                    if (!isTransient(error) || !backoff.canRetry(retry)) {
+                        throw fetchFailed(call, error)
+                    }
+                    Thread.sleep(backoff.delayMillis(retry))
+                    retry++
+                    call = enqueue(call.endpoint, call.url)
+                    continue
+                }
+            }
+            if (renewed || !renewSession(request.cookie, true)) {
+                throw IOException("Signed out: " + call.url)
+            }
+            renewed = true
+            call = enqueue(call.endpoint, call.url, true)
+        }
+    }
+
+    //Signs in again before the dataset sends its requests, when the session is about to run out
+    private fun renewIfExpiring() {
+        if (LoginTask.lifetime(this).shouldRenew(System.currentTimeMillis())) {
+            renewSession(Pref.read(this, R.string.login_cookie_pref, ""), false)
+        }
+    }
+
+    /**
+     * Signs in again, unless the session was renewed already since `staleCookie` was read (by another
+     * request that was signed out at the same time), then that session is used. `signedOut` is whether
+     * a request came back signed out, the SessionLifetime then learns from when the cookie was used last.
+     *
+     * When the login is rejected a NotSignedInEvent is posted, and when it fails the rest of the
+     * refresh doesn't try again. Returns whether there is a session to send the requests with.
+     */
+    private fun renewSession(staleCookie: String, signedOut: Boolean): Boolean {
+        synchronized(sessionLock) {
+            if (Pref.read(this, R.string.login_cookie_pref, "") != staleCookie) {
+                return true
+            }
+            val refresh = current
+            if (sessionLost != null && sessionLost === refresh) {
+                return false
+            }
+            if (signedOut) {
+                LoginTask.expired(this)
+            }
+            if (Pref.read(this, R.string.login_data_given_pref, 0) != 1) {
+                return false
+            }
+            val result = LoginTask.login(this)
+            if (result == LoginFinishEvent.SIGNED_IN) {
+                return true
+            }
+            sessionLost = refresh
+            if (result == LoginFinishEvent.REJECTED) {
+                EventBus.getDefault().post(NotSignedInEvent())
+            }
+            return false
+        }
+    }
+
+    private fun isTransient(error: Throwable?): Boolean {
+        return when (error) {
+            is TimeoutError, is NetworkError -> true
+            is ServerError -> error.networkResponse == null || error.networkResponse.statusCode >= 500
+            else -> false
+        }
+    }
+
+    private fun fetchFailed(call: Call, error: Throwable?): IOException {
+        val refresh = current
+        if (refresh != null && reportedError !== refresh) {
+            reportedError = refresh
+            EventBus.getDefault().post(UpdateErrorEvent(error?.toString() ?: "Circuit breaker open"))
+        }
+        return IOException(if (error == null) call.endpoint + " is failing, not requested" else call.url, error)
+    }
+
+    //Parsing time goes into the DatasetMetrics of the dataset that is running
+    private inline fun <T> parsing(block: () -> T): T {
+        val start = System.nanoTime()
+        val span = Trace.begin("parse", "parse")
+        try {
+            return block()
+        } finally {
+            span.end()
+            DatasetMetrics.recordParse(System.nanoTime() - start)
+        }
+    }
+
+    private fun flushWrites() {
         try {
-            return future.get()
-        } catch (e: Exception) {
-            return ""
+            writer.flush()
+        } catch (e: RuntimeException) {
+            isSuccess = false
+            Log.e(TAG, "Couldn't save the refresh", e)
         }
+    }
+
+    //When tracing is on, every refresh ends up in its own file in files/traces, see Trace
+    private fun writeTrace() {
+        if (!Trace.isEnabled()) {
+            return
+        }
+        try {
+            Trace.flush(File(File(filesDir, "traces"), "refresh-" + System.currentTimeMillis() + ".json"))
+        } catch (e: IOException) {
+            Log.e(TAG, "Couldn't write the refresh trace", e)
+        }
+    }
+
+    //Terms in Realm and the ones TERMS parsed in this refresh, which may not be committed yet
+    private fun knownTerms(): List<String> {
+        val terms = read { realm -> realm.where(Terms::class.java).findAll().map { it.value } }.toHashSet()
+        terms.addAll(synchronized(parsedTerms) { parsedTerms.toList() })
+        return terms.toList()
+    }
+
+    private fun gradesKey(term: String) = "grades/" + term
+
+    private fun resourcesKey(courseId: String) = "resources/" + courseId
+
+    private fun isFinalised(realm: Realm, key: String): Boolean {
+        return realm.where(SyncState::class.java).equalTo("key", key).equalTo("finalised", true).count() > 0
+    }
+
+    //Must be called inside a write transaction, `digest` is that of the response the data came from
+    private fun saveSyncState(realm: Realm, key: String, finalised: Boolean, digest: String) {
+        val state = SyncState()
+        state.key = key
+        state.fetchedAt = System.currentTimeMillis()
+        state.isFinalised = finalised
+        state.digest = digest
+        realm.copyToRealmOrUpdate(state)
+    }
 
+    private fun responseKey(dataset: Dataset) = "response/" + dataset.name
+
+    //The digests saved in SyncState, see DigestCheck
+    private val digests = DigestCheck(DigestCheck.Store { key ->
+        read { realm -> realm.where(SyncState::class.java).equalTo("key", key).findFirst()?.digest }
+    })
+
+    //Must be called inside a write transaction, together with the data of the response
+    private fun saveDigest(realm: Realm, dataset: Dataset, digest: String) {
+        val state = SyncState()
+        state.key = responseKey(dataset)
+        state.fetchedAt = System.currentTimeMillis()
+        state.digest = digest
+        realm.copyToRealmOrUpdate(state)
     }
 
-    private fun dataParsingError(name: String) {
+    private fun dataParsingError(name: String): Outcome {
         //Post the updateFailedEvent to eventBus when update failed
         EventBus.getDefault().post(UpdateFailedEvent(name))
+        return Outcome.FAILED
     }
 
-    private fun <E : RealmObject> insertToRealm(clazz: Class<out RealmObject>, objects: Iterable<E>, date: List<Dates>) {
+    /**
+     * Saves only what changed: rows are matched by their id (see RowFormats), new and changed rows are
+     * upserted, rows that the server doesn't send anymore are deleted, and only dates that are not
+     * saved yet are added. The digest of the response is saved in the same transaction, so when nothing
+     * changed the transaction only holds that one row.
+     */
+    private fun <E : RealmObject> ingest(clazz: Class<E>, format: RowFormat<E>, objects: List<E>, dates: List<Dates>,
+                                         dataset: Dataset, digest: String) {
+        RowDiff.assignIds(objects, format)
+        val diff = read { realm -> RowDiff.compute(realm.where(clazz).findAll(), objects, format) }
+        val newDates = read { realm ->
+            val saved = realm.where(Dates::class.java).findAll().map { it.datePK }.toHashSet()
+            dates.filter { saved.add(it.datePK) }
+        }
+        if (diff.isEmpty && newDates.isEmpty()) {
+            writer.commit(StagedWrite<Realm> { realm -> saveDigest(realm, dataset, digest) })
+            return
+        }
+        writer.commit(StagedWrite<Realm> { realm ->
+            for (id in diff.deletes) {
+                realm.where(clazz).equalTo("id", id).findAll().clear()
+            }
+            realm.copyToRealmOrUpdate(diff.upserts)
+            realm.copyToRealmOrUpdate(newDates)
+            saveDigest(realm, dataset, digest)
+        })
+        DatasetMetrics.recordRows(diff.deletes.size + diff.upserts.size + newDates.size)
+    }
+
+    //Opens a Realm for reading on the current thread, it is closed again before this returns
+    private inline fun <T> read(block: (Realm) -> T): T {
         val realm = Realm.getDefaultInstance()
-        realm.beginTransaction()
-        realm.clear(clazz)
-        realm.copyToRealm(objects)
-        realm.copyToRealmOrUpdate(date)
-        realm.commitTransaction()
-        realm.close()
+        try {
+            return block(realm)
+        } finally {
+            realm.close()
+        }
     }
 
+    //The response of the grades of one term, see handleGrades()
+    private class TermResponse(val term: String, val response: String, val digest: String, val unchanged: Boolean)
+
+    //request is null when the CircuitBreaker didn't let it through
+    private class Call(val endpoint: String, val url: String, val request: Request?, val future: RequestFuture<String>)
+
     companion object {
         private val TAG = "UpdateService"
-        private val SCHEDULE = "com.directdev.portal.tools.services.action.SCHEDULE"
-        private val EXAM = "com.directdev.portal.tools.services.action.EXAM"
-        private val FINANCE = "com.directdev.portal.tools.services.action.FINANCE"
-        private val GRADES = "com.directdev.portal.tools.services.action.GRADES"
-        private val TERMS = "com.directdev.portal.tools.services.action.TERMS"
-        private val COURSE = "com.directdev.portal.tools.services.action.COURSE"
-        private val ACCOUNT = "com.directdev.portal.tools.services.action.ACCOUNT"
-        private val RESOURCES = "com.directdev.portal.tools.services.action.RESOURCES"
-        private val PHOTO = "com.directdev.portal.tools.services.action.PHOTO"
-        private val GPA = "com.directdev.portal.tools.services.action.GPA"
+        private val REFRESH = "com.directdev.portal.tools.services.action.REFRESH"
+        private val EXTRA_DATASETS = "com.directdev.portal.tools.services.extra.DATASETS"
+        private val engine = SyncEngine(SyncEngine.DEFAULT_WORKERS)
+        /**
+         * Every Realm write of a dataset goes through here, after the dataset is downloaded and parsed.
+         * The writes of all datasets are grouped into a few transactions, or into one for the whole
+         * refresh when the atomicRefresh pref is set, see GroupCommitWriter.
+         */
+        private val writer = GroupCommitWriter(RealmTransactor())
+        private val lock = Any()
         private var isSuccess = true
+        @Volatile private var current: RefreshHandle? = null
         var isActive = false
         var existNewPhoto = false
 
-        // Below are helper methods to prepare intents to start this UpdateService service.
-        fun all(ctx: Context) {
-            val trackUpdates = Pref.read(ctx,"trackUpdates",0)
-            if (!isActive) {
-                UpdateService.schedule(ctx)
-                UpdateService.finance(ctx)
-                if(trackUpdates == 0){
-                    UpdateService.account(ctx)
-                    UpdateService.gpa(ctx)
-                    UpdateService.exam(ctx)
-                    UpdateService.terms(ctx)
-                    UpdateService.finance(ctx)
-                    UpdateService.grades(ctx)
-                    UpdateService.photo(ctx)
-                    UpdateService.course(ctx)
-                    Pref.save(ctx, "trackUpdates",1)
-                }else if(trackUpdates < 4){
-                    UpdateService.exam(ctx)
-                    Pref.save(ctx, "trackUpdates",trackUpdates + 1)
-                }else if(trackUpdates == 4){
-                    UpdateService.account(ctx)
-                    UpdateService.terms(ctx)
-                    UpdateService.gpa(ctx)
-                    UpdateService.grades(ctx)
-                    UpdateService.photo(ctx)
-                    UpdateService.course(ctx)
-                    Pref.save(ctx, "trackUpdates",1)
-                }
-            }
-        }
+        //How many requests of one dataset (eg. grades of each term) can be in flight at the same time
+        var fetchParallelism = 4
 
-        fun schedule(ctx: Context) {
-            val intent = Intent(ctx, UpdateService::class.java)
-            intent.action = SCHEDULE
-            ctx.startService(intent)
-        }
+        private val parser = ResponseParser(GsonHelper.get())
 
-        fun exam(ctx: Context) {
-            val intent = Intent(ctx, UpdateService::class.java)
-            intent.action = EXAM
-            ctx.startService(intent)
-        }
+        //Failed requests are sent again after this, see await()
+        private val backoff = Backoff()
+        private val breakers = HashMap<String, CircuitBreaker>()
+        //Only one request renews the session, the others wait for it and use its cookie
+        private val sessionLock = Any()
+        //The refresh in which renewing the session failed, it isn't tried again in that refresh
+        @Volatile private var sessionLost: RefreshHandle? = null
+        //The refresh that an UpdateErrorEvent was posted for already
+        @Volatile private var reportedError: RefreshHandle? = null
 
-        fun finance(ctx: Context) {
-            val intent = Intent(ctx, UpdateService::class.java)
-            intent.action = FINANCE
-            ctx.startService(intent)
+        private fun breaker(endpoint: String): CircuitBreaker {
+            return synchronized(breakers) { breakers.getOrPut(endpoint) { CircuitBreaker() } }
         }
 
-        fun terms(ctx: Context) {
-            val intent = Intent(ctx, UpdateService::class.java)
-            intent.action = TERMS
-            ctx.startService(intent)
-        }
+        //Resources of the latest term are downloaded again when they are older than this
+        private val RESOURCES_MAX_AGE = TimeUnit.DAYS.toMillis(7)
 
-        fun grades(ctx: Context) {
-            val intent = Intent(ctx, UpdateService::class.java)
-            intent.action = GRADES
-            ctx.startService(intent)
-        }
+        @Volatile private var telemetry: Telemetry? = null
 
-        fun course(ctx: Context) {
-            val intent = Intent(ctx, UpdateService::class.java)
-            intent.action = COURSE
-            ctx.startService(intent)
+        /**
+         * Whether the journal is still waiting for the current refresh: schedule, exam or finance are
+         * still pending, or the refresh is atomic and nothing is saved before all of it is.
+         */
+        fun isJournalPending(): Boolean {
+            val refresh = current ?: return false
+            return !refresh.isFinished && !refresh.isCancelled && (refresh.isPending(Dataset.Priority.FOREGROUND) || writer.isAtomic)
         }
 
-        fun account(ctx: Context) {
-            val intent = Intent(ctx, UpdateService::class.java)
-            intent.action = ACCOUNT
-            ctx.startService(intent)
+        /**
+         * Where every dataset run ends up, see Telemetry. The log is kept in the files dir, so it is
+         * there across restarts of the app.
+         */
+        fun telemetry(ctx: Context): Telemetry {
+            return telemetry ?: synchronized(lock) {
+                telemetry ?: Telemetry(ctx.filesDir).apply { telemetry = this }
+            }
         }
 
-        fun resources(ctx: Context) {
-            val intent = Intent(ctx, UpdateService::class.java)
-            intent.action = RESOURCES
-            ctx.startService(intent)
+        /**
+         * Below are helper methods to prepare intents to start this UpdateService service.
+         *
+         * all() is called from pull to refresh, LoginActivity and the login callback, often at the same
+         * time. While a refresh is running they all get that refresh instead of starting another one.
+         * A refresh that was cancelled (the service was stopped, eg. when signing out) isn't shared.
+         */
+        fun all(ctx: Context): RefreshHandle {
+            val running = current
+            if (running != null && !running.isFinished && !running.isCancelled) {
+                return running
+            }
+            val trackUpdates = Pref.read(ctx,"trackUpdates",0)
+            val datasets = EnumSet.of(Dataset.SCHEDULE, Dataset.FINANCE)
+            if(trackUpdates == 0){
+                datasets.addAll(listOf(Dataset.ACCOUNT, Dataset.GPA, Dataset.EXAM, Dataset.TERMS,
+                        Dataset.GRADES, Dataset.PHOTO, Dataset.COURSE))
+                Pref.save(ctx, "trackUpdates",1)
+            }else if(trackUpdates < 4){
+                datasets.add(Dataset.EXAM)
+                Pref.save(ctx, "trackUpdates",trackUpdates + 1)
+            }else if(trackUpdates == 4){
+                datasets.addAll(listOf(Dataset.ACCOUNT, Dataset.TERMS, Dataset.GPA, Dataset.GRADES,
+                        Dataset.PHOTO, Dataset.COURSE))
+                Pref.save(ctx, "trackUpdates",1)
+            }
+            return refresh(ctx, *datasets.toTypedArray())
         }
 
-        fun photo(ctx: Context) {
+        /**
+         * Adds the datasets to the current refresh (or starts a new one) and starts the service to run them.
+         * The order between them comes from the dependencies declared in Dataset. Datasets that are
+         * already queued or running in the current refresh are not run twice, the caller gets the
+         * refresh they are running in (see RefreshHandle.coalesce()). A cancelled refresh doesn't take
+         * them, a new one is started instead.
+         */
+        fun refresh(ctx: Context, vararg datasets: Dataset): RefreshHandle {
+            var toRun = datasets.asList()
+            val refresh = synchronized(lock) {
+                val running = current
+                val added = running?.coalesce(datasets.asList())
+                if (running != null && added != null) {
+                    toRun = added
+                    running
+                } else {
+                    //A cancelled refresh may still hold writes in atomic mode, they are not saved
+                    if (running != null && running.isCancelled) {
+                        writer.discard()
+                    }
+                    val created = RefreshHandle()
+                    created.expect(datasets.asList())
+                    current = created
+                    created
+                }
+            }
+            if (toRun.isEmpty()) {
+                return refresh
+            }
             val intent = Intent(ctx, UpdateService::class.java)
-            intent.action = PHOTO
+            intent.action = REFRESH
+            intent.putExtra(EXTRA_DATASETS, Array(toRun.size) { toRun[it].name })
             ctx.startService(intent)
+            return refresh
         }
 
-        fun gpa(ctx: Context) {
-            val intent = Intent(ctx, UpdateService::class.java)
-            intent.action = GPA
-            ctx.startService(intent)
-        }
+        fun schedule(ctx: Context) = refresh(ctx, Dataset.SCHEDULE)
+
+        fun exam(ctx: Context) = refresh(ctx, Dataset.EXAM)
+
+        fun finance(ctx: Context) = refresh(ctx, Dataset.FINANCE)
+
+        fun terms(ctx: Context) = refresh(ctx, Dataset.TERMS)
+
+        fun grades(ctx: Context) = refresh(ctx, Dataset.GRADES)
+
+        fun course(ctx: Context) = refresh(ctx, Dataset.COURSE)
+
+        fun account(ctx: Context) = refresh(ctx, Dataset.ACCOUNT)
+
+        fun resources(ctx: Context) = refresh(ctx, Dataset.RESOURCES)
+
+        fun photo(ctx: Context) = refresh(ctx, Dataset.PHOTO)
+
+        fun gpa(ctx: Context) = refresh(ctx, Dataset.GPA)
     }
 }
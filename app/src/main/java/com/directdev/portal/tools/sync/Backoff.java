@@ -0,0 +1,40 @@
+package com.directdev.portal.tools.sync;
+
+import java.util.Random;
+
+/**
+ * How long to wait before sending a failed request again: twice as long after every retry, up to
+ * maxMillis, and a random part of that ("full jitter"), so the requests of a refresh that failed
+ * together don't all come back to the server at the same moment.
+ */
+public class Backoff {
+    public static final long DEFAULT_BASE_MILLIS = 500;
+    public static final long DEFAULT_MAX_MILLIS = 8000;
+    public static final int DEFAULT_MAX_RETRIES = 2;
+
+    private final long baseMillis;
+    private final long maxMillis;
+    private final int maxRetries;
+    private final Random random;
+
+    public Backoff() {
+        this(DEFAULT_BASE_MILLIS, DEFAULT_MAX_MILLIS, DEFAULT_MAX_RETRIES, new Random());
+    }
+
+    public Backoff(long baseMillis, long maxMillis, int maxRetries, Random random) {
+        this.baseMillis = baseMillis;
+        this.maxMillis = maxMillis;
+        this.maxRetries = maxRetries;
+        this.random = random;
+    }
+
+    //retry is how many times the request was sent again already, 0 before the first retry
+    public boolean canRetry(int retry) {
+        return retry < maxRetries;
+    }
+
+    public long delayMillis(int retry) {
+        long ceiling = Math.min(maxMillis, baseMillis << Math.min(retry, 20));
+        return (long) (random.nextDouble() * ceiling);
+    }
+}
@@ -0,0 +1,75 @@
+package com.directdev.portal.tools.sync;
+
+/**
+ * Stops requesting an endpoint that keeps failing. UpdateService keeps one per endpoint, so when eg.
+ * the resources endpoint is down, every course doesn't wait for its own timeouts and retries, while
+ * the other endpoints are requested as usual.
+ *
+ * CLOSED: requests go through, after failureThreshold failures in a row it opens.
+ * OPEN: requests are refused right away, for openMillis.
+ * HALF_OPEN: after that one request is let through to try, it closes the breaker when it succeeds and
+ * opens it again when it fails. If nothing is heard of it for openMillis, another one is let through.
+ *
+ * Times are System.currentTimeMillis(), passed in so tests don't have to wait.
+ */
+public class CircuitBreaker {
+    public static final int DEFAULT_FAILURE_THRESHOLD = 5;
+    public static final long DEFAULT_OPEN_MILLIS = 60000;
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final int failureThreshold;
+    private final long openMillis;
+    private State state = State.CLOSED;
+    private int failures;
+    //When it opened, or when the last try was let through
+    private long since;
+
+    public CircuitBreaker() {
+        this(DEFAULT_FAILURE_THRESHOLD, DEFAULT_OPEN_MILLIS);
+    }
+
+    public CircuitBreaker(int failureThreshold, long openMillis) {
+        this.failureThreshold = failureThreshold;
+        this.openMillis = openMillis;
+    }
+
+    //Whether a request may be sent now, every request that is sent has to report onSuccess or onFailure
+    public synchronized boolean allow(long now) {
+        if (state == State.CLOSED) {
+            return true;
+        }
+        if (now - since < openMillis) {
+            return false;
+        }
+        state = State.HALF_OPEN;
+        since = now;
+        return true;
+    }
+
+    public synchronized void onSuccess() {
+        state = State.CLOSED;
+        failures = 0;
+    }
+
+    public synchronized void onFailure(long now) {
+        //Requests that were sent before it opened
+        if (state == State.OPEN) {
+            return;
+        }
+        failures++;
+        if (state == State.HALF_OPEN || failures >= failureThreshold) {
+            state = State.OPEN;
+            since = now;
+            failures = 0;
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+}
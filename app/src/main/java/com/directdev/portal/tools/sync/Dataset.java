@@ -0,0 +1,56 @@
+package com.directdev.portal.tools.sync;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Every piece of data that UpdateService knows how to download and save, one constant per
+ * BinusMaya endpoint (or group of endpoints, like grades that are requested term by term).
+ *
+ * Some datasets read what another dataset saved, eg. Grades and Course loop over the Terms in Realm,
+ * and Photo is only downloaded when Account found a new photo. Those are declared as dependencies
+ * here, a dependency has to be declared above the dataset that needs it.
+ *
+ * Schedule, Exam and Finance are what the journal shows, the user waits on them after pull to refresh,
+ * so they run at FOREGROUND priority. The rest runs in the BACKGROUND and gives way to them, see
+ * SyncEngine.
+ */
+public enum Dataset {
+    TERMS,
+    GRADES(TERMS),
+    COURSE(TERMS),
+    RESOURCES(COURSE),
+    ACCOUNT,
+    PHOTO(ACCOUNT),
+    SCHEDULE(Priority.FOREGROUND),
+    EXAM(Priority.FOREGROUND),
+    FINANCE(Priority.FOREGROUND),
+    GPA;
+
+    //In the order they run in
+    public enum Priority {
+        FOREGROUND,
+        BACKGROUND
+    }
+
+    private final Priority priority;
+    private final List<Dataset> dependencies;
+
+    Dataset(Dataset... dependencies) {
+        this(Priority.BACKGROUND, dependencies);
+    }
+
+    Dataset(Priority priority, Dataset... dependencies) {
+        this.priority = priority;
+        this.dependencies = Collections.unmodifiableList(Arrays.asList(dependencies));
+    }
+
+    public Priority getPriority() {
+        return priority;
+    }
+
+    public List<Dataset> getDependencies() {
+        return dependencies;
+    }
+}
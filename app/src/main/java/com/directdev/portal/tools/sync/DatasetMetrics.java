@@ -0,0 +1,157 @@
+package com.directdev.portal.tools.sync;
+
+/**
+ * Where the time of one dataset went: how long it waited for a worker, how much was downloaded and
+ * how long that took, how long parsing and the Realm write took, and how many rows were changed.
+ * SyncEngine installs one for the worker thread while the dataset runs, the handlers and StagedWriter
+ * add to it through the static record methods, and it ends up in the SyncResult.
+ *
+ * The network times are summed over the requests of the dataset, when requests run in parallel the
+ * sum can be more than the wall time of the dataset.
+ *
+ * The record methods add to the metrics of the dataset running on the calling thread, and do nothing
+ * on threads that are not running a dataset. Pipeline attaches the metrics of a dataset to the parse
+ * and writer threads while they work for it, so the counters are synchronized.
+ */
+public class DatasetMetrics {
+    private static final ThreadLocal<DatasetMetrics> CURRENT = new ThreadLocal<>();
+
+    private long queueWaitMillis;
+    private int requests;
+    private int failedRequests;
+    private long bytes;
+    private long firstByteNanos;
+    private long downloadNanos;
+    private long parseNanos;
+    private long writeNanos;
+    private int rowsChanged;
+
+    static DatasetMetrics begin(long queueWaitMillis) {
+        DatasetMetrics metrics = new DatasetMetrics();
+        metrics.queueWaitMillis = queueWaitMillis;
+        CURRENT.set(metrics);
+        return metrics;
+    }
+
+    static void end() {
+        CURRENT.remove();
+    }
+
+    //The metrics of the dataset running on this thread, or null
+    static DatasetMetrics current() {
+        return CURRENT.get();
+    }
+
+    //Makes the metrics current on this thread, returns the ones that were current before
+    static DatasetMetrics attach(DatasetMetrics metrics) {
+        DatasetMetrics previous = CURRENT.get();
+        CURRENT.set(metrics);
+        return previous;
+    }
+
+    static void detach(DatasetMetrics previous) {
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+
+    /**
+     * One response arrived. firstByteNanos and downloadNanos are 0 when it came from the cache
+     * without going to the network.
+     */
+    public static void recordFetch(long bytes, long firstByteNanos, long downloadNanos) {
+        DatasetMetrics metrics = CURRENT.get();
+        if (metrics != null) {
+            synchronized (metrics) {
+                metrics.requests++;
+                metrics.bytes += bytes;
+                metrics.firstByteNanos += firstByteNanos;
+                metrics.downloadNanos += downloadNanos;
+            }
+        }
+    }
+
+    public static void recordFailedFetch() {
+        DatasetMetrics metrics = CURRENT.get();
+        if (metrics != null) {
+            synchronized (metrics) {
+                metrics.requests++;
+                metrics.failedRequests++;
+            }
+        }
+    }
+
+    public static void recordParse(long nanos) {
+        DatasetMetrics metrics = CURRENT.get();
+        if (metrics != null) {
+            synchronized (metrics) {
+                metrics.parseNanos += nanos;
+            }
+        }
+    }
+
+    public static void recordWrite(long nanos) {
+        DatasetMetrics metrics = CURRENT.get();
+        if (metrics != null) {
+            synchronized (metrics) {
+                metrics.writeNanos += nanos;
+            }
+        }
+    }
+
+    //Rows inserted, updated or deleted
+    public static void recordRows(int rows) {
+        DatasetMetrics metrics = CURRENT.get();
+        if (metrics != null) {
+            synchronized (metrics) {
+                metrics.rowsChanged += rows;
+            }
+        }
+    }
+
+    public synchronized long getQueueWaitMillis() {
+        return queueWaitMillis;
+    }
+
+    public synchronized int getRequests() {
+        return requests;
+    }
+
+    public synchronized int getFailedRequests() {
+        return failedRequests;
+    }
+
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    public synchronized long getFirstByteNanos() {
+        return firstByteNanos;
+    }
+
+    public synchronized long getDownloadNanos() {
+        return downloadNanos;
+    }
+
+    public synchronized long getParseNanos() {
+        return parseNanos;
+    }
+
+    public synchronized long getWriteNanos() {
+        return writeNanos;
+    }
+
+    public synchronized int getRowsChanged() {
+        return rowsChanged;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "queued " + queueWaitMillis + "ms, " + requests + " requests (" + failedRequests + " failed), "
+                + bytes + " bytes, first byte " + firstByteNanos / 1000000 + "ms, download "
+                + downloadNanos / 1000000 + "ms, parse " + parseNanos / 1000000 + "ms, write "
+                + writeNanos / 1000000 + "ms, " + rowsChanged + " rows";
+    }
+}
@@ -0,0 +1,42 @@
+package com.directdev.portal.tools.sync;
+
+/**
+ * Decides whether a response has to be parsed and saved at all. The digest saved with the data of a
+ * key (eg. "response/SCHEDULE", see UpdateService) is compared with the digest of the new response,
+ * when they are the same the data is already saved and the dataset is NOT_MODIFIED.
+ *
+ * The digest of an empty body never counts as unchanged, an empty body is what a failed request
+ * leaves behind and saving it must not keep the next real response from being saved.
+ */
+public class DigestCheck {
+    public interface Store {
+        //The digest saved with the data of the key, null when there is none
+        String get(String key);
+    }
+
+    public interface Ingest {
+        //Parses and saves the response, the digest is to be saved in the same transaction
+        SyncResult.Outcome run(String digest);
+    }
+
+    private static final String EMPTY = ResponseDigest.of("");
+
+    private final Store store;
+
+    public DigestCheck(Store store) {
+        this.store = store;
+    }
+
+    public boolean isUnchanged(String key, String digest) {
+        return !digest.equals(EMPTY) && digest.equals(store.get(key));
+    }
+
+    //NOT_MODIFIED without running `ingest` when the body is the one saved last time
+    public SyncResult.Outcome sync(String key, String body, Ingest ingest) {
+        String digest = ResponseDigest.of(body);
+        if (isUnchanged(key, digest)) {
+            return SyncResult.Outcome.NOT_MODIFIED;
+        }
+        return ingest.run(digest);
+    }
+}
@@ -0,0 +1,199 @@
+package com.directdev.portal.tools.sync;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A StagedWriter that commits the writes of every dataset of a refresh on one writer thread, grouped
+ * into as few transactions as possible, so a refresh is a handful of commits (and change
+ * notifications) instead of one for every dataset, term and course.
+ *
+ * Batched (the default): commit() queues the writes and blocks until the transaction that holds
+ * them is committed, so what a dataset saved can be read right after, like with a StagedWriter. The
+ * writer thread takes everything that is queued, waits up to maxDelayMillis for more, and commits at
+ * most maxWrites writes in one transaction. When that transaction fails, every caller in it is
+ * committed again on its own, so only the caller whose write threw gets the exception.
+ *
+ * Atomic: commit() only holds on to the writes and returns right away, nothing is saved until
+ * flush() commits all of them in one transaction. UpdateService flushes when the refresh finished,
+ * and drops the writes with discard() when it was cancelled. Datasets that need what another dataset
+ * saved (see Dataset) get it from UpdateService instead of Realm, so nothing is flushed before that and
+ * the whole refresh is one transaction.
+ */
+public class GroupCommitWriter<S> extends StagedWriter<S> {
+    public static final int DEFAULT_MAX_WRITES = 64;
+    public static final long DEFAULT_MAX_DELAY_MILLIS = 10;
+
+    private final int maxWrites;
+    private final long maxDelayNanos;
+    private final BlockingQueue<Pending<S>> queue = new LinkedBlockingQueue<>();
+    private final List<StagedWrite<S>> held = new ArrayList<>();
+    private volatile boolean atomic = false;
+
+    private static class Pending<S> {
+        final List<? extends StagedWrite<S>> writes;
+        final CountDownLatch done = new CountDownLatch(1);
+        RuntimeException failure;
+
+        Pending(List<? extends StagedWrite<S>> writes) {
+            this.writes = writes;
+        }
+    }
+
+    public GroupCommitWriter(Transactor<S> transactor) {
+        this(transactor, DEFAULT_MAX_WRITES, DEFAULT_MAX_DELAY_MILLIS);
+    }
+
+    public GroupCommitWriter(Transactor<S> transactor, int maxWrites, long maxDelayMillis) {
+        super(transactor);
+        this.maxWrites = maxWrites;
+        this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(maxDelayMillis);
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                while (true) {
+                    try {
+                        write(nextBatch());
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+            }
+        }, "GroupCommitWriter");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    //Switching from atomic to batched saves what is held first
+    public void setAtomic(boolean atomic) {
+        if (!atomic) {
+            flush();
+        }
+        this.atomic = atomic;
+    }
+
+    public boolean isAtomic() {
+        return atomic;
+    }
+
+    /**
+     * The time the caller waited for the transaction is its write time in DatasetMetrics, the
+     * transaction itself runs on the writer thread
+     */
+    @Override
+    public void commit(List<? extends StagedWrite<S>> writes) {
+        if (atomic) {
+            synchronized (held) {
+                held.addAll(writes);
+            }
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            await(writes);
+        } finally {
+            DatasetMetrics.recordWrite(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Commits the writes held in atomic mode in one transaction. When it throws nothing of them is
+     * saved and they are gone. Does nothing in batched mode, every commit() is saved already.
+     */
+    public void flush() {
+        List<StagedWrite<S>> writes;
+        synchronized (held) {
+            if (held.isEmpty()) {
+                return;
+            }
+            writes = new ArrayList<>(held);
+            held.clear();
+        }
+        await(writes);
+    }
+
+    //Drops the writes held in atomic mode without saving them, returns how many there were
+    public int discard() {
+        synchronized (held) {
+            int dropped = held.size();
+            held.clear();
+            return dropped;
+        }
+    }
+
+    private void await(List<? extends StagedWrite<S>> writes) {
+        Pending<S> pending = new Pending<>(writes);
+        queue.add(pending);
+        boolean interrupted = false;
+        while (true) {
+            try {
+                pending.done.await();
+                break;
+            } catch (InterruptedException e) {
+                //The writes are queued already, they are saved whether the caller waits or not
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        if (pending.failure != null) {
+            throw pending.failure;
+        }
+    }
+
+    private List<Pending<S>> nextBatch() throws InterruptedException {
+        List<Pending<S>> batch = new ArrayList<>();
+        Pending<S> first = queue.take();
+        batch.add(first);
+        int writes = first.writes.size();
+        long deadline = System.nanoTime() + maxDelayNanos;
+        while (writes < maxWrites) {
+            long left = deadline - System.nanoTime();
+            Pending<S> next = left > 0 ? queue.poll(left, TimeUnit.NANOSECONDS) : queue.poll();
+            if (next == null) {
+                break;
+            }
+            batch.add(next);
+            writes += next.writes.size();
+        }
+        return batch;
+    }
+
+    private void write(List<Pending<S>> batch) {
+        try {
+            if (batch.size() == 1) {
+                commitAlone(batch.get(0));
+                return;
+            }
+            List<StagedWrite<S>> writes = new ArrayList<>();
+            for (Pending<S> pending : batch) {
+                writes.addAll(pending.writes);
+            }
+            try {
+                super.commit(writes);
+            } catch (RuntimeException e) {
+                //The transaction was cancelled, find the one that broke it
+                for (Pending<S> pending : batch) {
+                    commitAlone(pending);
+                }
+            }
+        } finally {
+            for (Pending<S> pending : batch) {
+                pending.done.countDown();
+            }
+        }
+    }
+
+    private void commitAlone(Pending<S> pending) {
+        try {
+            super.commit(pending.writes);
+        } catch (RuntimeException e) {
+            pending.failure = e;
+        }
+    }
+}
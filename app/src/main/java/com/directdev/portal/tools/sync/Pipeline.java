@@ -0,0 +1,125 @@
+package com.directdev.portal.tools.sync;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fetch, parse and write of a dataset with many requests (grades of every term, resources of every
+ * course) as three stages that overlap, so term N+1 downloads while term N is parsed and term N-1 is
+ * written:
+ *
+ * 1. The network stage is the worker thread of the dataset, it hands every response to submit() as
+ * it arrives.
+ * 2. The parse stage runs on a pool with one thread per core, shared by every dataset.
+ * 3. The write stage is the writer: the parse thread hands the parsed item to it and waits until it
+ * is saved. With a GroupCommitWriter (what UpdateService uses) that is one writer thread shared by
+ * every dataset, which commits the items of all of them together, so the datasets queue up in memory
+ * instead of on the Realm write lock.
+ *
+ * At most capacity items can be between the stages at a time, when parsing or writing falls behind
+ * submit() blocks, which stops the network stage from downloading more. Items are written in the
+ * order they finish parsing, not the order they were submitted.
+ *
+ * When a parse or a write throws, the items after it are dropped and finish() throws the first
+ * exception, the items already written stay written.
+ */
+public class Pipeline<S, I, P> {
+    public static final int DEFAULT_CAPACITY = 4;
+
+    private static final ExecutorService PARSERS = Executors.newFixedThreadPool(
+            Runtime.getRuntime().availableProcessors(), new StageFactory("Pipeline-parse"));
+
+    public interface Parse<I, P> {
+        P parse(I item);
+    }
+
+    public interface Persist<S, P> {
+        //null when the item has nothing to save, then no transaction is opened for it
+        StagedWrite<S> persist(P parsed);
+    }
+
+    private final StagedWriter<S> writer;
+    private final Parse<I, P> parse;
+    private final Persist<S, P> persist;
+    private final int capacity;
+    private final Semaphore slots;
+    private final DatasetMetrics metrics = DatasetMetrics.current();
+    private volatile RuntimeException failure;
+
+    public Pipeline(StagedWriter<S> writer, Parse<I, P> parse, Persist<S, P> persist) {
+        this(writer, parse, persist, DEFAULT_CAPACITY);
+    }
+
+    public Pipeline(StagedWriter<S> writer, Parse<I, P> parse, Persist<S, P> persist, int capacity) {
+        this.writer = writer;
+        this.parse = parse;
+        this.persist = persist;
+        this.capacity = capacity;
+        this.slots = new Semaphore(capacity);
+    }
+
+    //Blocks while capacity items are still being parsed or written
+    public void submit(final I item) throws InterruptedException {
+        slots.acquire();
+        if (failure != null) {
+            slots.release();
+            return;
+        }
+        PARSERS.execute(new Runnable() {
+            @Override
+            public void run() {
+                DatasetMetrics previous = DatasetMetrics.attach(metrics);
+                try {
+                    P parsed = parse.parse(item);
+                    //Items after a failure are dropped
+                    StagedWrite<S> write = failure == null ? persist.persist(parsed) : null;
+                    if (write != null) {
+                        writer.commit(write);
+                    }
+                } catch (RuntimeException e) {
+                    fail(e);
+                } finally {
+                    DatasetMetrics.detach(previous);
+                    slots.release();
+                }
+            }
+        });
+    }
+
+    /**
+     * Waits until every submitted item is written, then throws the first exception of a parse or a
+     * write if there was one
+     */
+    public void finish() throws InterruptedException {
+        slots.acquire(capacity);
+        slots.release(capacity);
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private synchronized void fail(RuntimeException e) {
+        if (failure == null) {
+            failure = e;
+        }
+    }
+
+    private static class StageFactory implements ThreadFactory {
+        private final String name;
+        private final AtomicInteger count = new AtomicInteger();
+
+        StageFactory(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
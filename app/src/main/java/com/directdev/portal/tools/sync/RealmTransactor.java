@@ -0,0 +1,30 @@
+package com.directdev.portal.tools.sync;
+
+import io.realm.Realm;
+
+public class RealmTransactor implements Transactor<Realm> {
+    @Override
+    public Realm open() {
+        return Realm.getDefaultInstance();
+    }
+
+    @Override
+    public void begin(Realm realm) {
+        realm.beginTransaction();
+    }
+
+    @Override
+    public void commit(Realm realm) {
+        realm.commitTransaction();
+    }
+
+    @Override
+    public void cancel(Realm realm) {
+        realm.cancelTransaction();
+    }
+
+    @Override
+    public void close(Realm realm) {
+        realm.close();
+    }
+}
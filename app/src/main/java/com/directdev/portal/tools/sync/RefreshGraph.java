@@ -0,0 +1,95 @@
+package com.directdev.portal.tools.sync;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps track of which datasets of a refresh are waiting, running or done, and decides which ones
+ * can start. A dataset starts as soon as none of its dependencies are still waiting or running in
+ * the same refresh. Dependencies that are not part of the refresh don't block, their data is
+ * already in Realm from an earlier refresh.
+ *
+ * When a dependency did not succeed, every dataset that needs it (directly or not) is skipped,
+ * unrelated datasets keep going.
+ */
+class RefreshGraph {
+    private final Map<Dataset, SyncTask> waiting = new EnumMap<>(Dataset.class);
+    private final Map<Dataset, SyncTask> running = new EnumMap<>(Dataset.class);
+    private final Map<Dataset, SyncResult.Outcome> done = new EnumMap<>(Dataset.class);
+
+    /**
+     * What the engine has to do after the graph changed
+     */
+    static class Step {
+        final Map<Dataset, SyncTask> ready = new EnumMap<>(Dataset.class);
+        final List<Dataset> skipped = new ArrayList<>();
+    }
+
+    //Datasets that are already waiting or running are not added twice
+    synchronized Step add(Collection<Dataset> datasets, SyncTask task) {
+        for (Dataset dataset : datasets) {
+            if (!waiting.containsKey(dataset) && !running.containsKey(dataset)) {
+                done.remove(dataset);
+                waiting.put(dataset, task);
+            }
+        }
+        return advance();
+    }
+
+    synchronized Step complete(Dataset dataset, SyncResult.Outcome outcome) {
+        running.remove(dataset);
+        done.put(dataset, outcome);
+        return advance();
+    }
+
+    private Step advance() {
+        Step step = new Step();
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            Iterator<Map.Entry<Dataset, SyncTask>> iterator = waiting.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<Dataset, SyncTask> entry = iterator.next();
+                Dataset dataset = entry.getKey();
+                SyncTask task = entry.getValue();
+                if (isBlocked(dataset)) {
+                    continue;
+                }
+                iterator.remove();
+                if (isPruned(dataset)) {
+                    done.put(dataset, SyncResult.Outcome.SKIPPED);
+                    step.skipped.add(dataset);
+                    //A skipped dataset can prune the ones waiting on it, so look again
+                    changed = true;
+                } else {
+                    running.put(dataset, task);
+                    step.ready.put(dataset, task);
+                }
+            }
+        }
+        return step;
+    }
+
+    private boolean isBlocked(Dataset dataset) {
+        for (Dataset dependency : dataset.getDependencies()) {
+            if (waiting.containsKey(dependency) || running.containsKey(dependency)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isPruned(Dataset dataset) {
+        for (Dataset dependency : dataset.getDependencies()) {
+            SyncResult.Outcome outcome = done.get(dependency);
+            if (outcome != null && !outcome.isSuccessful()) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
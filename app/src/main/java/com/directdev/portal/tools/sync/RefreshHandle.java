@@ -0,0 +1,187 @@
+package com.directdev.portal.tools.sync;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One refresh, which is a group of datasets that are being synced together. UpdateService.all()
+ * returns this, so whoever started the refresh can listen to each dataset as it finishes, or wait
+ * for the whole refresh to finish.
+ *
+ * Datasets are added with expect() before they are handed to SyncEngine, and removed with finish()
+ * when SyncEngine is done with them. When nothing is pending anymore the refresh is finished, and a
+ * finished refresh can't be reused, a new one has to be created.
+ *
+ * The datasets of each Dataset.Priority finish on their own too: once the FOREGROUND ones are done the
+ * journal can be shown, while the BACKGROUND ones are still running.
+ */
+public class RefreshHandle {
+    public interface Listener {
+        void onDatasetFinished(SyncResult result);
+
+        //No dataset of that priority is pending anymore, called before onRefreshFinished
+        void onPriorityFinished(RefreshHandle refresh, Dataset.Priority priority);
+
+        void onRefreshFinished(RefreshHandle refresh);
+    }
+
+    final RefreshGraph graph = new RefreshGraph();
+    private final Set<Dataset> pending = EnumSet.noneOf(Dataset.class);
+    private final List<SyncResult> results = new ArrayList<>();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final long startedAt = System.currentTimeMillis();
+    private long finishedAt;
+    private boolean finished = false;
+    private volatile boolean cancelled = false;
+
+    /**
+     * Marks the datasets as pending in this refresh. Returns false if the refresh already finished or
+     * was cancelled, in which case nothing is added and the caller should start a new refresh.
+     */
+    public synchronized boolean expect(Collection<Dataset> datasets) {
+        if (finished || cancelled) {
+            return false;
+        }
+        pending.addAll(datasets);
+        return true;
+    }
+
+    /**
+     * Like expect(), but returns only the datasets that were not pending yet. The ones that are
+     * already queued or running are not run again, whoever asks for them shares the run that is
+     * already there. Returns null if the refresh already finished or was cancelled.
+     */
+    public synchronized List<Dataset> coalesce(Collection<Dataset> datasets) {
+        if (finished || cancelled) {
+            return null;
+        }
+        List<Dataset> added = new ArrayList<>();
+        for (Dataset dataset : datasets) {
+            if (pending.add(dataset)) {
+                added.add(dataset);
+            }
+        }
+        return added;
+    }
+
+    void finish(SyncResult result) {
+        Dataset.Priority priority = result.getDataset().getPriority();
+        boolean last;
+        boolean lastOfPriority;
+        synchronized (this) {
+            lastOfPriority = pending.remove(result.getDataset()) && !hasPending(priority);
+            results.add(result);
+            last = pending.isEmpty() && !finished;
+            if (last) {
+                finished = true;
+                finishedAt = System.currentTimeMillis();
+                notifyAll();
+            }
+        }
+        for (Listener listener : listeners) {
+            listener.onDatasetFinished(result);
+        }
+        if (lastOfPriority) {
+            for (Listener listener : listeners) {
+                listener.onPriorityFinished(this, priority);
+            }
+        }
+        if (last) {
+            for (Listener listener : listeners) {
+                listener.onRefreshFinished(this);
+            }
+        }
+    }
+
+    /**
+     * Listens to this refresh, if the refresh is already finished, onRefreshFinished is called
+     * right away
+     */
+    public void addListener(Listener listener) {
+        boolean alreadyFinished;
+        synchronized (this) {
+            listeners.add(listener);
+            alreadyFinished = finished;
+        }
+        if (alreadyFinished) {
+            listener.onRefreshFinished(this);
+        }
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Datasets that haven't started yet will finish as CANCELLED, the ones already running are left
+     * alone. A cancelled refresh doesn't take new datasets anymore, see coalesce().
+     */
+    public synchronized void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    public synchronized boolean isFinished() {
+        return finished;
+    }
+
+    public synchronized boolean isPending(Dataset dataset) {
+        return pending.contains(dataset);
+    }
+
+    //Whether any dataset of that priority is still queued or running
+    public synchronized boolean isPending(Dataset.Priority priority) {
+        return hasPending(priority);
+    }
+
+    private boolean hasPending(Dataset.Priority priority) {
+        for (Dataset dataset : pending) {
+            if (dataset.getPriority() == priority) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Blocks until the refresh finished or the timeout passed, returns whether it finished
+     */
+    public synchronized boolean await(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + unit.toMillis(timeout);
+        while (!finished) {
+            long left = deadline - System.currentTimeMillis();
+            if (left <= 0) {
+                return false;
+            }
+            wait(left);
+        }
+        return true;
+    }
+
+    public synchronized List<SyncResult> getResults() {
+        return Collections.unmodifiableList(new ArrayList<>(results));
+    }
+
+    public synchronized boolean isSuccessful() {
+        for (SyncResult result : results) {
+            if (!result.getOutcome().isSuccessful()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    //Wall time of the whole refresh, or the time so far if it is still running
+    public synchronized long getDuration() {
+        return (finished ? finishedAt : System.currentTimeMillis()) - startedAt;
+    }
+}
@@ -0,0 +1,48 @@
+package com.directdev.portal.tools.sync;
+
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+
+/**
+ * Fingerprint of a response body. UpdateService keeps the digest of the last response it saved
+ * for each endpoint, term of grades and course of resources, a response with the same digest is the
+ * same data and is not saved again (see DigestCheck).
+ */
+public class ResponseDigest {
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    /**
+     * Fingerprint of the responses that are saved together, eg. the classes of one course. When one
+     * of them is empty it is the digest of an empty body, which never counts as unchanged.
+     */
+    public static String of(List<String> bodies) {
+        if (bodies.size() == 1) {
+            return of(bodies.get(0));
+        }
+        StringBuilder digests = new StringBuilder();
+        for (String body : bodies) {
+            if (body.isEmpty()) {
+                return of("");
+            }
+            digests.append(of(body)).append(',');
+        }
+        return of(digests.toString());
+    }
+
+    public static String of(String body) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-1").digest(body.getBytes("UTF-8"));
+            char[] hex = new char[hash.length * 2];
+            for (int i = 0; i < hash.length; i++) {
+                hex[i * 2] = HEX[(hash[i] >> 4) & 0xf];
+                hex[i * 2 + 1] = HEX[hash[i] & 0xf];
+            }
+            return new String(hex);
+        } catch (NoSuchAlgorithmException | UnsupportedEncodingException e) {
+            //Every Android device has SHA-1 and UTF-8
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.directdev.portal.tools.sync;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The difference between the rows saved in Realm and the rows that just came from the server. Only
+ * new and changed rows are upserted and only rows that are gone from the server are deleted, so a
+ * refresh where nothing changed writes nothing at all.
+ */
+public class RowDiff<T> {
+    private final List<T> upserts = new ArrayList<>();
+    private final List<String> deletes = new ArrayList<>();
+    private int unchanged;
+
+    /**
+     * Gives every incoming row its id from the natural key. When two rows have the same natural key,
+     * the later ones get a counter appended, the server sends rows in the same order every time so
+     * the ids stay stable.
+     */
+    public static <T> void assignIds(List<T> incoming, RowFormat<T> format) {
+        Map<String, Integer> seen = new HashMap<>();
+        for (T row : incoming) {
+            String key = format.naturalKey(row);
+            Integer count = seen.get(key);
+            seen.put(key, count == null ? 1 : count + 1);
+            format.setId(row, count == null ? key : key + "#" + count);
+        }
+    }
+
+    /**
+     * Compares the saved rows with the incoming rows, the incoming rows must already have their ids
+     */
+    public static <T> RowDiff<T> compute(Iterable<? extends T> existing, List<T> incoming, RowFormat<T> format) {
+        RowDiff<T> diff = new RowDiff<>();
+        Map<String, String> saved = new HashMap<>();
+        for (T row : existing) {
+            saved.put(format.getId(row), format.content(row));
+        }
+        Set<String> kept = new HashSet<>();
+        for (T row : incoming) {
+            String id = format.getId(row);
+            kept.add(id);
+            String content = saved.get(id);
+            if (content != null && content.equals(format.content(row))) {
+                diff.unchanged++;
+            } else {
+                diff.upserts.add(row);
+            }
+        }
+        for (String id : saved.keySet()) {
+            if (!kept.contains(id)) {
+                diff.deletes.add(id);
+            }
+        }
+        return diff;
+    }
+
+    public List<T> getUpserts() {
+        return upserts;
+    }
+
+    public List<String> getDeletes() {
+        return deletes;
+    }
+
+    public int getUnchanged() {
+        return unchanged;
+    }
+
+    public boolean isEmpty() {
+        return upserts.isEmpty() && deletes.isEmpty();
+    }
+}
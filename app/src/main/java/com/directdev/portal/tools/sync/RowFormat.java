@@ -0,0 +1,16 @@
+package com.directdev.portal.tools.sync;
+
+/**
+ * Tells RowDiff how to identify a row of one model and how to tell whether it changed
+ */
+public interface RowFormat<T> {
+    //Built from the fields that identify the row on the server, this becomes the primary key
+    String naturalKey(T row);
+
+    String getId(T row);
+
+    void setId(T row, String id);
+
+    //Every field that is saved, two rows with the same content don't need to be written again
+    String content(T row);
+}
@@ -0,0 +1,99 @@
+package com.directdev.portal.tools.sync;
+
+import com.directdev.portal.tools.model.Exam;
+import com.directdev.portal.tools.model.Finance;
+import com.directdev.portal.tools.model.Schedule;
+
+import java.util.Date;
+
+/**
+ * RowFormat of every model that is ingested through RowDiff
+ */
+public class RowFormats {
+    private static final char SEPARATOR = '|';
+
+    public static final RowFormat<Schedule> SCHEDULE = new RowFormat<Schedule>() {
+        @Override
+        public String naturalKey(Schedule row) {
+            return join(row.getCourseID(), row.getClasscode(), row.getType(), row.getSession(),
+                    row.getDate(), row.getShift());
+        }
+
+        @Override
+        public String getId(Schedule row) {
+            return row.getId();
+        }
+
+        @Override
+        public void setId(Schedule row, String id) {
+            row.setId(id);
+        }
+
+        @Override
+        public String content(Schedule row) {
+            return join(row.getCourseID(), row.getCourseName(), row.getDate(), row.getSession(),
+                    row.getRoom(), row.getMode(), row.getClasscode(), row.getType(), row.getWeek(),
+                    row.getShift());
+        }
+    };
+
+    public static final RowFormat<Exam> EXAM = new RowFormat<Exam>() {
+        @Override
+        public String naturalKey(Exam row) {
+            return join(row.getKDMTK(), row.getDESCR(), row.getExamDate(), row.getExamStartTime());
+        }
+
+        @Override
+        public String getId(Exam row) {
+            return row.getId();
+        }
+
+        @Override
+        public void setId(Exam row, String id) {
+            row.setId(id);
+        }
+
+        @Override
+        public String content(Exam row) {
+            return join(row.getDESCR(), row.getKDMTK(), row.getExamDate(), row.getExamStartTime(),
+                    row.getDuration(), row.getROOM(), row.getChairNumber(), row.getCOURSE_TITLE_LONG());
+        }
+    };
+
+    public static final RowFormat<Finance> FINANCE = new RowFormat<Finance>() {
+        @Override
+        public String naturalKey(Finance row) {
+            return join(row.getITEM_TERM(), row.getITEM_TYPE_CD(), row.getITEM_NBR(),
+                    row.getITEM_EFFECTIVE_DT(), row.getDUE_DT());
+        }
+
+        @Override
+        public String getId(Finance row) {
+            return row.getId();
+        }
+
+        @Override
+        public void setId(Finance row, String id) {
+            row.setId(id);
+        }
+
+        @Override
+        public String content(Finance row) {
+            return join(row.getDUE_DT(), row.getITEM_EFFECTIVE_DT(), row.getITEM_TERM(), row.getDESCR(),
+                    row.getITEM_TYPE_CD(), row.getITEM_AMT(), row.getITEM_NBR());
+        }
+    };
+
+    private static String join(Object... fields) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < fields.length; i++) {
+            if (i > 0) {
+                builder.append(SEPARATOR);
+            }
+            Object field = fields[i];
+            //Dates are keyed by their time, formatting them would depend on the phone's locale
+            builder.append(field instanceof Date ? ((Date) field).getTime() : field);
+        }
+        return builder.toString();
+    }
+}
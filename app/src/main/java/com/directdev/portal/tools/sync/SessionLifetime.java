@@ -0,0 +1,147 @@
+package com.directdev.portal.tools.sync;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * Learns how long a Binusmaya session lasts, so it can be renewed before it runs out instead of
+ * finding out from a request that got the login page back.
+ *
+ * issued() is called when a login saved a new cookie, used() when a request made with it got data
+ * back and expired() when one was signed out. The session ran out somewhere between the last use and
+ * the expiry, which can be hours apart when the app sat idle, see expired() for what is learnt from
+ * that. The typical lifetime is the median of the last maxSamples samples (DEFAULT_LIFETIME_MILLIS,
+ * ASP.NET's default session timeout, until there is one). shouldRenew() is true once the cookie is
+ * renewAt of that old, or when it isn't known when the cookie was issued.
+ *
+ * Times are System.currentTimeMillis(), passed in so tests don't have to wait. The state goes in a
+ * pref as the string of encode().
+ */
+public class SessionLifetime {
+    public static final long DEFAULT_LIFETIME_MILLIS = 20 * 60 * 1000;
+    public static final int DEFAULT_MAX_SAMPLES = 8;
+    public static final double DEFAULT_RENEW_AT = 0.8;
+
+    private final int maxSamples;
+    private final double renewAt;
+    //0 when it isn't known
+    private long issuedAt;
+    //0 when the cookie wasn't used since it was issued
+    private long lastUsedAt;
+    //Oldest first
+    private final LinkedList<Long> samples = new LinkedList<>();
+
+    public SessionLifetime() {
+        this(DEFAULT_MAX_SAMPLES, DEFAULT_RENEW_AT);
+    }
+
+    public SessionLifetime(int maxSamples, double renewAt) {
+        this.maxSamples = maxSamples;
+        this.renewAt = renewAt;
+    }
+
+    public synchronized void issued(long now) {
+        issuedAt = now;
+        lastUsedAt = 0;
+    }
+
+    //A request made with the cookie issued last got data back
+    public synchronized void used(long now) {
+        if (issuedAt > 0 && now > lastUsedAt) {
+            lastUsedAt = now;
+        }
+    }
+
+    /**
+     * The cookie issued last was signed out. Only the first call after issued() counts, the requests
+     * that were in flight with the same cookie come back signed out too.
+     *
+     * The lifetime is more than the age of the cookie at its last use and at most its age now. When
+     * the two are no further apart than the typical lifetime the middle of them is the sample. After
+     * a longer idle gap only the lower bound is known, it is a sample when it is longer than the
+     * typical lifetime and otherwise tells nothing new.
+     */
+    public synchronized void expired(long now) {
+        if (issuedAt > 0 && now > issuedAt) {
+            long lower = Math.max(lastUsedAt - issuedAt, 0);
+            long upper = now - issuedAt;
+            long typical = getTypicalLifetime();
+            if (upper - lower <= typical) {
+                addSample((lower + upper) / 2);
+            } else if (lower > typical) {
+                addSample(lower);
+            }
+        }
+        issuedAt = 0;
+        lastUsedAt = 0;
+    }
+
+    private void addSample(long sample) {
+        samples.addLast(sample);
+        while (samples.size() > maxSamples) {
+            samples.removeFirst();
+        }
+    }
+
+    public synchronized boolean shouldRenew(long now) {
+        return issuedAt <= 0 || now - issuedAt >= (long) (getTypicalLifetime() * renewAt);
+    }
+
+    public synchronized long getTypicalLifetime() {
+        if (samples.isEmpty()) {
+            return DEFAULT_LIFETIME_MILLIS;
+        }
+        List<Long> sorted = new ArrayList<>(samples);
+        Collections.sort(sorted);
+        return sorted.get(sorted.size() / 2);
+    }
+
+    public synchronized long getIssuedAt() {
+        return issuedAt;
+    }
+
+    public synchronized long getLastUsedAt() {
+        return lastUsedAt;
+    }
+
+    //eg. "1466000000000,1466000600000;1200000,1180000", the issue and last use times and then the samples
+    public synchronized String encode() {
+        StringBuilder text = new StringBuilder().append(issuedAt).append(',').append(lastUsedAt).append(';');
+        for (int i = 0; i < samples.size(); i++) {
+            if (i > 0) {
+                text.append(',');
+            }
+            text.append(samples.get(i));
+        }
+        return text.toString();
+    }
+
+    //What can't be read is left out, an empty or broken string is a SessionLifetime that knows nothing
+    public static SessionLifetime decode(String text) {
+        SessionLifetime lifetime = new SessionLifetime();
+        if (text == null) {
+            return lifetime;
+        }
+        String[] parts = text.split(";", 2);
+        try {
+            //Without the last use time when it was saved by an older version
+            String[] times = parts[0].split(",", 2);
+            lifetime.issuedAt = Long.parseLong(times[0]);
+            if (times.length > 1) {
+                lifetime.lastUsedAt = Long.parseLong(times[1]);
+            }
+            if (parts.length > 1) {
+                for (String sample : parts[1].split(",")) {
+                    if (!sample.isEmpty() && lifetime.samples.size() < lifetime.maxSamples) {
+                        lifetime.samples.addLast(Long.parseLong(sample));
+                    }
+                }
+            }
+        } catch (NumberFormatException e) {
+            return new SessionLifetime();
+        }
+        return lifetime;
+    }
+}
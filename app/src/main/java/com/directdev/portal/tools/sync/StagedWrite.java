@@ -0,0 +1,10 @@
+package com.directdev.portal.tools.sync;
+
+/**
+ * A write that is prepared (downloaded and parsed) before the database is locked, and applied later
+ * by StagedWriter inside a short write transaction. apply() must only touch the store, never the
+ * network.
+ */
+public interface StagedWrite<S> {
+    void apply(S store);
+}
@@ -0,0 +1,50 @@
+package com.directdev.portal.tools.sync;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Applies staged writes in one short write transaction. Datasets download and parse everything
+ * first, without holding the write lock, and only hand the finished objects to the writer, so other
+ * writers (including the UI) never wait on the network.
+ *
+ * When one of the writes throws, the whole transaction is cancelled and nothing is saved, the
+ * transaction is never left open. The time from begin to close, including waiting for the write lock,
+ * is the write time in DatasetMetrics.
+ */
+public class StagedWriter<S> {
+    private final Transactor<S> transactor;
+
+    public StagedWriter(Transactor<S> transactor) {
+        this.transactor = transactor;
+    }
+
+    public void commit(StagedWrite<S> write) {
+        commit(Collections.singletonList(write));
+    }
+
+    public void commit(List<? extends StagedWrite<S>> writes) {
+        S store = transactor.open();
+        long start = System.nanoTime();
+        Trace.Span span = Trace.begin("write", "commit");
+        try {
+            //Waiting for the write lock shows up as its own span, that is where writers contend
+            Trace.Span lock = Trace.begin("write", "begin");
+            transactor.begin(store);
+            lock.end();
+            try {
+                for (StagedWrite<S> write : writes) {
+                    write.apply(store);
+                }
+                transactor.commit(store);
+            } catch (RuntimeException e) {
+                transactor.cancel(store);
+                throw e;
+            }
+        } finally {
+            transactor.close(store);
+            DatasetMetrics.recordWrite(System.nanoTime() - start);
+            span.end();
+        }
+    }
+}
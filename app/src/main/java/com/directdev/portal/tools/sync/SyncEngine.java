@@ -0,0 +1,146 @@
+package com.directdev.portal.tools.sync;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs datasets of a refresh on a small pool of worker threads, so independent endpoints are
+ * downloaded at the same time instead of one after another like the old IntentService queue did.
+ *
+ * The order between datasets comes from the dependencies declared in Dataset, see RefreshGraph. A
+ * dataset is handed to a worker as soon as the datasets it depends on are done, and when one of them
+ * fails only the datasets that need it are skipped.
+ *
+ * Datasets that wait for a worker are started by Dataset.Priority, FOREGROUND ones first, and in the
+ * order they became ready within a priority. A BACKGROUND dataset that is already running isn't
+ * stopped, but it can't take a worker from a FOREGROUND one that becomes ready after it, and its
+ * requests go to Volley at a lower priority (see currentDataset()).
+ */
+public class SyncEngine {
+    //Volley has VolleySingleton.networkThreads (6) to send requests with, and grades and resources keep
+    //several of their requests in flight at once (UpdateService.fetchParallelism). 4 datasets at a
+    //time keep those threads busy, more workers would only queue more requests behind them.
+    public static final int DEFAULT_WORKERS = 4;
+    private static final long KEEP_ALIVE_SECONDS = 30;
+
+    //The dataset each worker is running
+    private static final ThreadLocal<Dataset> running = new ThreadLocal<>();
+
+    private final ThreadPoolExecutor executor;
+    //Keeps datasets of the same priority in the order they were queued in
+    private final AtomicLong sequence = new AtomicLong();
+
+    public SyncEngine(int workers) {
+        executor = new ThreadPoolExecutor(workers, workers, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new PriorityBlockingQueue<Runnable>(), new WorkerFactory());
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Adds the datasets to the refresh graph and starts the ones that are ready. Every dataset must
+     * already be expected by the refresh, and every one of them will be finished on the refresh, even
+     * when it is skipped or cancelled.
+     */
+    public void submit(RefreshHandle refresh, Collection<Dataset> datasets, SyncTask task) {
+        dispatch(refresh, refresh.graph.add(datasets, task));
+    }
+
+    private void dispatch(final RefreshHandle refresh, RefreshGraph.Step step) {
+        for (Dataset dataset : step.skipped) {
+            long now = System.currentTimeMillis();
+            refresh.finish(new SyncResult(dataset, SyncResult.Outcome.SKIPPED, now, now));
+        }
+        //Idle workers take the first datasets right away, without going through the queue
+        for (Dataset.Priority priority : Dataset.Priority.values()) {
+            for (Map.Entry<Dataset, SyncTask> entry : step.ready.entrySet()) {
+                if (entry.getKey().getPriority() == priority) {
+                    executor.execute(new Job(refresh, entry.getKey(), entry.getValue(), sequence.getAndIncrement()));
+                }
+            }
+        }
+    }
+
+    /**
+     * The dataset that the calling thread is running, or null when it isn't a worker of a SyncEngine
+     * (or not running a dataset at the moment)
+     */
+    public static Dataset currentDataset() {
+        return running.get();
+    }
+
+    //queuedAt is the System.nanoTime() of when the dataset was handed to the executor
+    private SyncResult runOne(RefreshHandle refresh, Dataset dataset, SyncTask task, long queuedAt) {
+        long start = System.currentTimeMillis();
+        long startNanos = System.nanoTime();
+        Trace.complete("queue", dataset.name(), queuedAt, startNanos);
+        Trace.Span span = Trace.begin("dataset", dataset.name());
+        SyncResult.Outcome outcome;
+        DatasetMetrics metrics = DatasetMetrics.begin(TimeUnit.NANOSECONDS.toMillis(startNanos - queuedAt));
+        running.set(dataset);
+        try {
+            if (refresh.isCancelled()) {
+                outcome = SyncResult.Outcome.CANCELLED;
+            } else {
+                try {
+                    outcome = task.run(dataset);
+                } catch (Exception e) {
+                    outcome = SyncResult.Outcome.FAILED;
+                }
+            }
+        } finally {
+            running.remove();
+            DatasetMetrics.end();
+            span.end();
+        }
+        return new SyncResult(dataset, outcome, start, System.currentTimeMillis(), metrics);
+    }
+
+    private class Job implements Runnable, Comparable<Job> {
+        final RefreshHandle refresh;
+        final Dataset dataset;
+        final SyncTask task;
+        final long sequence;
+        final long queuedAt = System.nanoTime();
+
+        Job(RefreshHandle refresh, Dataset dataset, SyncTask task, long sequence) {
+            this.refresh = refresh;
+            this.dataset = dataset;
+            this.task = task;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public void run() {
+            SyncResult result = runOne(refresh, dataset, task, queuedAt);
+            RefreshGraph.Step next = refresh.graph.complete(dataset, result.getOutcome());
+            refresh.finish(result);
+            dispatch(refresh, next);
+        }
+
+        @Override
+        public int compareTo(Job other) {
+            int byPriority = dataset.getPriority().compareTo(other.dataset.getPriority());
+            if (byPriority != 0) {
+                return byPriority;
+            }
+            return sequence < other.sequence ? -1 : (sequence == other.sequence ? 0 : 1);
+        }
+    }
+
+    private static class WorkerFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "SyncEngine-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.directdev.portal.tools.sync;
+
+/**
+ * What happened to one dataset during a refresh
+ */
+public class SyncResult {
+    public enum Outcome {
+        SUCCESS,
+        //The server sent the same data as last time, nothing was parsed or saved
+        NOT_MODIFIED,
+        FAILED,
+        //A dataset it depends on didn't succeed
+        SKIPPED,
+        CANCELLED;
+
+        public boolean isSuccessful() {
+            return this == SUCCESS || this == NOT_MODIFIED;
+        }
+    }
+
+    private final Dataset dataset;
+    private final Outcome outcome;
+    private final long startedAt;
+    private final long finishedAt;
+    private final DatasetMetrics metrics;
+
+    public SyncResult(Dataset dataset, Outcome outcome, long startedAt, long finishedAt) {
+        this(dataset, outcome, startedAt, finishedAt, new DatasetMetrics());
+    }
+
+    public SyncResult(Dataset dataset, Outcome outcome, long startedAt, long finishedAt, DatasetMetrics metrics) {
+        this.dataset = dataset;
+        this.outcome = outcome;
+        this.startedAt = startedAt;
+        this.finishedAt = finishedAt;
+        this.metrics = metrics;
+    }
+
+    public Dataset getDataset() {
+        return dataset;
+    }
+
+    public Outcome getOutcome() {
+        return outcome;
+    }
+
+    public long getStartedAt() {
+        return startedAt;
+    }
+
+    public long getFinishedAt() {
+        return finishedAt;
+    }
+
+    public long getDuration() {
+        return finishedAt - startedAt;
+    }
+
+    public DatasetMetrics getMetrics() {
+        return metrics;
+    }
+
+    @Override
+    public String toString() {
+        return dataset + " " + outcome + " in " + getDuration() + "ms (" + metrics + ")";
+    }
+}
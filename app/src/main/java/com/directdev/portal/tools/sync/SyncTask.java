@@ -0,0 +1,9 @@
+package com.directdev.portal.tools.sync;
+
+/**
+ * The work that downloads and saves one dataset, SyncEngine calls this from one of its worker
+ * threads. Throwing is treated the same as returning FAILED.
+ */
+public interface SyncTask {
+    SyncResult.Outcome run(Dataset dataset) throws Exception;
+}
@@ -0,0 +1,151 @@
+package com.directdev.portal.tools.sync;
+
+import com.directdev.portal.tools.helper.GsonHelper;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps a TelemetryRecord of every dataset that finished, to find out whether a slow refresh was
+ * waiting on the network, on parsing or on Realm.
+ *
+ * The latest records are kept in memory in a ring of fixed size. Every record is also appended to a
+ * CSV log on disk, when the log gets bigger than maxLogBytes it becomes the old log (replacing the
+ * one before) and a new log is started, so the disk holds between one and two logs worth of records.
+ *
+ * The log is best effort, when it can't be written the record is still kept in memory and the
+ * refresh goes on.
+ */
+public class Telemetry {
+    public static final int DEFAULT_CAPACITY = 200;
+    public static final long DEFAULT_MAX_LOG_BYTES = 128 * 1024;
+    private static final String LOG = "telemetry.csv";
+    private static final String OLD_LOG = "telemetry.1.csv";
+
+    private final TelemetryRecord[] ring;
+    private final File log;
+    private final File oldLog;
+    private final long maxLogBytes;
+    private int next = 0;
+    private int size = 0;
+
+    public Telemetry(File dir) {
+        this(dir, DEFAULT_CAPACITY, DEFAULT_MAX_LOG_BYTES);
+    }
+
+    public Telemetry(File dir, int capacity, long maxLogBytes) {
+        ring = new TelemetryRecord[capacity];
+        log = new File(dir, LOG);
+        oldLog = new File(dir, OLD_LOG);
+        this.maxLogBytes = maxLogBytes;
+    }
+
+    public void record(SyncResult result) {
+        record(TelemetryRecord.of(result));
+    }
+
+    public synchronized void record(TelemetryRecord record) {
+        ring[next] = record;
+        next = (next + 1) % ring.length;
+        size = Math.min(size + 1, ring.length);
+        append(record);
+    }
+
+    //The records in memory, oldest first
+    public synchronized List<TelemetryRecord> getRecent() {
+        List<TelemetryRecord> records = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            records.add(ring[(next - size + i + ring.length) % ring.length]);
+        }
+        return records;
+    }
+
+    public List<TelemetryRecord> getRecent(Dataset dataset) {
+        List<TelemetryRecord> records = new ArrayList<>();
+        for (TelemetryRecord record : getRecent()) {
+            if (record.getDataset() == dataset) {
+                records.add(record);
+            }
+        }
+        return records;
+    }
+
+    //Every record still on disk, oldest first, this goes further back than getRecent()
+    public synchronized List<TelemetryRecord> readLog() {
+        List<TelemetryRecord> records = new ArrayList<>();
+        read(oldLog, records);
+        read(log, records);
+        return records;
+    }
+
+    public synchronized void clear() {
+        for (int i = 0; i < ring.length; i++) {
+            ring[i] = null;
+        }
+        next = 0;
+        size = 0;
+        log.delete();
+        oldLog.delete();
+    }
+
+    public static String toCsv(List<TelemetryRecord> records) {
+        StringBuilder csv = new StringBuilder(TelemetryRecord.CSV_HEADER).append('\n');
+        for (TelemetryRecord record : records) {
+            csv.append(record.toCsv()).append('\n');
+        }
+        return csv.toString();
+    }
+
+    public static String toJson(List<TelemetryRecord> records) {
+        return GsonHelper.get().toJson(records);
+    }
+
+    private void append(TelemetryRecord record) {
+        try {
+            if (log.length() >= maxLogBytes) {
+                oldLog.delete();
+                log.renameTo(oldLog);
+            }
+            boolean header = !log.exists();
+            Writer writer = new FileWriter(log, true);
+            try {
+                if (header) {
+                    writer.write(TelemetryRecord.CSV_HEADER + "\n");
+                }
+                writer.write(record.toCsv() + "\n");
+            } finally {
+                writer.close();
+            }
+        } catch (IOException e) {
+            //Only the log is lost, see the class comment
+        }
+    }
+
+    private static void read(File file, List<TelemetryRecord> records) {
+        if (!file.exists()) {
+            return;
+        }
+        try {
+            BufferedReader reader = new BufferedReader(new FileReader(file));
+            try {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    TelemetryRecord record = TelemetryRecord.fromCsv(line);
+                    if (record != null) {
+                        records.add(record);
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        } catch (IOException e) {
+            //A log that can't be read has nothing to add
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.directdev.portal.tools.sync;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One finished dataset in the telemetry: the SyncResult and its DatasetMetrics flattened into one
+ * row, with the times in milliseconds. This is also one line of the CSV log.
+ */
+public class TelemetryRecord {
+    static final String CSV_HEADER = "finishedAt,dataset,outcome,durationMs,queueWaitMs,requests,failedRequests,"
+            + "bytes,firstByteMs,downloadMs,parseMs,writeMs,rowsChanged";
+    private static final int COLUMNS = 13;
+
+    private final long finishedAt;
+    private final Dataset dataset;
+    private final SyncResult.Outcome outcome;
+    private final long durationMs;
+    private final long queueWaitMs;
+    private final int requests;
+    private final int failedRequests;
+    private final long bytes;
+    private final long firstByteMs;
+    private final long downloadMs;
+    private final long parseMs;
+    private final long writeMs;
+    private final int rowsChanged;
+
+    public TelemetryRecord(long finishedAt, Dataset dataset, SyncResult.Outcome outcome, long durationMs,
+                           long queueWaitMs, int requests, int failedRequests, long bytes, long firstByteMs,
+                           long downloadMs, long parseMs, long writeMs, int rowsChanged) {
+        this.finishedAt = finishedAt;
+        this.dataset = dataset;
+        this.outcome = outcome;
+        this.durationMs = durationMs;
+        this.queueWaitMs = queueWaitMs;
+        this.requests = requests;
+        this.failedRequests = failedRequests;
+        this.bytes = bytes;
+        this.firstByteMs = firstByteMs;
+        this.downloadMs = downloadMs;
+        this.parseMs = parseMs;
+        this.writeMs = writeMs;
+        this.rowsChanged = rowsChanged;
+    }
+
+    public static TelemetryRecord of(SyncResult result) {
+        DatasetMetrics metrics = result.getMetrics();
+        return new TelemetryRecord(result.getFinishedAt(), result.getDataset(), result.getOutcome(),
+                result.getDuration(), metrics.getQueueWaitMillis(), metrics.getRequests(),
+                metrics.getFailedRequests(), metrics.getBytes(), millis(metrics.getFirstByteNanos()),
+                millis(metrics.getDownloadNanos()), millis(metrics.getParseNanos()),
+                millis(metrics.getWriteNanos()), metrics.getRowsChanged());
+    }
+
+    //Returns null for lines that aren't a record, eg. the header or a line cut off by a crash
+    static TelemetryRecord fromCsv(String line) {
+        String[] columns = line.split(",");
+        if (columns.length != COLUMNS) {
+            return null;
+        }
+        try {
+            return new TelemetryRecord(Long.parseLong(columns[0]), Dataset.valueOf(columns[1]),
+                    SyncResult.Outcome.valueOf(columns[2]), Long.parseLong(columns[3]), Long.parseLong(columns[4]),
+                    Integer.parseInt(columns[5]), Integer.parseInt(columns[6]), Long.parseLong(columns[7]),
+                    Long.parseLong(columns[8]), Long.parseLong(columns[9]), Long.parseLong(columns[10]),
+                    Long.parseLong(columns[11]), Integer.parseInt(columns[12]));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    String toCsv() {
+        return finishedAt + "," + dataset + "," + outcome + "," + durationMs + "," + queueWaitMs + "," + requests
+                + "," + failedRequests + "," + bytes + "," + firstByteMs + "," + downloadMs + "," + parseMs + ","
+                + writeMs + "," + rowsChanged;
+    }
+
+    private static long millis(long nanos) {
+        return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+
+    public long getFinishedAt() {
+        return finishedAt;
+    }
+
+    public Dataset getDataset() {
+        return dataset;
+    }
+
+    public SyncResult.Outcome getOutcome() {
+        return outcome;
+    }
+
+    public long getDurationMs() {
+        return durationMs;
+    }
+
+    public long getQueueWaitMs() {
+        return queueWaitMs;
+    }
+
+    public int getRequests() {
+        return requests;
+    }
+
+    public int getFailedRequests() {
+        return failedRequests;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    public long getFirstByteMs() {
+        return firstByteMs;
+    }
+
+    public long getDownloadMs() {
+        return downloadMs;
+    }
+
+    public long getParseMs() {
+        return parseMs;
+    }
+
+    public long getWriteMs() {
+        return writeMs;
+    }
+
+    public int getRowsChanged() {
+        return rowsChanged;
+    }
+
+    @Override
+    public String toString() {
+        return toCsv();
+    }
+}
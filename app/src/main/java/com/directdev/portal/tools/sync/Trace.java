@@ -0,0 +1,163 @@
+package com.directdev.portal.tools.sync;
+
+import com.google.gson.stream.JsonWriter;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Spans of a refresh (login, each fetch, parse and Realm write) in the Chrome trace event format, so
+ * a refresh can be opened in Perfetto or chrome://tracing to see what ran at the same time and what
+ * waited on what.
+ *
+ * Off unless setEnabled(true) is called (Portal does it when the traceRefresh pref is set). When it
+ * is off begin() returns the same Span.NONE every time, so the cost of a span is one volatile read.
+ *
+ * Spans are kept in memory until flush() writes them to a file, UpdateService does it when a refresh
+ * finishes. Anything over MAX_EVENTS is dropped, so a trace that is never flushed can't grow forever.
+ */
+public class Trace {
+    public static final int MAX_EVENTS = 50000;
+
+    private static volatile boolean enabled = false;
+    private static final List<Event> events = new ArrayList<>();
+    private static final Map<Long, String> threads = new HashMap<>();
+
+    public static class Span {
+        public static final Span NONE = new Span(null, null, 0);
+
+        private final String category;
+        private final String name;
+        private final long start;
+
+        private Span(String category, String name, long start) {
+            this.category = category;
+            this.name = name;
+            this.start = start;
+        }
+
+        public void end() {
+            if (this != NONE) {
+                complete(category, name, start, System.nanoTime());
+            }
+        }
+    }
+
+    private static class Event {
+        final String category;
+        final String name;
+        final long start;
+        final long end;
+        final long thread;
+
+        Event(String category, String name, long start, long end, long thread) {
+            this.category = category;
+            this.name = name;
+            this.start = start;
+            this.end = end;
+            this.thread = thread;
+        }
+    }
+
+    public static void setEnabled(boolean enabled) {
+        Trace.enabled = enabled;
+        if (!enabled) {
+            synchronized (events) {
+                events.clear();
+                threads.clear();
+            }
+        }
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    //Ended on the same thread, eg. Span span = Trace.begin("parse", "Schedule"); try {...} finally {span.end();}
+    public static Span begin(String category, String name) {
+        if (!enabled) {
+            return Span.NONE;
+        }
+        return new Span(category, name, System.nanoTime());
+    }
+
+    /**
+     * A span that was timed somewhere else, start and end are System.nanoTime(). It shows up on the
+     * thread that calls this.
+     */
+    public static void complete(String category, String name, long start, long end) {
+        if (!enabled) {
+            return;
+        }
+        Thread thread = Thread.currentThread();
+        synchronized (events) {
+            if (events.size() < MAX_EVENTS) {
+                events.add(new Event(category, name, start, end, thread.getId()));
+                threads.put(thread.getId(), thread.getName());
+            }
+        }
+    }
+
+    /**
+     * Writes the spans so far to the file as a trace event JSON and forgets them. Nothing is written
+     * when there are no spans. Returns whether the file was written.
+     */
+    public static boolean flush(File file) throws IOException {
+        List<Event> flushed;
+        Map<Long, String> names;
+        synchronized (events) {
+            if (events.isEmpty()) {
+                return false;
+            }
+            flushed = new ArrayList<>(events);
+            names = new HashMap<>(threads);
+            events.clear();
+        }
+        File dir = file.getParentFile();
+        if (dir != null && !dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Can't create " + dir);
+        }
+        JsonWriter writer = new JsonWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8"));
+        try {
+            write(writer, flushed, names);
+        } finally {
+            writer.close();
+        }
+        return true;
+    }
+
+    private static void write(JsonWriter writer, List<Event> flushed, Map<Long, String> names) throws IOException {
+        writer.beginObject();
+        writer.name("displayTimeUnit").value("ms");
+        writer.name("traceEvents").beginArray();
+        for (Map.Entry<Long, String> thread : names.entrySet()) {
+            writer.beginObject();
+            writer.name("name").value("thread_name");
+            writer.name("ph").value("M");
+            writer.name("pid").value(1);
+            writer.name("tid").value(thread.getKey());
+            writer.name("args").beginObject().name("name").value(thread.getValue()).endObject();
+            writer.endObject();
+        }
+        for (Event event : flushed) {
+            //Complete events, the times are in microseconds
+            writer.beginObject();
+            writer.name("name").value(event.name);
+            writer.name("cat").value(event.category);
+            writer.name("ph").value("X");
+            writer.name("ts").value(event.start / 1000);
+            writer.name("dur").value(Math.max(0, event.end - event.start) / 1000);
+            writer.name("pid").value(1);
+            writer.name("tid").value(event.thread);
+            writer.endObject();
+        }
+        writer.endArray();
+        writer.endObject();
+    }
+}
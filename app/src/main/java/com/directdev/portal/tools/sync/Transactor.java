@@ -0,0 +1,17 @@
+package com.directdev.portal.tools.sync;
+
+/**
+ * Opens and commits write transactions on a store for StagedWriter. The app uses RealmTransactor,
+ * tests can use anything that records when the write lock is taken and released.
+ */
+public interface Transactor<S> {
+    S open();
+
+    void begin(S store);
+
+    void commit(S store);
+
+    void cancel(S store);
+
+    void close(S store);
+}
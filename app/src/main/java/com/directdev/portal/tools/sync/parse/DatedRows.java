@@ -0,0 +1,15 @@
+package com.directdev.portal.tools.sync.parse;
+
+import com.directdev.portal.tools.model.Dates;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Rows of a dataset together with the Dates keys of those rows, both come out of the same pass over
+ * the response
+ */
+public class DatedRows<T> {
+    public final List<T> rows = new ArrayList<>();
+    public final List<Dates> dates = new ArrayList<>();
+}
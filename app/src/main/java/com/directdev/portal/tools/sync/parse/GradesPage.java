@@ -0,0 +1,13 @@
+package com.directdev.portal.tools.sync.parse;
+
+import com.directdev.portal.tools.model.Grades;
+import com.directdev.portal.tools.model.GradesCourse;
+
+import java.util.ArrayList;
+import java.util.List;
+
+//Grades of one term, every element of "score" is both a Grades and a GradesCourse
+public class GradesPage {
+    public final List<Grades> grades = new ArrayList<>();
+    public final List<GradesCourse> courses = new ArrayList<>();
+}
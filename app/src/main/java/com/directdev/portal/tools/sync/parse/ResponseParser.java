@@ -0,0 +1,237 @@
+package com.directdev.portal.tools.sync.parse;
+
+import com.directdev.portal.tools.model.Course;
+import com.directdev.portal.tools.model.Dates;
+import com.directdev.portal.tools.model.Exam;
+import com.directdev.portal.tools.model.Finance;
+import com.directdev.portal.tools.model.Grades;
+import com.directdev.portal.tools.model.GradesCourse;
+import com.directdev.portal.tools.model.Resource;
+import com.directdev.portal.tools.model.Schedule;
+import com.directdev.portal.tools.model.Terms;
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Parses Binusmaya responses in one pass with a JsonReader.
+ *
+ * Before this, a response went String -> JSONObject, had fields put into every element, went back to
+ * a String with toString(), and was then parsed by Gson twice, once for the rows and once for the
+ * Dates. Here only one element is held as a tree at a time, the injected fields (STRM, description,
+ * courseOutlineTopicID) are added to that tree, and the rows and Dates are both taken from it.
+ *
+ * Every malformed or unexpected response ends up as a JsonParseException.
+ */
+public class ResponseParser {
+    private interface ElementVisitor {
+        void visit(JsonObject element);
+    }
+
+    private final Gson gson;
+    private final TypeAdapter<JsonElement> tree;
+
+    public ResponseParser(Gson gson) {
+        this.gson = gson;
+        this.tree = gson.getAdapter(JsonElement.class);
+    }
+
+    //[{...Date...}, ...]
+    public DatedRows<Schedule> schedules(Reader in) {
+        return dated(in, null, Schedule.class, "Date");
+    }
+
+    //[{...ExamDate...}, ...]
+    public DatedRows<Exam> exams(Reader in) {
+        return dated(in, null, Exam.class, "ExamDate");
+    }
+
+    //{"Status":[{...ITEM_EFFECTIVE_DT...}, ...]}
+    public DatedRows<Finance> finances(Reader in) {
+        return dated(in, "Status", Finance.class, "ITEM_EFFECTIVE_DT");
+    }
+
+    //[{"field":...,"value":...}, ...]
+    public List<Terms> terms(Reader in) {
+        final List<Terms> terms = new ArrayList<>();
+        eachObject(in, null, new ElementVisitor() {
+            @Override
+            public void visit(JsonObject element) {
+                terms.add(gson.fromJson(element, Terms.class));
+            }
+        });
+        return terms;
+    }
+
+    //{"score":[...]}, the term isn't in the response so it is put into every element
+    public GradesPage grades(Reader in, final String strm) {
+        final GradesPage page = new GradesPage();
+        eachObject(in, "score", new ElementVisitor() {
+            @Override
+            public void visit(JsonObject element) {
+                element.addProperty("STRM", strm);
+                page.grades.add(gson.fromJson(element, Grades.class));
+                page.courses.add(gson.fromJson(element, GradesCourse.class));
+            }
+        });
+        return page;
+    }
+
+    //{"Courses":[...]}, the term isn't in the response so it is put into every element
+    public List<Course> courses(Reader in, final String strm) {
+        final List<Course> courses = new ArrayList<>();
+        eachObject(in, "Courses", new ElementVisitor() {
+            @Override
+            public void visit(JsonObject element) {
+                element.addProperty("STRM", strm);
+                courses.add(gson.fromJson(element, Course.class));
+            }
+        });
+        return courses;
+    }
+
+    /**
+     * {"Path":[...], "Resources":[...]}. Every path is saved under the COURSEID as its description,
+     * and its courseOutlineTopicID is replaced by the sessionIDNUM of the first session with the same
+     * courseOutlineTopicID. Returns an empty list when the course has no path.
+     */
+    public List<Resource> resources(Reader in, String courseId) {
+        List<JsonObject> paths = null;
+        Map<Integer, String> sessions = null;
+        JsonReader reader = new JsonReader(in);
+        try {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                if (name.equals("Path")) {
+                    paths = readObjects(reader);
+                } else if (name.equals("Resources")) {
+                    sessions = new HashMap<>();
+                    for (JsonObject session : readObjects(reader)) {
+                        Integer topic = required(session, "courseOutlineTopicID").getAsInt();
+                        if (!sessions.containsKey(topic)) {
+                            sessions.put(topic, required(session, "sessionIDNUM").getAsString());
+                        }
+                    }
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+        } catch (IOException | IllegalStateException | NumberFormatException e) {
+            throw new JsonParseException(e);
+        }
+        if (paths == null) {
+            throw new JsonParseException("No Path in resources of " + courseId);
+        }
+        if (!paths.isEmpty() && sessions == null) {
+            throw new JsonParseException("No Resources in resources of " + courseId);
+        }
+
+        List<Resource> resources = new ArrayList<>(paths.size());
+        try {
+            for (JsonObject path : paths) {
+                path.addProperty("description", courseId);
+                String session = sessions.get(required(path, "courseOutlineTopicID").getAsInt());
+                if (session != null) {
+                    path.addProperty("courseOutlineTopicID", session);
+                }
+                resources.add(gson.fromJson(path, Resource.class));
+            }
+        } catch (IllegalStateException | NumberFormatException e) {
+            throw new JsonParseException(e);
+        }
+        return resources;
+    }
+
+    private <T> DatedRows<T> dated(Reader in, String field, final Class<T> type, final String dateField) {
+        final DatedRows<T> result = new DatedRows<>();
+        eachObject(in, field, new ElementVisitor() {
+            @Override
+            public void visit(JsonObject element) {
+                result.rows.add(gson.fromJson(element, type));
+                JsonElement date = element.get(dateField);
+                if (date != null && !date.isJsonNull()) {
+                    Dates dates = new Dates();
+                    dates.setDatePK(date.getAsString());
+                    result.dates.add(dates);
+                }
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Visits every element of the array, which is either the whole response when field is null, or
+     * the given field of the response object
+     */
+    private void eachObject(Reader in, String field, ElementVisitor visitor) {
+        JsonReader reader = new JsonReader(in);
+        try {
+            if (field == null) {
+                eachObject(reader, visitor);
+                return;
+            }
+            boolean found = false;
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if (reader.nextName().equals(field)) {
+                    eachObject(reader, visitor);
+                    found = true;
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+            if (!found) {
+                throw new JsonParseException("No " + field + " in response");
+            }
+        } catch (IOException | IllegalStateException | NumberFormatException e) {
+            throw new JsonParseException(e);
+        }
+    }
+
+    private void eachObject(JsonReader reader, ElementVisitor visitor) throws IOException {
+        reader.beginArray();
+        while (reader.hasNext()) {
+            visitor.visit(readObject(reader));
+        }
+        reader.endArray();
+    }
+
+    private List<JsonObject> readObjects(JsonReader reader) throws IOException {
+        List<JsonObject> objects = new ArrayList<>();
+        reader.beginArray();
+        while (reader.hasNext()) {
+            objects.add(readObject(reader));
+        }
+        reader.endArray();
+        return objects;
+    }
+
+    private JsonObject readObject(JsonReader reader) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            throw new JsonParseException("Expected an object but was " + reader.peek());
+        }
+        return tree.read(reader).getAsJsonObject();
+    }
+
+    private static JsonElement required(JsonObject object, String name) {
+        JsonElement element = object.get(name);
+        if (element == null || element.isJsonNull()) {
+            throw new JsonParseException("No " + name + " in " + object);
+        }
+        return element;
+    }
+}
@@ -1,26 +1,20 @@
 package com.directdev.portal.ui.access;
 
-import android.content.SharedPreferences;
-import android.graphics.Bitmap;
 import android.net.ConnectivityManager;
 import android.net.NetworkInfo;
 import android.os.Bundle;
 import android.support.v7.app.AppCompatActivity;
-import android.util.Log;
-import android.webkit.WebSettings;
-import android.webkit.WebView;
-import android.webkit.WebViewClient;
 import android.widget.TextView;
 
 import com.directdev.portal.R;
+import com.directdev.portal.tools.event.LoginFinishEvent;
+import com.directdev.portal.tools.helper.LoginTask;
+import com.directdev.portal.tools.helper.Pref;
+
+import de.greenrobot.event.EventBus;
 
 
 public class LoginAuthorization extends AppCompatActivity {
-    private static final String TAG = "LoginAuthorization";
-    private static String USERNAME = "false";
-    private static String PASSWORD = "b!false";
-    protected SharedPreferences sharedPreferences;
-    protected SharedPreferences.Editor edit;
     private Bundle bundle;
 
     @Override
@@ -38,62 +32,23 @@ public class LoginAuthorization extends AppCompatActivity {
                 activeNetwork.isConnectedOrConnecting();
         if (!isConnected) {
             finish();
+            return;
         }
-        sharedPreferences = getSharedPreferences(getString(R.string.shared_preferences), MODE_PRIVATE);
-        edit = sharedPreferences.edit();
-        edit.putInt("LoginAttempt", 0);
-        edit.commit();
-        USERNAME = sharedPreferences.getString(getString(R.string.login_username_pref), "");
-        PASSWORD = sharedPreferences.getString(getString(R.string.login_password_pref), "");
-        final WebView webView = (WebView) findViewById(R.id.loginWebView);
-        WebSettings webSettings = webView.getSettings();
-        webSettings.setJavaScriptEnabled(true);
-        LoginWebView browser = new LoginWebView();
-        webView.setWebViewClient(browser);
-        webView.loadUrl("https://newbinusmaya.binus.ac.id/login.php");
+        EventBus.getDefault().register(this);
+        LoginTask.start(this);
     }
 
-    private class LoginWebView extends WebViewClient {
-        @Override
-        public void onPageFinished(WebView webView, String url) {
-            try {
-                if (sharedPreferences.getInt("LoginAttempt", 0) == 4 && sharedPreferences.getInt(getString(R.string.login_condition_pref), 0) == 0) {
-                    edit.putInt(getString(R.string.login_condition_pref), 0).commit();
-                    finish();
-                }
-                if (sharedPreferences.getInt("LoginAttempt", 0) < 4) {
-                    int tries = sharedPreferences.getInt("LoginAttempt", 0);
-                    tries = tries + 1;
-                    webView.loadUrl("javascript:(function () {document.getElementById('ctl00_ContentPlaceHolder1_UsernameTextBoxBMNew').value='" + USERNAME + "'})()");
-                    webView.loadUrl("javascript:(function () {document.getElementById('ctl00_ContentPlaceHolder1_PasswordTextBoxBMNew').value='" + PASSWORD + "'})()");
-                    webView.loadUrl("javascript:(function () {document.getElementById('ctl00_ContentPlaceHolder1_SubmitButtonBMNew').click()})()");
-                    edit.putInt("LoginAttempt", tries).commit();
-                }
-            } catch (NullPointerException e) {
-                //We detected crashes involving NullPointerException coming from this method
-                //This will catch the crash and send back crash data to us.
-                finish();
-            }
-        }
-
-        @Override
-        public void onPageStarted(WebView view, String url, Bitmap favicon) {
-            Log.d(TAG, "onPageStarted: "+url);
-            super.onPageStarted(view, url, favicon);
-        }
+    @Override
+    protected void onDestroy() {
+        EventBus.getDefault().unregister(this);
+        super.onDestroy();
+    }
 
-        @Override
-        public boolean shouldOverrideUrlLoading(WebView view, String url) {
-            if (url.equals("https://newbinusmaya.binus.ac.id/newStudent/")) {
-                view.stopLoading();
-                String cookie = android.webkit.CookieManager.getInstance().getCookie("https://newbinusmaya.binus.ac.id/student/#/index/dashboard");
-                edit.putString(getString(R.string.login_cookie_pref), cookie)
-                        .putInt(getString(R.string.login_condition_pref), 1)
-                        .putBoolean(getString(R.string.is_no_session), false)
-                        .commit();
-                finish();
-            }
-            return super.shouldOverrideUrlLoading(view, url);
+    //LoginTask already saved the cookie when it signed in, see LoginActivity for what happens next
+    public void onEventMainThread(LoginFinishEvent event) {
+        if (event.result != LoginFinishEvent.SIGNED_IN) {
+            Pref.save(this, getString(R.string.login_condition_pref), 0);
         }
+        finish();
     }
 }
@@ -32,8 +32,10 @@ import com.crashlytics.android.answers.ContentViewEvent;
 import com.directdev.portal.R;
 import com.directdev.portal.tools.event.RecyclerClickEvent;
 import com.directdev.portal.tools.event.UpdateErrorEvent;
+import com.directdev.portal.tools.helper.ConnectionWarmer;
 import com.directdev.portal.tools.helper.MainViewPagerAdapter;
 import com.directdev.portal.tools.helper.Pref;
+import com.directdev.portal.tools.helper.VolleySingleton;
 import com.directdev.portal.tools.model.Resource;
 import com.directdev.portal.ui.access.LoginActivity;
 import com.directdev.portal.ui.access.WebappActivity;
@@ -75,6 +77,11 @@ public class MainActivity extends AppCompatActivity {
         EventBus.getDefault().register(this);
         realm = Realm.getDefaultInstance();
         textToShow = 0;
+
+        //Opens the connection to Binusmaya now, so the next refresh doesn't wait for it
+        if (Pref.read(this, R.string.login_data_given_pref, 0) == 1) {
+            ConnectionWarmer.start(VolleySingleton.usesLegacyTransport(this));
+        }
     }
 
     @Override
@@ -0,0 +1,52 @@
+package com.directdev.portal.ui.main.journal;
+
+import com.directdev.portal.tools.model.Dates;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * The dates shown in the Journal, taken out of JournalFragment.dateSetup() so it can run without a
+ * fragment (see the benchmarks module).
+ */
+public class JournalDates {
+
+    /**
+     * Every saved date from today on, sorted. Today is added as well when there is any upcoming
+     * date, so the journal always starts at today.
+     */
+    public static List<Date> upcoming(List<Dates> dateData, Date now) {
+        List<Date> dates = new LinkedList<>();
+        String tempHolder;
+        boolean noToday = true;
+        Date today = now;
+        Date tested;
+        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd", Locale.getDefault());
+
+        tempHolder = sdf.format(today);
+        try{
+            today =sdf.parse(tempHolder);
+            for (int i = 0 ; i < dateData.size() ; i++){
+                tested = sdf.parse(dateData.get(i).getDatePK());
+                if(tested.after(today)||tested.equals(today)) {
+                    dates.add(tested);
+                }
+            }
+            for (Date date:dates) {
+                if(date.equals(today)){
+                    noToday = false;
+                }
+            }
+            if (noToday && !dates.isEmpty()){
+                dates.add(sdf.parse(sdf.format(today)));
+            }
+        }catch (ParseException e){}
+        Collections.sort(dates);
+        return dates;
+    }
+}
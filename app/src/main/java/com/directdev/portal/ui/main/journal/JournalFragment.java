@@ -17,20 +17,21 @@ import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
-import android.webkit.WebSettings;
-import android.webkit.WebView;
-import android.webkit.WebViewClient;
 import android.widget.RelativeLayout;
 import android.widget.TextView;
 import android.widget.Toast;
 
-import com.crashlytics.android.Crashlytics;
 import com.directdev.portal.R;
 import com.directdev.portal.tools.event.CantConnectEvent;
+import com.directdev.portal.tools.event.JournalUpdateFinishEvent;
+import com.directdev.portal.tools.event.LoginFinishEvent;
 import com.directdev.portal.tools.event.NotSignedInEvent;
 import com.directdev.portal.tools.event.UpdateFailedEvent;
 import com.directdev.portal.tools.event.UpdateFinishEvent;
+import com.directdev.portal.tools.helper.ConnectionWarmer;
+import com.directdev.portal.tools.helper.LoginTask;
 import com.directdev.portal.tools.helper.Pref;
+import com.directdev.portal.tools.helper.VolleySingleton;
 import com.directdev.portal.tools.model.Dates;
 import com.directdev.portal.tools.services.UpdateService;
 import com.directdev.portal.ui.access.LogoutAuthorization;
@@ -39,9 +40,7 @@ import org.solovyev.android.views.llm.LinearLayoutManager;
 
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
-import java.util.Collections;
 import java.util.Date;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Locale;
 import java.util.concurrent.TimeUnit;
@@ -66,8 +65,8 @@ public class JournalFragment extends Fragment implements SwipeRefreshLayout.OnRe
     private View view;
     private List<Date> dates;
     private Realm realm;
-    private WebView webView;
-    protected boolean isWebLoading = false;
+    //LoginTask is signing in before the refresh
+    protected boolean isSigningIn = false;
     private Snackbar snackbar;
     public JournalFragment() {}
 
@@ -80,15 +79,8 @@ public class JournalFragment extends Fragment implements SwipeRefreshLayout.OnRe
         swipeLayout = (SwipeRefreshLayout) view.findViewById(R.id.journal_refresh);
         swipeLayout.setOnRefreshListener(this);
 
-        webView = (WebView) view.findViewById(R.id.refresh_webView);
-        WebSettings webSettings = webView.getSettings();
-        webSettings.setJavaScriptEnabled(true);
-        LoginWebView browser = new LoginWebView();
-        webView.setWebViewClient(browser);
-
         if(savedInstanceState != null){
-            isWebLoading = savedInstanceState.getBoolean("isWebLoading");
-            webView.restoreState(savedInstanceState);
+            isSigningIn = savedInstanceState.getBoolean("isSigningIn");
         }
         return view;
     }
@@ -124,9 +116,12 @@ public class JournalFragment extends Fragment implements SwipeRefreshLayout.OnRe
 
     @Override
     public void onResume() {
-        //This is to show the circling refresh icon when refresh is happening (UpdateService is running)
-        Log.d(TAG, "onResume: called" + isWebLoading);
-        if (UpdateService.Companion.isActive() || isWebLoading){
+        //This is to show the circling refresh icon while the journal data is refreshing, the rest of the
+        //refresh (grades, courses...) doesn't keep it spinning
+        //The LoginFinishEvent is missed when the login finished while the fragment was stopped
+        isSigningIn = isSigningIn && LoginTask.isRunning();
+        Log.d(TAG, "onResume: called" + isSigningIn);
+        if (UpdateService.Companion.isJournalPending() || isSigningIn){
             Log.d(TAG, "onResume: if one called");
             swipeLayout.post(new Runnable() {
                 @Override
@@ -173,8 +168,7 @@ public class JournalFragment extends Fragment implements SwipeRefreshLayout.OnRe
 
     @Override
     public void onSaveInstanceState(Bundle outState) {
-        outState.putBoolean("isWebLoading", isWebLoading);
-        webView.saveState(outState);
+        outState.putBoolean("isSigningIn", isSigningIn);
         super.onSaveInstanceState(outState);
     }
 
@@ -182,21 +176,49 @@ public class JournalFragment extends Fragment implements SwipeRefreshLayout.OnRe
     @Override
     public void onRefresh() {
         if (isNetworkAvailable()) {
-            isWebLoading = true;
-            webView.loadUrl("https://newbinusmaya.binus.ac.id/login.php");
+            ConnectionWarmer.start(VolleySingleton.usesLegacyTransport(getActivity()));
+            //A session that isn't about to run out is used as it is, see SessionLifetime
+            if (LoginTask.lifetime(getActivity()).shouldRenew(System.currentTimeMillis())) {
+                isSigningIn = true;
+                LoginTask.start(getActivity());
+            } else {
+                refresh();
+            }
         }else {
             swipeLayout.setRefreshing(false);
         }
     }
 
+    /**
+     * all() gives the refresh that is already running, if there is one. When the journal data of that
+     * refresh is already saved, there is nothing left for the spinner to wait for.
+     */
+    private void refresh() {
+        UpdateService.Companion.all(getActivity());
+        if (!UpdateService.Companion.isJournalPending()) {
+            swipeLayout.setRefreshing(false);
+        }
+    }
+
     //Method that is called when EventBus post the UpdateFinishEvent, see UpdateService.java
     public void onEventMainThread(UpdateFinishEvent event) {
+        showUpdate();
+    }
+
+    //Schedule, exam and finance are saved, the rest of the refresh can still be running
+    public void onEventMainThread(JournalUpdateFinishEvent event) {
+        showUpdate();
+    }
+
+    private void showUpdate() {
         dateSetup();
         adapter = new JournalRecyclerAdapter(getActivity(),dates);
         recycler.swapAdapter(adapter, false);
         swipeLayout.setRefreshing(false);
         swipeLayout.setEnabled(true);
-        snackbar.dismiss();
+        if (snackbar != null) {
+            snackbar.dismiss();
+        }
     }
 
     //Method that is called when EventBus post the UpdateFailedEvent, see tools.services.UpdateService.java to see
@@ -206,6 +228,23 @@ public class JournalFragment extends Fragment implements SwipeRefreshLayout.OnRe
         snackbar.dismiss();
     }
 
+    //Method that is called when LoginTask is done, the refresh starts after it signed in
+    public void onEventMainThread(LoginFinishEvent event) {
+        isSigningIn = false;
+        switch (event.result) {
+            case LoginFinishEvent.SIGNED_IN:
+                refresh();
+                break;
+            case LoginFinishEvent.REJECTED:
+                onEventMainThread(new NotSignedInEvent());
+                break;
+            default:
+                swipeLayout.setRefreshing(false);
+                swipeLayout.setEnabled(true);
+                onEventMainThread(new CantConnectEvent());
+        }
+    }
+
     public void onEventMainThread(CantConnectEvent event) {
         Toast.makeText(getActivity(), "Failed to connect, try again later", Toast.LENGTH_LONG).show();
     }
@@ -248,84 +287,8 @@ public class JournalFragment extends Fragment implements SwipeRefreshLayout.OnRe
      *  to display that list.
      */
     private void dateSetup(){
-        //Set the date collection to use
-        dates = new LinkedList<>();
-        String tempHolder;
-        boolean noToday = true;
-        //Get today's date
-        Date today = new Date();
-        Date tested;
-        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd",Locale.getDefault());
         RealmResults<Dates> dateData = realm.where(Dates.class).findAll();
-
-        tempHolder = sdf.format(today);
-        try{
-            today =sdf.parse(tempHolder);
-            for (int i = 0 ; i < dateData.size() ; i++){
-                tested = sdf.parse(dateData.get(i).getDatePK());
-                if(tested.after(today)||tested.equals(today)) {
-                    dates.add(tested);
-                }
-            }
-            for (Date date:dates) {
-                if(date.equals(today)){
-                    noToday = false;
-                }
-            }
-            if (noToday && !dates.isEmpty()){
-                dates.add(sdf.parse(sdf.format(today)));
-            }
-        }catch (ParseException e){}
-        Collections.sort(dates);
-    }
-
-    private class LoginWebView extends WebViewClient {
-        private String USERNAME = Pref.read(getActivity(),getString(R.string.login_username_pref), "");
-        private String PASSWORD = Pref.read(getActivity(),getString(R.string.login_password_pref), "");
-        private Context ctx = getActivity();
-        private int loginFailedCounter = 0;
-
-        @Override
-        public void onPageFinished(WebView webView, final String url) {
-            super.onPageFinished(webView, url);
-            if(loginFailedCounter > 4){
-                loginFailedCounter = 0;
-                webView.loadUrl("http://example.com/");
-                isWebLoading = false;
-                onEventMainThread(new NotSignedInEvent());
-            }else {
-                webView.loadUrl("javascript:(function () {document.getElementById('ctl00_ContentPlaceHolder1_UsernameTextBoxBMNew').value='" + USERNAME + "'})()");
-                webView.loadUrl("javascript:(function () {document.getElementById('ctl00_ContentPlaceHolder1_PasswordTextBoxBMNew').value='" + PASSWORD + "'})()");
-                webView.loadUrl("javascript:(function () {document.getElementById('ctl00_ContentPlaceHolder1_SubmitButtonBMNew').click()})()");
-                loginFailedCounter += 1;
-            }
-            Log.d(TAG, "onPageFinished: "+loginFailedCounter);
-        }
-
-        @Override
-        public void onLoadResource(WebView view, String url) {
-            super.onLoadResource(view, url);
-        }
-
-        @Override
-        public boolean shouldOverrideUrlLoading(WebView view, String url) {
-            try {
-                if (url.equals("https://newbinusmaya.binus.ac.id/newStudent/")) {
-                    Log.d(TAG, "shouldOverrideUrlLoading: "+ loginFailedCounter);
-                    loginFailedCounter = 0;
-                    webView.loadUrl("http://example.com/");
-                    view.stopLoading();
-                    isWebLoading = false;
-                    String cookie = android.webkit.CookieManager.getInstance().getCookie("https://newbinusmaya.binus.ac.id/student/#/index/dashboard");
-                    Pref.save(ctx, getString(R.string.login_cookie_pref), cookie);
-                    UpdateService.Companion.all(getActivity());
-                    Log.d(TAG, "shouldOverrideUrlLoading: "+ loginFailedCounter);
-                }
-            }catch (IllegalStateException e){
-                Crashlytics.log(e.getMessage());
-            }
-            return super.shouldOverrideUrlLoading(view, url);
-        }
+        dates = JournalDates.upcoming(dateData, new Date());
     }
 
     private boolean isNetworkAvailable() {
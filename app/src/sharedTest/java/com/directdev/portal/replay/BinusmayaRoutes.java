@@ -0,0 +1,282 @@
+package com.directdev.portal.replay;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TimeZone;
+
+/**
+ * Serves every endpoint that UpdateService requests, built from the anonymised responses in
+ * sharedTest/resources/fixtures. The fixtures are one student in one semester, Scale says how many
+ * terms, courses per term and sessions per course to serve, the rows of the fixtures are repeated
+ * with new ids and dates to get there. The same Scale always gives the same responses.
+ *
+ * Scale.X1, X10 and X100 are a normal student and accounts 10 and 100 times that size, see
+ * SyntheticAccount to write them to disk.
+ */
+public class BinusmayaRoutes implements ReplayServer.Routes {
+    public static final String TERMS = "/services/ci/index.php/scoring/ViewGrade/getPeriodByBinusianId";
+    public static final String GRADES = "/services/ci/index.php/scoring/ViewGrade/getStudentScore/";
+    public static final String COURSE = "/services/ci/index.php/student/init/getCoursesBySTRMAndAcad/";
+    public static final String RESOURCES = "/services/ci/index.php/student/classes/resources/";
+    public static final String SCHEDULE = "/services/ci/index.php/student/learning/classschedule";
+    public static final String EXAM = "/services/ci/index.php/exam/Schedule/getOwnScheduleStudent";
+    public static final String FINANCE = "/services/ci/index.php/student/financial/statusocs/";
+    public static final String ACCOUNT = "/services/ci/index.php/student/init/indexpage";
+    public static final String PHOTO = "/services/ci/index.php/general/getPhoto";
+    public static final String DASHBOARD = "/services/ci/index.php/student/init/dashboard";
+
+    private static final String[] SEMESTERS = {"Odd", "Even", "Short"};
+
+    public static class Scale {
+        //What the fixtures hold
+        public static final Scale RECORDED = new Scale(3, 8, 13);
+        public static final Scale X1 = RECORDED;
+        public static final Scale X10 = RECORDED.times(10);
+        public static final Scale X100 = RECORDED.times(100);
+
+        public final int terms;
+        public final int courses;
+        public final int sessions;
+        //How many of the latest terms are in the schedule and exam responses
+        public final int scheduledTerms;
+
+        public Scale(int terms, int courses, int sessions) {
+            this(terms, courses, sessions, 1);
+        }
+
+        public Scale(int terms, int courses, int sessions, int scheduledTerms) {
+            this.terms = terms;
+            this.courses = courses;
+            this.sessions = sessions;
+            this.scheduledTerms = Math.min(scheduledTerms, terms);
+        }
+
+        /**
+         * About factor times the rows of every dataset. The terms (and the terms in the schedule and
+         * exams) are multiplied by up to 10, that is already 10 years of study and the term values
+         * stop being 4 digits soon after. The rest of the factor goes into the courses of every term.
+         */
+        public Scale times(int factor) {
+            int termFactor = Math.min(factor, 10);
+            int courseFactor = Math.max(1, factor / termFactor);
+            return new Scale(terms * termFactor, courses * courseFactor, sessions, scheduledTerms * termFactor);
+        }
+
+        @Override
+        public String toString() {
+            return terms + " terms, " + courses + " courses, " + sessions + " sessions, " + scheduledTerms
+                    + " scheduled terms";
+        }
+    }
+
+    private final Scale scale;
+    private final Map<String, String> responses = new HashMap<>();
+    //Resource urls end with the class, the response only depends on the COURSEID. They are built when
+    //requested, at X100 all of them together are too big to keep around
+    private final Set<String> courseIds = new LinkedHashSet<>();
+    private final List<JsonObject> pathRows;
+
+    public BinusmayaRoutes(Scale scale) {
+        this.scale = scale;
+        List<JsonObject> courseRows = rows(fixture("course.json").getAsJsonObject().getAsJsonArray("Courses"));
+        List<JsonObject> gradeRows = rows(fixture("grades.json").getAsJsonObject().getAsJsonArray("score"));
+        List<JsonObject> scheduleRows = rows(fixture("schedule.json").getAsJsonArray());
+        List<JsonObject> examRows = rows(fixture("exam.json").getAsJsonArray());
+        List<JsonObject> financeRows = rows(fixture("finance.json").getAsJsonObject().getAsJsonArray("Status"));
+        JsonObject resourceFixture = fixture("resources.json").getAsJsonObject();
+        pathRows = rows(resourceFixture.getAsJsonArray("Path"));
+
+        JsonArray terms = new JsonArray();
+        JsonArray schedule = new JsonArray();
+        JsonArray exams = new JsonArray();
+        JsonArray finances = new JsonArray();
+        for (int t = 0; t < scale.terms; t++) {
+            String strm = term(t);
+            JsonObject term = new JsonObject();
+            term.addProperty("field", "20" + strm.substring(0, 2) + ", " + SEMESTERS[t % 3] + " Semester");
+            term.addProperty("value", strm);
+            terms.add(term);
+
+            JsonArray courses = new JsonArray();
+            JsonArray grades = new JsonArray();
+            boolean latest = t == scale.terms - 1;
+            boolean scheduled = t >= scale.terms - scale.scheduledTerms;
+            for (int c = 0; c < scale.courses; c++) {
+                JsonObject course = copy(courseRows.get(c % courseRows.size()));
+                String courseId = course.get("COURSEID").getAsString().substring(0, 4) + (6000 + t * scale.courses + c);
+                String name = course.get("COURSENAME").getAsString() + (c < courseRows.size() ? "" : " " + (c / courseRows.size() + 1));
+                course.addProperty("COURSEID", courseId);
+                course.addProperty("COURSENAME", name);
+                course.addProperty("CRSE_ID", String.valueOf(14000 + t * scale.courses + c));
+                course.addProperty("CLASS_NBR", String.valueOf(10000 + t * 1000 + c));
+                courses.add(course);
+
+                for (int g = 0; g < 3; g++) {
+                    JsonObject grade = copy(gradeRows.get((c * 3 + g) % gradeRows.size()));
+                    grade.addProperty("kodemtk", courseId);
+                    grade.addProperty("course", name);
+                    //The latest term isn't graded yet
+                    if (latest) {
+                        grade.addProperty("course_grade", "");
+                    }
+                    grades.add(grade);
+                }
+
+                courseIds.add(courseId);
+
+                if (scheduled) {
+                    for (int s = 0; s < scale.sessions; s++) {
+                        JsonObject session = copy(scheduleRows.get((c * scale.sessions + s) % scheduleRows.size()));
+                        session.addProperty("CourseID", courseId);
+                        session.addProperty("CourseName", name);
+                        session.addProperty("Session", s + 1);
+                        session.addProperty("Week", String.valueOf(s + 1));
+                        session.addProperty("Date", day(t, 7 * s + c % 5) + "T00:00:00");
+                        schedule.add(session);
+                    }
+                    for (int e = 0; e < 2; e++) {
+                        JsonObject exam = copy(examRows.get((c * 2 + e) % examRows.size()));
+                        exam.addProperty("KDMTK", courseId);
+                        exam.addProperty("COURSE_TITLE_LONG", name);
+                        exam.addProperty("DESCR", e == 0 ? "Mid Exam" : "Final Exam");
+                        exam.addProperty("ExamDate", day(t, 49 + e * 49 + c % 6));
+                        exams.add(exam);
+                    }
+                }
+            }
+            JsonObject courseResponse = new JsonObject();
+            courseResponse.add("Courses", courses);
+            responses.put(COURSE + strm, courseResponse.toString());
+            JsonObject gradeResponse = new JsonObject();
+            gradeResponse.add("score", grades);
+            gradeResponse.add("credit", new JsonObject());
+            responses.put(GRADES + strm, gradeResponse.toString());
+
+            for (int f = 0; f < 6; f++) {
+                JsonObject finance = copy(financeRows.get(f % financeRows.size()));
+                finance.addProperty("ITEM_TERM", strm);
+                finance.addProperty("ITEM_NBR", strm + String.format(Locale.US, "%03d", f + 1));
+                finance.addProperty("ITEM_EFFECTIVE_DT", day(t, f * 14 - 30));
+                finance.addProperty("DUE_DT", day(t, f * 14));
+                finances.add(finance);
+            }
+        }
+        responses.put(TERMS, terms.toString());
+        responses.put(SCHEDULE, schedule.toString());
+        responses.put(EXAM, exams.toString());
+        JsonObject financeResponse = new JsonObject();
+        financeResponse.add("Status", finances);
+        responses.put(FINANCE, financeResponse.toString());
+        responses.put(ACCOUNT, fixture("account.json").toString());
+        responses.put(PHOTO, fixture("photo.json").toString());
+        responses.put(DASHBOARD, fixture("dashboard.json").toString());
+    }
+
+    @Override
+    public String respond(String path) {
+        if (path.startsWith(RESOURCES)) {
+            String courseId = path.substring(RESOURCES.length()).split("/")[0];
+            return courseIds.contains(courseId) ? resources(courseId, scale.sessions, pathRows) : null;
+        }
+        return responses.get(path);
+    }
+
+    public Scale getScale() {
+        return scale;
+    }
+
+    //The COURSEID of every course, oldest term first
+    public List<String> getCourseIds() {
+        return new ArrayList<>(courseIds);
+    }
+
+    //The term values of Binusmaya: 1410, 1420, 1430, 1510...
+    public static String term(int index) {
+        return String.valueOf((14 + index / 3) * 100 + (index % 3 + 1) * 10);
+    }
+
+    //Each term starts 4 months after the one before, starting from September 2014
+    private static String day(int term, int offset) {
+        Calendar calendar = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+        calendar.clear();
+        calendar.set(2014, Calendar.SEPTEMBER, 1);
+        calendar.add(Calendar.MONTH, term * 4);
+        calendar.add(Calendar.DAY_OF_MONTH, offset);
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd", Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        return format.format(calendar.getTime());
+    }
+
+    private static String resources(String courseId, int sessions, List<JsonObject> pathRows) {
+        JsonArray paths = new JsonArray();
+        JsonArray topics = new JsonArray();
+        for (int s = 0; s < sessions; s++) {
+            int topic = 12870 + s;
+            JsonObject session = new JsonObject();
+            session.addProperty("courseOutlineTopicID", topic);
+            session.addProperty("sessionIDNUM", String.valueOf(s + 1));
+            topics.add(session);
+            for (int m = 0; m < 2; m++) {
+                JsonObject path = copy(pathRows.get((s * 2 + m) % pathRows.size()));
+                path.addProperty("courseOutlineTopicID", topic);
+                path.addProperty("pathid", courseId + "-" + s + "-" + m);
+                path.addProperty("filename", courseId + "_S" + (s + 1) + "_" + m);
+                paths.add(path);
+            }
+        }
+        JsonObject response = new JsonObject();
+        response.add("Path", paths);
+        response.add("Resources", topics);
+        return response.toString();
+    }
+
+    private static List<JsonObject> rows(JsonArray array) {
+        List<JsonObject> rows = new ArrayList<>();
+        for (JsonElement element : array) {
+            rows.add(element.getAsJsonObject());
+        }
+        return rows;
+    }
+
+    //Shallow, the fixtures only have primitive values and those are replaced, never changed
+    private static JsonObject copy(JsonObject row) {
+        JsonObject copy = new JsonObject();
+        for (Map.Entry<String, JsonElement> entry : row.entrySet()) {
+            copy.add(entry.getKey(), entry.getValue());
+        }
+        return copy;
+    }
+
+    static JsonElement fixture(String name) {
+        InputStream in = BinusmayaRoutes.class.getResourceAsStream("/fixtures/" + name);
+        if (in == null) {
+            throw new IllegalArgumentException("No fixture " + name);
+        }
+        try {
+            Reader reader = new InputStreamReader(in, "UTF-8");
+            try {
+                return new JsonParser().parse(reader);
+            } finally {
+                reader.close();
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.directdev.portal.replay;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Stands in for the Binusmaya login in front of other Routes, the way the real one behaves for a
+ * browser:
+ *
+ * 1. GET /login.php sets a PHPSESSID cookie and redirects to the ASP.NET form at /login/.
+ * 2. GET /login/ is the form, with a __VIEWSTATE and __EVENTVALIDATION made for that PHPSESSID.
+ * 3. POST /login/ with those hidden fields, the username, the password and the submit button sets
+ * ASP.NET_SessionId and redirects to /newStudent/. Anything else gets the form again.
+ *
+ * Every other request goes to the Routes behind it. After expireSessions() the requests made with the
+ * ASP.NET_SessionId cookies issued so far are redirected to /login.php instead, like the real server
+ * does when a session ran out.
+ */
+public class LoginForm implements ReplayServer.Routes, ReplayServer.Handler {
+    public static final String FORM_PATH = "/login/";
+    private static final String USERNAME = "ctl00$ContentPlaceHolder1$UsernameTextBoxBMNew";
+    private static final String PASSWORD = "ctl00$ContentPlaceHolder1$PasswordTextBoxBMNew";
+    private static final String SUBMIT = "ctl00$ContentPlaceHolder1$SubmitButtonBMNew";
+
+    private final String username;
+    private final String password;
+    private final ReplayServer.Routes routes;
+    //PHPSESSID to the __VIEWSTATE the form was sent with, a form loaded without a PHPSESSID is under null
+    private final Map<String, String> viewStates = new HashMap<>();
+    private final Set<String> issued = new HashSet<>();
+    private final Set<String> expired = new HashSet<>();
+    private final AtomicInteger formLoads = new AtomicInteger();
+    private final AtomicInteger logins = new AtomicInteger();
+    private final AtomicInteger rejected = new AtomicInteger();
+
+    public LoginForm(String username, String password, ReplayServer.Routes routes) {
+        this.username = username;
+        this.password = password;
+        this.routes = routes;
+    }
+
+    public int getFormLoads() {
+        return formLoads.get();
+    }
+
+    public int getLogins() {
+        return logins.get();
+    }
+
+    public int getRejected() {
+        return rejected.get();
+    }
+
+    public void expireSessions() {
+        synchronized (issued) {
+            expired.addAll(issued);
+            issued.clear();
+        }
+    }
+
+    @Override
+    public String respond(String path) {
+        return routes.respond(path);
+    }
+
+    @Override
+    public ReplayServer.Reply handle(String method, String path, Map<String, String> headers, String body) {
+        if (path.equals("/login.php")) {
+            return ReplayServer.Reply.redirect(FORM_PATH)
+                    .header("Set-Cookie", "PHPSESSID=" + UUID.randomUUID() + "; path=/");
+        }
+        if (!path.startsWith(FORM_PATH)) {
+            String aspSession = cookie(headers.get("cookie"), "ASP.NET_SessionId");
+            synchronized (issued) {
+                return aspSession != null && expired.contains(aspSession) ? ReplayServer.Reply.redirect("/login.php") : null;
+            }
+        }
+        String session = cookie(headers.get("cookie"), "PHPSESSID");
+        if (session == null && method.equals("POST")) {
+            return ReplayServer.Reply.redirect("/login.php");
+        }
+        if (method.equals("POST")) {
+            Map<String, String> fields = fields(body);
+            boolean valid;
+            synchronized (viewStates) {
+                valid = viewStates.containsKey(session)
+                        && viewStates.get(session).equals(fields.get("__VIEWSTATE"))
+                        && ("EV" + viewStates.get(session)).equals(fields.get("__EVENTVALIDATION"))
+                        && "Login".equals(fields.get(SUBMIT))
+                        && username.equals(fields.get(USERNAME))
+                        && password.equals(fields.get(PASSWORD));
+            }
+            if (valid) {
+                logins.incrementAndGet();
+                String aspSession = UUID.randomUUID().toString();
+                synchronized (issued) {
+                    issued.add(aspSession);
+                }
+                return ReplayServer.Reply.redirect("/newStudent/")
+                        .header("Set-Cookie", "ASP.NET_SessionId=" + aspSession + "; path=/; HttpOnly");
+            }
+            rejected.incrementAndGet();
+        }
+        formLoads.incrementAndGet();
+        return ReplayServer.Reply.html(form(session));
+    }
+
+    private String form(String session) {
+        //Like ASP.NET, a new view state every time the form is rendered, with characters that need escaping
+        String viewState = "/wEP" + UUID.randomUUID() + "+&=";
+        synchronized (viewStates) {
+            viewStates.put(session, viewState);
+        }
+        String escaped = viewState.replace("&", "&amp;");
+        return "<!DOCTYPE html><html><head><title>Binusmaya</title></head><body>\n"
+                + "<form name=\"aspnetForm\" method=\"post\" action=\"./?ReturnUrl=%2fnewStudent%2f&amp;a=1\" id=\"aspnetForm\">\n"
+                + "<input type=\"hidden\" name=\"__VIEWSTATE\" id=\"__VIEWSTATE\" value=\"" + escaped + "\" />\n"
+                + "<input type=\"hidden\" name=\"__EVENTVALIDATION\" id=\"__EVENTVALIDATION\" value=\"EV" + escaped + "\" />\n"
+                + "<input name=\"" + USERNAME + "\" type=\"text\" id=\"ctl00_ContentPlaceHolder1_UsernameTextBoxBMNew\" />\n"
+                + "<input name=\"" + PASSWORD + "\" type=\"password\" id=\"ctl00_ContentPlaceHolder1_PasswordTextBoxBMNew\" />\n"
+                + "<input type=\"submit\" name=\"" + SUBMIT + "\" value=\"Login\" id=\"ctl00_ContentPlaceHolder1_SubmitButtonBMNew\" />\n"
+                + "</form></body></html>";
+    }
+
+    private static String cookie(String header, String name) {
+        if (header == null) {
+            return null;
+        }
+        for (String pair : header.split(";")) {
+            String[] parts = pair.trim().split("=", 2);
+            if (parts.length == 2 && parts[0].equals(name)) {
+                return parts[1];
+            }
+        }
+        return null;
+    }
+
+    private static Map<String, String> fields(String body) {
+        Map<String, String> fields = new HashMap<>();
+        if (body == null) {
+            return fields;
+        }
+        try {
+            for (String pair : body.split("&")) {
+                String[] parts = pair.split("=", 2);
+                fields.put(URLDecoder.decode(parts[0], "UTF-8"), parts.length > 1 ? URLDecoder.decode(parts[1], "UTF-8") : "");
+            }
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+        return fields;
+    }
+}
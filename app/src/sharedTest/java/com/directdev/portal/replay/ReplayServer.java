@@ -0,0 +1,423 @@
+package com.directdev.portal.replay;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A small HTTP/1.1 server on localhost that stands in for Binusmaya. Point the app at it with
+ * BaseUrl.set(server.getBaseUrl()), every GET is answered by the Routes.
+ *
+ * The network can be made worse on purpose: connectLatency is waited before the first response on a
+ * new connection (what DNS, TCP and TLS cost on a real one), latency is waited before every response, bandwidth
+ * limits how fast bodies are written, and errorRate is the share of requests that get a 503. The
+ * errors come from a seeded Random, so a run with the same seed fails the same requests. A HEAD gets
+ * an empty 200, whatever the path.
+ *
+ * Routes that also implement Handler get every request first, with its method, headers and body,
+ * and can answer with any status and headers (see LoginForm).
+ */
+public class ReplayServer implements Closeable {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final Charset ASCII = Charset.forName("US-ASCII");
+
+    public interface Routes {
+        //The body for the path (with its query), or null for a 404
+        String respond(String path);
+    }
+
+    public interface Handler {
+        //headers have lower case names, null when respond() of the Routes should answer instead
+        Reply handle(String method, String path, Map<String, String> headers, String body);
+    }
+
+    public static class Reply {
+        final int status;
+        final String reason;
+        final String contentType;
+        final String body;
+        final List<String> headers = new ArrayList<>();
+
+        public Reply(int status, String reason, String contentType, String body) {
+            this.status = status;
+            this.reason = reason;
+            this.contentType = contentType;
+            this.body = body;
+        }
+
+        public static Reply redirect(String location) {
+            return new Reply(302, "Found", "text/html; charset=utf-8", "").header("Location", location);
+        }
+
+        public static Reply html(String body) {
+            return new Reply(200, "OK", "text/html; charset=utf-8", body);
+        }
+
+        //Can be called more than once for the same name, eg. for Set-Cookie
+        public Reply header(String name, String value) {
+            headers.add(name + ": " + value);
+            return this;
+        }
+    }
+
+    public static class Builder {
+        private long connectLatencyMillis;
+        private long latencyMillis;
+        private long bytesPerSecond;
+        private double errorRate;
+        private long seed = 1;
+        private boolean etags;
+        private boolean gzip;
+
+        //Waited once on every new connection, before its first response
+        public Builder connectLatency(long millis) {
+            connectLatencyMillis = millis;
+            return this;
+        }
+
+        //Waited before the response of every request
+        public Builder latency(long millis) {
+            latencyMillis = millis;
+            return this;
+        }
+
+        //0 is unlimited
+        public Builder bandwidth(long bytesPerSecond) {
+            this.bytesPerSecond = bytesPerSecond;
+            return this;
+        }
+
+        //Between 0 and 1
+        public Builder errorRate(double errorRate) {
+            this.errorRate = errorRate;
+            return this;
+        }
+
+        public Builder seed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        //Sends an ETag with every body and answers a matching If-None-Match with a 304
+        public Builder etags(boolean etags) {
+            this.etags = etags;
+            return this;
+        }
+
+        //Gzips the bodies for clients that send Accept-Encoding: gzip, getBytesSent() then counts the gzipped size
+        public Builder gzip(boolean gzip) {
+            this.gzip = gzip;
+            return this;
+        }
+
+        public ReplayServer start(Routes routes) throws IOException {
+            return new ReplayServer(this, routes);
+        }
+    }
+
+    private final Routes routes;
+    private final long connectLatencyMillis;
+    private final long latencyMillis;
+    private final long bytesPerSecond;
+    private final double errorRate;
+    private final boolean etags;
+    private final boolean gzip;
+    private final Random random;
+    private final ServerSocket socket;
+    private final ExecutorService connections;
+    private final AtomicInteger accepted = new AtomicInteger();
+    private final AtomicInteger requests = new AtomicInteger();
+    private final AtomicInteger errors = new AtomicInteger();
+    private final AtomicInteger notModified = new AtomicInteger();
+    private final AtomicLong bytesSent = new AtomicLong();
+    private volatile boolean closed = false;
+
+    private ReplayServer(Builder builder, Routes routes) throws IOException {
+        this.routes = routes;
+        connectLatencyMillis = builder.connectLatencyMillis;
+        latencyMillis = builder.latencyMillis;
+        bytesPerSecond = builder.bytesPerSecond;
+        errorRate = builder.errorRate;
+        etags = builder.etags;
+        gzip = builder.gzip;
+        random = new Random(builder.seed);
+        socket = new ServerSocket(0, 50, InetAddress.getByName("127.0.0.1"));
+        connections = Executors.newCachedThreadPool(new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "ReplayServer-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        connections.execute(new Runnable() {
+            @Override
+            public void run() {
+                accept();
+            }
+        });
+    }
+
+    public String getBaseUrl() {
+        return "http://127.0.0.1:" + socket.getLocalPort();
+    }
+
+    //Connections that were opened to the server, a client that reuses its connections opens few
+    public int getConnections() {
+        return accepted.get();
+    }
+
+    public int getRequests() {
+        return requests.get();
+    }
+
+    public int getErrors() {
+        return errors.get();
+    }
+
+    public int getNotModified() {
+        return notModified.get();
+    }
+
+    //Bytes of the bodies that were sent, headers not included
+    public long getBytesSent() {
+        return bytesSent.get();
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        socket.close();
+        connections.shutdownNow();
+    }
+
+    private void accept() {
+        while (!closed) {
+            try {
+                final Socket client = socket.accept();
+                accepted.incrementAndGet();
+                connections.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        serve(client);
+                    }
+                });
+            } catch (IOException e) {
+                //Closed
+            }
+        }
+    }
+
+    //Keeps the connection alive for more requests, like HttpURLConnection expects
+    private void serve(Socket client) {
+        try {
+            InputStream in = new BufferedInputStream(client.getInputStream());
+            OutputStream out = client.getOutputStream();
+            sleep(connectLatencyMillis);
+            while (!closed) {
+                String requestLine = readLine(in);
+                if (requestLine == null || requestLine.isEmpty()) {
+                    break;
+                }
+                Map<String, String> headers = new HashMap<>();
+                String line;
+                while ((line = readLine(in)) != null && !line.isEmpty()) {
+                    int colon = line.indexOf(':');
+                    if (colon > 0) {
+                        headers.put(line.substring(0, colon).trim().toLowerCase(Locale.US), line.substring(colon + 1).trim());
+                    }
+                }
+                String body = null;
+                if (headers.containsKey("content-length")) {
+                    byte[] bytes = new byte[Integer.parseInt(headers.get("content-length"))];
+                    for (int read = 0; read < bytes.length; ) {
+                        int n = in.read(bytes, read, bytes.length - read);
+                        if (n < 0) {
+                            throw new IOException("Body cut short");
+                        }
+                        read += n;
+                    }
+                    body = new String(bytes, UTF_8);
+                }
+                String[] parts = requestLine.split(" ");
+                respond(out, parts[0], parts.length > 1 ? parts[1] : "/", headers, body);
+                if ("close".equalsIgnoreCase(headers.get("connection"))) {
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            //The client went away
+        } finally {
+            try {
+                client.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    private void respond(OutputStream out, String method, String path, Map<String, String> headers, String requestBody)
+            throws IOException {
+        requests.incrementAndGet();
+        sleep(latencyMillis);
+
+        boolean fail;
+        synchronized (random) {
+            fail = random.nextDouble() < errorRate;
+        }
+        if (fail) {
+            errors.incrementAndGet();
+            write(out, 503, "Service Unavailable", null, "Service Unavailable".getBytes(ASCII));
+            return;
+        }
+        if (method.equals("HEAD")) {
+            write(out, 200, "OK", "text/html; charset=utf-8", new ArrayList<String>(), null);
+            return;
+        }
+        if (routes instanceof Handler) {
+            Reply reply = ((Handler) routes).handle(method, path, headers, requestBody);
+            if (reply != null) {
+                write(out, reply.status, reply.reason, reply.contentType, reply.headers, reply.body.getBytes(UTF_8));
+                return;
+            }
+        }
+        String body = routes.respond(path);
+        if (body == null) {
+            write(out, 404, "Not Found", null, ("No fixture for " + path).getBytes(UTF_8));
+            return;
+        }
+        byte[] bytes = body.getBytes(UTF_8);
+        String etag = etags ? "\"" + sha1(bytes) + "\"" : null;
+        if (etag != null && etag.equals(headers.get("if-none-match"))) {
+            notModified.incrementAndGet();
+            write(out, 304, "Not Modified", etag, null);
+            return;
+        }
+        if (gzip && headers.containsKey("accept-encoding") && headers.get("accept-encoding").contains("gzip")) {
+            List<String> gzipped = new ArrayList<>();
+            gzipped.add("Content-Encoding: gzip");
+            if (etag != null) {
+                gzipped.add("ETag: " + etag);
+            }
+            write(out, 200, "OK", "application/json; charset=utf-8", gzipped, gzip(bytes));
+            return;
+        }
+        write(out, 200, "OK", etag, bytes);
+    }
+
+    private static byte[] gzip(byte[] bytes) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        GZIPOutputStream zip = new GZIPOutputStream(out);
+        zip.write(bytes);
+        zip.close();
+        return out.toByteArray();
+    }
+
+    private void write(OutputStream out, int status, String reason, String etag, byte[] body) throws IOException {
+        List<String> headers = new ArrayList<>();
+        if (etag != null) {
+            headers.add("ETag: " + etag);
+        }
+        write(out, status, reason, "application/json; charset=utf-8", headers, body);
+    }
+
+    private void write(OutputStream out, int status, String reason, String contentType, List<String> headers, byte[] body)
+            throws IOException {
+        StringBuilder head = new StringBuilder();
+        head.append("HTTP/1.1 ").append(status).append(' ').append(reason).append("\r\n");
+        head.append("Content-Type: ").append(contentType).append("\r\n");
+        head.append("Cache-Control: no-cache\r\n");
+        for (String header : headers) {
+            head.append(header).append("\r\n");
+        }
+        head.append("Content-Length: ").append(body == null ? 0 : body.length).append("\r\n\r\n");
+        out.write(head.toString().getBytes(ASCII));
+        if (body != null) {
+            //Counted first, the client may have read the whole body before the last write returns
+            bytesSent.addAndGet(body.length);
+            writeThrottled(out, body);
+        }
+        out.flush();
+    }
+
+    //Writes in chunks of 1/20 of a second worth of bytes
+    private void writeThrottled(OutputStream out, byte[] body) throws IOException {
+        if (bytesPerSecond <= 0) {
+            out.write(body);
+            return;
+        }
+        int chunk = (int) Math.max(1, bytesPerSecond / 20);
+        long start = System.nanoTime();
+        for (int offset = 0; offset < body.length; offset += chunk) {
+            int length = Math.min(chunk, body.length - offset);
+            out.write(body, offset, length);
+            out.flush();
+            long due = (offset + length) * 1000000000L / bytesPerSecond;
+            long ahead = due - (System.nanoTime() - start);
+            if (ahead > 0) {
+                sleep(ahead / 1000000);
+            }
+        }
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        StringBuilder line = new StringBuilder();
+        int c;
+        while ((c = in.read()) != -1) {
+            if (c == '\n') {
+                int end = line.length();
+                if (end > 0 && line.charAt(end - 1) == '\r') {
+                    line.setLength(end - 1);
+                }
+                return line.toString();
+            }
+            line.append((char) c);
+        }
+        return line.length() == 0 ? null : line.toString();
+    }
+
+    private static String sha1(byte[] bytes) {
+        try {
+            StringBuilder hex = new StringBuilder();
+            for (byte b : MessageDigest.getInstance("SHA-1").digest(bytes)) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void sleep(long millis) {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
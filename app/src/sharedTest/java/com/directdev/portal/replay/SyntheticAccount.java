@@ -0,0 +1,79 @@
+package com.directdev.portal.replay;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes every response of a BinusmayaRoutes account to a directory, one file per request, so the
+ * large accounts can be looked at or fed to other tools. The files are named after the request path
+ * without /services/ci/index.php/, eg. student_learning_classschedule.json.
+ *
+ * From the benchmarks module: ./gradlew :benchmarks:syntheticAccount -Pscale=100 writes the X100
+ * account to benchmarks/build/synthetic/x100.
+ */
+public class SyntheticAccount {
+    private static final String PREFIX = "/services/ci/index.php/";
+
+    //Every path UpdateService requests for this account, the resources with one path per course
+    public static List<String> paths(BinusmayaRoutes routes) {
+        List<String> paths = new ArrayList<>();
+        paths.add(BinusmayaRoutes.TERMS);
+        paths.add(BinusmayaRoutes.SCHEDULE);
+        paths.add(BinusmayaRoutes.EXAM);
+        paths.add(BinusmayaRoutes.FINANCE);
+        paths.add(BinusmayaRoutes.ACCOUNT);
+        paths.add(BinusmayaRoutes.PHOTO);
+        paths.add(BinusmayaRoutes.DASHBOARD);
+        for (int t = 0; t < routes.getScale().terms; t++) {
+            paths.add(BinusmayaRoutes.COURSE + BinusmayaRoutes.term(t));
+            paths.add(BinusmayaRoutes.GRADES + BinusmayaRoutes.term(t));
+        }
+        for (String courseId : routes.getCourseIds()) {
+            paths.add(BinusmayaRoutes.RESOURCES + courseId);
+        }
+        return paths;
+    }
+
+    //Returns the number of bytes written
+    public static long write(BinusmayaRoutes routes, File dir) throws IOException {
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Can't create " + dir);
+        }
+        long bytes = 0;
+        for (String path : paths(routes)) {
+            byte[] body = routes.respond(path).getBytes("UTF-8");
+            OutputStream out = new FileOutputStream(new File(dir, fileName(path)));
+            try {
+                out.write(body);
+            } finally {
+                out.close();
+            }
+            bytes += body.length;
+        }
+        return bytes;
+    }
+
+    static String fileName(String path) {
+        String name = path.startsWith(PREFIX) ? path.substring(PREFIX.length()) : path;
+        if (name.endsWith("/")) {
+            name = name.substring(0, name.length() - 1);
+        }
+        return name.replace('/', '_') + ".json";
+    }
+
+    //SyntheticAccount <directory> [factor], the factor is 1 (a normal student) when it is left out
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: SyntheticAccount <directory> [factor]");
+            System.exit(1);
+        }
+        int factor = args.length > 1 ? Integer.parseInt(args[1]) : 1;
+        BinusmayaRoutes.Scale scale = BinusmayaRoutes.Scale.X1.times(factor);
+        long bytes = write(new BinusmayaRoutes(scale), new File(args[0]));
+        System.out.println(scale + ", " + bytes + " bytes written to " + args[0]);
+    }
+}
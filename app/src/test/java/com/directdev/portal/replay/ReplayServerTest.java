@@ -0,0 +1,99 @@
+package com.directdev.portal.replay;
+
+import com.directdev.portal.tools.helper.GsonHelper;
+import com.directdev.portal.tools.sync.parse.ResponseParser;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.net.HttpURLConnection;
+import java.net.URL;
+
+import static org.junit.Assert.*;
+
+public class ReplayServerTest {
+    private ReplayServer server;
+
+    @After
+    public void tearDown() throws IOException {
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    @Test
+    public void scaledRoutes_areParsedByTheApp() throws IOException {
+        BinusmayaRoutes routes = new BinusmayaRoutes(new BinusmayaRoutes.Scale(4, 10, 12));
+        server = new ReplayServer.Builder().start(routes);
+        ResponseParser parser = new ResponseParser(GsonHelper.get());
+
+        assertEquals(4, parser.terms(new StringReader(get(BinusmayaRoutes.TERMS, null).body)).size());
+        assertEquals(10, parser.courses(new StringReader(get(BinusmayaRoutes.COURSE + "1510", null).body), "1510").size());
+        assertEquals(30, parser.grades(new StringReader(get(BinusmayaRoutes.GRADES + "1410", null).body), "1410").grades.size());
+        assertEquals(120, parser.schedules(new StringReader(get(BinusmayaRoutes.SCHEDULE, null).body)).rows.size());
+        assertEquals(24, parser.resources(new StringReader(get(BinusmayaRoutes.RESOURCES + "COMP6000/14000/1410/LEC/10000", null).body), "COMP6000").size());
+        assertEquals(404, get("/nothing", null).status);
+    }
+
+    @Test
+    public void latencyAndBandwidth_slowDownResponses() throws IOException {
+        server = new ReplayServer.Builder().latency(100).bandwidth(20000).start(new BinusmayaRoutes(BinusmayaRoutes.Scale.RECORDED));
+
+        long start = System.currentTimeMillis();
+        Response response = get(BinusmayaRoutes.SCHEDULE, null);
+        long took = System.currentTimeMillis() - start;
+
+        //The recorded schedule is about 20KB, so about a second at 20KB/s
+        assertTrue("took " + took + "ms", took >= 100 + 1000L * response.body.length() / 20000 - 100);
+        assertEquals(response.body.length(), server.getBytesSent());
+    }
+
+    @Test
+    public void errorRate_failsRequestsWith503() throws IOException {
+        server = new ReplayServer.Builder().errorRate(1).start(new BinusmayaRoutes(BinusmayaRoutes.Scale.RECORDED));
+
+        assertEquals(503, get(BinusmayaRoutes.TERMS, null).status);
+        assertEquals(1, server.getErrors());
+    }
+
+    @Test
+    public void matchingEtag_gets304() throws IOException {
+        server = new ReplayServer.Builder().etags(true).start(new BinusmayaRoutes(BinusmayaRoutes.Scale.RECORDED));
+
+        Response first = get(BinusmayaRoutes.EXAM, null);
+        Response second = get(BinusmayaRoutes.EXAM, first.etag);
+
+        assertEquals(200, first.status);
+        assertEquals(304, second.status);
+        assertEquals(1, server.getNotModified());
+    }
+
+    private Response get(String path, String etag) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(server.getBaseUrl() + path).openConnection();
+        if (etag != null) {
+            connection.setRequestProperty("If-None-Match", etag);
+        }
+        Response response = new Response();
+        response.status = connection.getResponseCode();
+        response.etag = connection.getHeaderField("ETag");
+        InputStream in = response.status < 400 ? connection.getInputStream() : connection.getErrorStream();
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int read;
+        while (in != null && (read = in.read(buffer)) != -1) {
+            body.write(buffer, 0, read);
+        }
+        response.body = body.toString("UTF-8");
+        return response;
+    }
+
+    private static class Response {
+        int status;
+        String etag;
+        String body;
+    }
+}
@@ -0,0 +1,56 @@
+package com.directdev.portal.replay;
+
+import com.directdev.portal.tools.helper.GsonHelper;
+import com.directdev.portal.tools.sync.parse.ResponseParser;
+
+import org.junit.Test;
+
+import java.io.StringReader;
+
+import static org.junit.Assert.*;
+
+public class SyntheticAccountTest {
+    @Test
+    public void times_multipliesTheRows() {
+        BinusmayaRoutes.Scale x1 = BinusmayaRoutes.Scale.X1;
+        BinusmayaRoutes.Scale x100 = BinusmayaRoutes.Scale.X100;
+
+        assertEquals(100 * x1.terms * x1.courses, x100.terms * x100.courses);
+        assertEquals(100 * x1.scheduledTerms * x1.courses, x100.scheduledTerms * x100.courses);
+        //Term values stay 4 digits, so they still sort like the real ones
+        assertEquals(4, BinusmayaRoutes.term(x100.terms - 1).length());
+    }
+
+    @Test
+    public void sameScale_givesTheSameResponses() {
+        BinusmayaRoutes first = new BinusmayaRoutes(BinusmayaRoutes.Scale.X10);
+        BinusmayaRoutes second = new BinusmayaRoutes(BinusmayaRoutes.Scale.X10);
+
+        for (String path : SyntheticAccount.paths(first)) {
+            assertEquals(path, first.respond(path), second.respond(path));
+        }
+    }
+
+    @Test
+    public void scaledAccount_isParsedByTheApp() {
+        BinusmayaRoutes.Scale scale = BinusmayaRoutes.Scale.X10;
+        BinusmayaRoutes routes = new BinusmayaRoutes(scale);
+        ResponseParser parser = new ResponseParser(GsonHelper.get());
+
+        assertEquals(scale.terms, parser.terms(new StringReader(routes.respond(BinusmayaRoutes.TERMS))).size());
+        assertEquals(scale.scheduledTerms * scale.courses * scale.sessions,
+                parser.schedules(new StringReader(routes.respond(BinusmayaRoutes.SCHEDULE))).rows.size());
+        assertEquals(scale.scheduledTerms * scale.courses * 2,
+                parser.exams(new StringReader(routes.respond(BinusmayaRoutes.EXAM))).rows.size());
+        assertEquals(scale.terms * scale.courses, routes.getCourseIds().size());
+        for (String path : SyntheticAccount.paths(routes)) {
+            assertNotNull(path, routes.respond(path));
+        }
+    }
+
+    @Test
+    public void fileName_dropsTheServicePrefix() {
+        assertEquals("student_learning_classschedule.json", SyntheticAccount.fileName(BinusmayaRoutes.SCHEDULE));
+        assertEquals("student_classes_resources_COMP6000.json", SyntheticAccount.fileName(BinusmayaRoutes.RESOURCES + "COMP6000"));
+    }
+}
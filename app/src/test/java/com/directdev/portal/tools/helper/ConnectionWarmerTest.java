@@ -0,0 +1,81 @@
+package com.directdev.portal.tools.helper;
+
+import com.directdev.portal.replay.BinusmayaRoutes;
+import com.directdev.portal.replay.ReplayServer;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Request;
+import okhttp3.Response;
+
+import static org.junit.Assert.*;
+
+public class ConnectionWarmerTest {
+    private ReplayServer server;
+
+    @After
+    public void tearDown() throws IOException {
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    @Test
+    public void firstRequest_usesTheWarmConnection() throws IOException {
+        server = new ReplayServer.Builder().connectLatency(200).start(new BinusmayaRoutes(BinusmayaRoutes.Scale.X1));
+
+        long warmup = ConnectionWarmer.warm(server.getBaseUrl(), false);
+        assertTrue(warmup >= TimeUnit.MILLISECONDS.toNanos(200));
+
+        long start = System.nanoTime();
+        assertEquals(200, get(BinusmayaRoutes.SCHEDULE));
+        assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(200));
+        assertEquals(1, server.getConnections());
+        assertEquals(2, server.getRequests());
+    }
+
+    @Test
+    public void legacyTransport_warmsTheConnectionOfHttpUrlConnection() throws IOException {
+        server = new ReplayServer.Builder().connectLatency(200).start(new BinusmayaRoutes(BinusmayaRoutes.Scale.X1));
+
+        assertTrue(ConnectionWarmer.warm(server.getBaseUrl(), true) >= TimeUnit.MILLISECONDS.toNanos(200));
+
+        long start = System.nanoTime();
+        assertEquals(200, getLegacy(BinusmayaRoutes.SCHEDULE));
+        assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(200));
+        assertEquals(1, server.getConnections());
+        assertEquals(2, server.getRequests());
+    }
+
+    @Test
+    public void unreachable() throws IOException {
+        server = new ReplayServer.Builder().start(new BinusmayaRoutes(BinusmayaRoutes.Scale.X1));
+        String baseUrl = server.getBaseUrl();
+        server.close();
+        server = null;
+
+        assertEquals(-1, ConnectionWarmer.warm(baseUrl, false));
+    }
+
+    private int get(String path) throws IOException {
+        Response response = Transport.get().newCall(new Request.Builder().url(server.getBaseUrl() + path).build()).execute();
+        response.body().bytes();
+        return response.code();
+    }
+
+    private int getLegacy(String path) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(server.getBaseUrl() + path).openConnection();
+        InputStream in = connection.getInputStream();
+        while (in.read() != -1) {
+        }
+        in.close();
+        return connection.getResponseCode();
+    }
+}
@@ -0,0 +1,58 @@
+package com.directdev.portal.tools.helper;
+
+import com.google.gson.stream.JsonWriter;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+
+import static org.junit.Assert.*;
+
+public class DayDateAdapterTest {
+    private final TimeZone original = TimeZone.getDefault();
+
+    @After
+    public void tearDown() {
+        TimeZone.setDefault(original);
+    }
+
+    @Test
+    public void parse_isMidnightOfTheCurrentTimeZone() throws Exception {
+        TimeZone.setDefault(TimeZone.getTimeZone("Asia/Jakarta"));
+        assertEquals(midnight("2016-04-07"), DayDateAdapter.parse("2016-04-07"));
+
+        //The same thread after the device moved to another time zone
+        TimeZone.setDefault(TimeZone.getTimeZone("America/Los_Angeles"));
+        assertEquals(midnight("2016-04-07"), DayDateAdapter.parse("2016-04-07"));
+        assertEquals(midnight("2016-04-07"), DayDateAdapter.parse("2016-04-07T00:00:00"));
+    }
+
+    @Test
+    public void write_usesTheCurrentTimeZone() throws Exception {
+        TimeZone.setDefault(TimeZone.getTimeZone("Asia/Jakarta"));
+        assertEquals("\"2016-04-07\"", write(midnight("2016-04-07")));
+
+        TimeZone.setDefault(TimeZone.getTimeZone("America/Los_Angeles"));
+        assertEquals("\"2016-04-07\"", write(midnight("2016-04-07")));
+    }
+
+    private static String write(Date date) throws IOException {
+        StringWriter out = new StringWriter();
+        JsonWriter writer = new JsonWriter(out);
+        //A date on its own isn't a JSON document
+        writer.setLenient(true);
+        new DayDateAdapter().write(writer, date);
+        return out.toString();
+    }
+
+    //What the SimpleDateFormat of Gson made of the day
+    private static Date midnight(String day) throws Exception {
+        return new SimpleDateFormat("yyyy-MM-dd", Locale.US).parse(day);
+    }
+}
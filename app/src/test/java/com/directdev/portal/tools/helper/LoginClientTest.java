@@ -0,0 +1,171 @@
+package com.directdev.portal.tools.helper;
+
+import com.directdev.portal.replay.BinusmayaRoutes;
+import com.directdev.portal.replay.LoginForm;
+import com.directdev.portal.replay.ReplayServer;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Scanner;
+
+import static org.junit.Assert.*;
+
+public class LoginClientTest {
+    private ReplayServer server;
+    private ReplayServer signOn;
+
+    @After
+    public void tearDown() throws IOException {
+        if (server != null) {
+            server.close();
+        }
+        if (signOn != null) {
+            signOn.close();
+        }
+    }
+
+    @Test
+    public void login_postsTheFormAndKeepsTheSessionCookies() throws IOException {
+        LoginForm form = new LoginForm("2001234567", "p&ss=word", new BinusmayaRoutes(BinusmayaRoutes.Scale.X1));
+        server = new ReplayServer.Builder().start(form);
+
+        String cookies = new LoginClient(server.getBaseUrl()).login("2001234567", "p&ss=word");
+
+        assertTrue(cookies, cookies.startsWith("PHPSESSID="));
+        assertTrue(cookies, cookies.contains("; ASP.NET_SessionId="));
+        assertEquals(1, form.getLogins());
+        assertEquals(1, form.getFormLoads());
+        //login.php, the form and the post, /newStudent/ itself isn't loaded
+        assertEquals(3, server.getRequests());
+    }
+
+    @Test
+    public void login_keepsTheCookiesOfEachHostApart() throws IOException {
+        //login.php sends the browser through a sign-on page on another host, which sets its own cookies
+        SignOnPage page = new SignOnPage();
+        signOn = new ReplayServer.Builder().start(page);
+        String signOnUrl = signOn.getBaseUrl().replace("127.0.0.1", "localhost") + "/sso";
+        SignOnRedirect binusmaya = new SignOnRedirect(signOnUrl,
+                new LoginForm("2001234567", "secret", new BinusmayaRoutes(BinusmayaRoutes.Scale.X1)));
+        server = new ReplayServer.Builder().start(binusmaya);
+        page.back = server.getBaseUrl() + LoginForm.FORM_PATH;
+
+        String cookies = new LoginClient(server.getBaseUrl()).login("2001234567", "secret");
+
+        assertTrue(cookies, cookies.startsWith("PHPSESSID=binusmaya; ASP.NET_SessionId="));
+        assertFalse(cookies, cookies.contains("SSO_TOKEN"));
+        //The Binusmaya session wasn't sent to the other host, and its PHPSESSID didn't replace Binusmaya's
+        assertEquals(Collections.singletonList((String) null), page.cookies);
+        for (String header : binusmaya.cookies) {
+            assertFalse(header, header != null && (header.contains("SSO_TOKEN") || header.contains("PHPSESSID=sso")));
+        }
+    }
+
+    @Test
+    public void login_wrongPassword() throws IOException {
+        LoginForm form = new LoginForm("2001234567", "secret", new BinusmayaRoutes(BinusmayaRoutes.Scale.X1));
+        server = new ReplayServer.Builder().start(form);
+
+        try {
+            new LoginClient(server.getBaseUrl()).login("2001234567", "wrong");
+            fail();
+        } catch (LoginClient.RejectedException expected) {
+        }
+        assertEquals(0, form.getLogins());
+        assertEquals(1, form.getRejected());
+    }
+
+    @Test
+    public void login_withoutAForm() throws IOException {
+        //Only the data routes, login.php is a 404
+        server = new ReplayServer.Builder().start(new BinusmayaRoutes(BinusmayaRoutes.Scale.X1));
+
+        try {
+            new LoginClient(server.getBaseUrl()).login("2001234567", "secret");
+            fail();
+        } catch (LoginClient.RejectedException e) {
+            fail();
+        } catch (IOException expected) {
+        }
+    }
+
+    @Test
+    public void looksSignedOut_afterTheSessionRanOut() throws IOException {
+        LoginForm form = new LoginForm("2001234567", "secret", new BinusmayaRoutes(BinusmayaRoutes.Scale.X1));
+        server = new ReplayServer.Builder().start(form);
+        String cookies = new LoginClient(server.getBaseUrl()).login("2001234567", "secret");
+
+        assertFalse(LoginClient.looksSignedOut(get(BinusmayaRoutes.SCHEDULE, cookies)));
+        form.expireSessions();
+        //Redirected to login.php and from there to the form, the way Volley follows it
+        assertTrue(LoginClient.looksSignedOut(get(BinusmayaRoutes.SCHEDULE, cookies)));
+
+        String renewed = new LoginClient(server.getBaseUrl()).login("2001234567", "secret");
+        assertFalse(LoginClient.looksSignedOut(get(BinusmayaRoutes.SCHEDULE, renewed)));
+    }
+
+    private String get(String path, String cookies) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(server.getBaseUrl() + path).openConnection();
+        connection.setRequestProperty("Cookie", cookies);
+        InputStream in = connection.getInputStream();
+        try {
+            return new Scanner(in, "UTF-8").useDelimiter("\\A").next();
+        } finally {
+            in.close();
+        }
+    }
+
+    //Sets cookies of the same name as Binusmaya and sends the browser back to the login form
+    private static class SignOnPage implements ReplayServer.Routes, ReplayServer.Handler {
+        final List<String> cookies = Collections.synchronizedList(new ArrayList<String>());
+        volatile String back;
+
+        @Override
+        public String respond(String path) {
+            return null;
+        }
+
+        @Override
+        public ReplayServer.Reply handle(String method, String path, Map<String, String> headers, String body) {
+            cookies.add(headers.get("cookie"));
+            return ReplayServer.Reply.redirect(back)
+                    .header("Set-Cookie", "PHPSESSID=sso; path=/")
+                    .header("Set-Cookie", "SSO_TOKEN=secret; path=/");
+        }
+    }
+
+    //login.php goes to the sign-on page first, everything else is the LoginForm
+    private static class SignOnRedirect implements ReplayServer.Routes, ReplayServer.Handler {
+        final List<String> cookies = Collections.synchronizedList(new ArrayList<String>());
+        private final String signOnUrl;
+        private final LoginForm form;
+
+        SignOnRedirect(String signOnUrl, LoginForm form) {
+            this.signOnUrl = signOnUrl;
+            this.form = form;
+        }
+
+        @Override
+        public String respond(String path) {
+            return form.respond(path);
+        }
+
+        @Override
+        public ReplayServer.Reply handle(String method, String path, Map<String, String> headers, String body) {
+            cookies.add(headers.get("cookie"));
+            if (path.equals(LoginClient.LOGIN_PATH)) {
+                return ReplayServer.Reply.redirect(signOnUrl).header("Set-Cookie", "PHPSESSID=binusmaya; path=/");
+            }
+            return form.handle(method, path, headers, body);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.directdev.portal.tools.helper;
+
+import com.directdev.portal.tools.model.Finance;
+import com.directdev.portal.tools.model.Resource;
+import com.directdev.portal.tools.model.Schedule;
+import com.google.gson.ExclusionStrategy;
+import com.google.gson.FieldAttributes;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import org.junit.Test;
+
+import io.realm.RealmObject;
+
+import static org.junit.Assert.*;
+
+/**
+ * The adapters have to read responses exactly like the reflective Gson that GsonHelper used to build
+ */
+public class ModelAdaptersTest {
+    private static final Gson REFLECTIVE = new GsonBuilder().setDateFormat("yyyy-MM-dd")
+            .setExclusionStrategies(new ExclusionStrategy() {
+                @Override
+                public boolean shouldSkipField(FieldAttributes f) {
+                    return f.getDeclaringClass().equals(RealmObject.class);
+                }
+
+                @Override
+                public boolean shouldSkipClass(Class<?> clazz) {
+                    return false;
+                }
+            }).create();
+
+    @Test
+    public void schedule_readsLikeReflection() {
+        String json = "{\"CourseID\":\"COMP6047\",\"Date\":\"2016-04-07T00:00:00\",\"Session\":\"3\",\"Class\":\"LA01\",\"Week\":2,\"Unknown\":[1,2]}";
+
+        Schedule expected = REFLECTIVE.fromJson(json, Schedule.class);
+        Schedule actual = GsonHelper.get().fromJson(json, Schedule.class);
+
+        assertEquals(expected.getCourseID(), actual.getCourseID());
+        assertEquals(expected.getDate(), actual.getDate());
+        assertEquals(expected.getSession(), actual.getSession());
+        assertEquals(expected.getClasscode(), actual.getClasscode());
+        assertEquals("2", actual.getWeek());
+    }
+
+    @Test
+    public void finance_readsLikeReflection() {
+        String json = "{\"DUE_DT\":\"2016-2-1\",\"ITEM_EFFECTIVE_DT\":null,\"ITEM_AMT\":null,\"ITEM_NBR\":true}";
+
+        Finance expected = REFLECTIVE.fromJson(json, Finance.class);
+        Finance actual = GsonHelper.get().fromJson(json, Finance.class);
+
+        assertEquals(expected.getDUE_DT(), actual.getDUE_DT());
+        assertNull(actual.getITEM_EFFECTIVE_DT());
+        assertEquals(0, actual.getITEM_AMT());
+        assertEquals(expected.getITEM_NBR(), actual.getITEM_NBR());
+    }
+
+    @Test
+    public void resource_readsLikeReflection() {
+        String json = "{\"courseOutlineTopicID\":8,\"mediaTypeId\":1,\"Title\":\"Week 3\"}";
+
+        Resource expected = REFLECTIVE.fromJson(json, Resource.class);
+        Resource actual = GsonHelper.get().fromJson(json, Resource.class);
+
+        assertEquals(expected.getCourseOutlineTopicID(), actual.getCourseOutlineTopicID());
+        assertEquals(expected.getMediaTypeId(), actual.getMediaTypeId());
+        assertEquals(expected.getTitle(), actual.getTitle());
+    }
+
+    @Test
+    public void dates_areWrittenBackTheSame() {
+        String json = "{\"Date\":\"2016-04-07\",\"Session\":3}";
+
+        Schedule schedule = GsonHelper.get().fromJson(json, Schedule.class);
+
+        assertEquals(json, GsonHelper.get().toJson(schedule));
+    }
+}
@@ -0,0 +1,147 @@
+package com.directdev.portal.tools.helper;
+
+import com.android.volley.Cache;
+import com.android.volley.ExecutorDelivery;
+import com.android.volley.RequestQueue;
+import com.android.volley.toolbox.BasicNetwork;
+import com.android.volley.toolbox.RequestFuture;
+import com.directdev.portal.replay.BinusmayaRoutes;
+import com.directdev.portal.replay.LoginForm;
+import com.directdev.portal.replay.ReplayServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs our Requests through a real Volley RequestQueue against the ReplayServer, with the cache
+ * kept in memory and the responses delivered on the network thread instead of the main thread.
+ */
+public class RequestTest {
+    private static final String URL = BaseUrl.BINUSMAYA + BinusmayaRoutes.SCHEDULE;
+    private ReplayServer server;
+    private LoginForm form;
+    private MemoryCache cache;
+    private RequestQueue queue;
+
+    @Before
+    public void setUp() throws IOException {
+        form = new LoginForm("2001234567", "secret", new BinusmayaRoutes(BinusmayaRoutes.Scale.X1));
+        server = new ReplayServer.Builder().start(form);
+        BaseUrl.set(server.getBaseUrl());
+        cache = new MemoryCache();
+        queue = new RequestQueue(cache, new BasicNetwork(new OkHttpStack(Transport.get())), 1,
+                new ExecutorDelivery(new Executor() {
+                    @Override
+                    public void execute(Runnable command) {
+                        command.run();
+                    }
+                }));
+        queue.start();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        queue.stop();
+        server.close();
+        BaseUrl.reset();
+    }
+
+    @Test
+    public void resend_afterTheSessionWasRenewed_getsTheRealBody() throws Exception {
+        String cookies = login();
+        form.expireSessions();
+        assertTrue(LoginClient.looksSignedOut(add(cookies)));
+
+        String renewed = login();
+        RequestFuture<String> future = RequestFuture.newFuture();
+        Request.resend(queue, Request.create(renewed, URL, future, future));
+
+        assertFalse(LoginClient.looksSignedOut(future.get(10, TimeUnit.SECONDS)));
+    }
+
+    @Test
+    public void resend_isNotAnsweredFromTheCache() throws Exception {
+        String cookies = login();
+        form.expireSessions();
+        String signedOut = add(cookies);
+        //The login page as it was cached before ValidatorCache turned such bodies away
+        cache.put(Request.create(cookies, URL, null, null).getCacheKey(), entry(signedOut));
+        String renewed = login();
+        int requests = server.getRequests();
+
+        assertEquals(signedOut, add(renewed));
+        assertEquals(requests, server.getRequests());
+
+        RequestFuture<String> future = RequestFuture.newFuture();
+        Request.resend(queue, Request.create(renewed, URL, future, future));
+        assertFalse(LoginClient.looksSignedOut(future.get(10, TimeUnit.SECONDS)));
+        assertEquals(requests + 1, server.getRequests());
+    }
+
+    private String login() throws IOException {
+        return new LoginClient(server.getBaseUrl()).login("2001234567", "secret");
+    }
+
+    private String add(String cookies) throws Exception {
+        RequestFuture<String> future = RequestFuture.newFuture();
+        queue.add(Request.create(cookies, URL, future, future));
+        return future.get(10, TimeUnit.SECONDS);
+    }
+
+    private static Cache.Entry entry(String body) {
+        Cache.Entry entry = new Cache.Entry();
+        entry.data = body.getBytes();
+        entry.responseHeaders = Collections.emptyMap();
+        entry.ttl = entry.softTtl = System.currentTimeMillis() + 60000;
+        return entry;
+    }
+
+    private static class MemoryCache implements Cache {
+        private final Map<String, Entry> entries = new HashMap<>();
+
+        @Override
+        public synchronized Entry get(String key) {
+            return entries.get(key);
+        }
+
+        @Override
+        public synchronized void put(String key, Entry entry) {
+            entries.put(key, entry);
+        }
+
+        @Override
+        public void initialize() {
+        }
+
+        @Override
+        public synchronized void invalidate(String key, boolean fullExpire) {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                entry.softTtl = 0;
+                if (fullExpire) {
+                    entry.ttl = 0;
+                }
+            }
+        }
+
+        @Override
+        public synchronized void remove(String key) {
+            entries.remove(key);
+        }
+
+        @Override
+        public synchronized void clear() {
+            entries.clear();
+        }
+    }
+}
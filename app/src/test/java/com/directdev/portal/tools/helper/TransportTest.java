@@ -0,0 +1,72 @@
+package com.directdev.portal.tools.helper;
+
+import com.directdev.portal.replay.BinusmayaRoutes;
+import com.directdev.portal.replay.ReplayServer;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import okhttp3.Request;
+import okhttp3.Response;
+
+import static org.junit.Assert.*;
+
+public class TransportTest {
+    private ReplayServer server;
+
+    @After
+    public void tearDown() throws IOException {
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    @Test
+    public void concurrentRequests_reuseAFewConnections() throws Exception {
+        server = new ReplayServer.Builder().latency(20).start(new BinusmayaRoutes(BinusmayaRoutes.Scale.X1));
+        ExecutorService threads = Executors.newFixedThreadPool(4);
+        List<Future<Integer>> responses = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            responses.add(threads.submit(new Callable<Integer>() {
+                @Override
+                public Integer call() throws IOException {
+                    Response response = get(BinusmayaRoutes.SCHEDULE);
+                    response.body().bytes();
+                    return response.code();
+                }
+            }));
+        }
+        for (Future<Integer> response : responses) {
+            assertEquals(200, (int) response.get());
+        }
+        threads.shutdown();
+
+        assertEquals(40, server.getRequests());
+        //One per thread at most, the rest go over the connections in the pool
+        assertTrue(String.valueOf(server.getConnections()), server.getConnections() <= 4);
+    }
+
+    @Test
+    public void gzippedResponses_areUnzipped() throws IOException {
+        BinusmayaRoutes routes = new BinusmayaRoutes(BinusmayaRoutes.Scale.X1);
+        server = new ReplayServer.Builder().gzip(true).start(routes);
+
+        Response response = get(BinusmayaRoutes.SCHEDULE);
+        String body = response.body().string();
+
+        assertEquals(routes.respond(BinusmayaRoutes.SCHEDULE), body);
+        assertTrue(server.getBytesSent() < body.length());
+    }
+
+    private Response get(String path) throws IOException {
+        return Transport.get().newCall(new Request.Builder().url(server.getBaseUrl() + path).build()).execute();
+    }
+}
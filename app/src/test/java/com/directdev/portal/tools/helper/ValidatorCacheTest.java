@@ -0,0 +1,81 @@
+package com.directdev.portal.tools.helper;
+
+import com.android.volley.Cache;
+import com.android.volley.NetworkResponse;
+
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.Assert.*;
+
+public class ValidatorCacheTest {
+    private static final long NOW = 1460000000000L;
+    private static final long MAX_AGE = 60000;
+    private static final String BODY = "[{\"STRM\":\"1510\"}]";
+
+    @Test
+    public void etag_isAlwaysRevalidated() {
+        Map<String, String> headers = headers();
+        headers.put("ETag", "\"5e1f\"");
+
+        Cache.Entry entry = ValidatorCache.entryFor(response(headers), BODY, NOW, MAX_AGE);
+
+        assertEquals("\"5e1f\"", entry.etag);
+        assertTrue(entry.isExpired());
+    }
+
+    @Test
+    public void lastModified_isParsed() {
+        Map<String, String> headers = headers();
+        headers.put("Last-Modified", "Thu, 07 Apr 2016 03:33:20 GMT");
+
+        Cache.Entry entry = ValidatorCache.entryFor(response(headers), BODY, NOW, MAX_AGE);
+
+        assertEquals(1460000000000L, entry.lastModified);
+        assertTrue(entry.isExpired());
+    }
+
+    @Test
+    public void noValidators_fallBackToMaxAge() {
+        Cache.Entry entry = ValidatorCache.entryFor(response(headers()), BODY, NOW, MAX_AGE);
+
+        assertEquals(NOW + MAX_AGE, entry.ttl);
+        assertEquals(NOW + MAX_AGE, entry.softTtl);
+    }
+
+    @Test
+    public void noValidators_andNoMaxAge_isNotCached() {
+        assertNull(ValidatorCache.entryFor(response(headers()), BODY, NOW, 0));
+    }
+
+    @Test
+    public void loginPage_isNotCached() {
+        String page = "\r\n<!DOCTYPE html><html><body><form action=\"login.php\"></form></body></html>";
+        Map<String, String> headers = headers();
+        headers.put("ETag", "\"5e1f\"");
+
+        assertNull(ValidatorCache.entryFor(response(headers), page, NOW, MAX_AGE));
+        assertNull(ValidatorCache.entryFor(response(headers()), page, NOW, MAX_AGE));
+    }
+
+    @Test
+    public void bodyThatIsNotJson_isNotCached() {
+        assertNull(ValidatorCache.entryFor(response(headers()), "[{\"STRM\":\"1510\"", NOW, MAX_AGE));
+        assertNull(ValidatorCache.entryFor(response(headers()), "Service Unavailable", NOW, MAX_AGE));
+        assertNull(ValidatorCache.entryFor(response(headers()), "", NOW, MAX_AGE));
+        assertNotNull(ValidatorCache.entryFor(response(headers()), " {\"Status\":[]}\n", NOW, MAX_AGE));
+    }
+
+    private static Map<String, String> headers() {
+        //Volley's BasicNetwork hands headers over case insensitive
+        Map<String, String> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        headers.put("Cache-Control", "no-cache");
+        return headers;
+    }
+
+    private static NetworkResponse response(Map<String, String> headers) {
+        return new NetworkResponse(200, BODY.getBytes(), headers, false);
+    }
+}
@@ -0,0 +1,41 @@
+package com.directdev.portal.tools.sync;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class BackoffTest {
+
+    @Test
+    public void delay_growsAndIsCapped() {
+        Backoff backoff = new Backoff(500, 8000, 10, new Random(1));
+        for (int retry = 0; retry < 10; retry++) {
+            long ceiling = Math.min(8000, 500L << retry);
+            for (int i = 0; i < 100; i++) {
+                long delay = backoff.delayMillis(retry);
+                assertTrue(retry + ": " + delay, delay >= 0 && delay < ceiling);
+            }
+        }
+    }
+
+    @Test
+    public void delay_isJittered() {
+        Backoff backoff = new Backoff(500, 8000, 2, new Random(1));
+        long first = backoff.delayMillis(3);
+        boolean different = false;
+        for (int i = 0; i < 10 && !different; i++) {
+            different = backoff.delayMillis(3) != first;
+        }
+        assertTrue(different);
+    }
+
+    @Test
+    public void canRetry_upToMaxRetries() {
+        Backoff backoff = new Backoff(500, 8000, 2, new Random(1));
+        assertTrue(backoff.canRetry(0));
+        assertTrue(backoff.canRetry(1));
+        assertFalse(backoff.canRetry(2));
+    }
+}
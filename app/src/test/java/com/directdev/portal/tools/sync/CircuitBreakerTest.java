@@ -0,0 +1,62 @@
+package com.directdev.portal.tools.sync;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class CircuitBreakerTest {
+
+    @Test
+    public void opensAfterFailuresInARow() {
+        CircuitBreaker breaker = new CircuitBreaker(3, 1000);
+        breaker.onFailure(0);
+        breaker.onFailure(0);
+        breaker.onSuccess();
+        breaker.onFailure(0);
+        breaker.onFailure(0);
+        assertTrue(breaker.allow(0));
+
+        breaker.onFailure(10);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.allow(500));
+    }
+
+    @Test
+    public void halfOpen_letsOneTryThrough() {
+        CircuitBreaker breaker = new CircuitBreaker(1, 1000);
+        breaker.onFailure(0);
+
+        assertTrue(breaker.allow(1000));
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertFalse(breaker.allow(1001));
+
+        //The try failed, open for another openMillis
+        breaker.onFailure(1200);
+        assertFalse(breaker.allow(2100));
+        assertTrue(breaker.allow(2200));
+
+        breaker.onSuccess();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertTrue(breaker.allow(2201));
+    }
+
+    @Test
+    public void halfOpen_triesAgainWhenTheTryIsNeverHeardOf() {
+        CircuitBreaker breaker = new CircuitBreaker(1, 1000);
+        breaker.onFailure(0);
+        assertTrue(breaker.allow(1000));
+
+        assertFalse(breaker.allow(1999));
+        assertTrue(breaker.allow(2000));
+    }
+
+    @Test
+    public void failuresWhileOpen_dontExtendIt() {
+        CircuitBreaker breaker = new CircuitBreaker(1, 1000);
+        breaker.onFailure(0);
+        //Sent before it opened
+        breaker.onFailure(900);
+
+        assertTrue(breaker.allow(1000));
+    }
+}
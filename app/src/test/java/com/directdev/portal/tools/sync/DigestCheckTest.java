@@ -0,0 +1,94 @@
+package com.directdev.portal.tools.sync;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * The Store is a map here and the Ingest saves the digest into it, the way the handlers of
+ * UpdateService save it into SyncState together with the data.
+ */
+public class DigestCheckTest {
+    private static final String KEY = "response/SCHEDULE";
+    private static final String BODY = "[{\"CRSE_CODE\":\"COMP6048\"}]";
+
+    private final Map<String, String> saved = new HashMap<>();
+    private final List<String> ingested = new ArrayList<>();
+    private final DigestCheck check = new DigestCheck(new DigestCheck.Store() {
+        @Override
+        public String get(String key) {
+            return saved.get(key);
+        }
+    });
+
+    @Test
+    public void sameBody_isNotModifiedWithoutIngesting() {
+        assertEquals(SyncResult.Outcome.SUCCESS, check.sync(KEY, BODY, new Recording(KEY, BODY)));
+
+        assertEquals(SyncResult.Outcome.NOT_MODIFIED, check.sync(KEY, BODY, new Recording(KEY, BODY)));
+        assertEquals(1, ingested.size());
+    }
+
+    @Test
+    public void changedBody_isIngested() {
+        check.sync(KEY, BODY, new Recording(KEY, BODY));
+        String changed = BODY.replace("COMP6048", "COMP6049");
+
+        assertEquals(SyncResult.Outcome.SUCCESS, check.sync(KEY, changed, new Recording(KEY, changed)));
+        assertEquals(2, ingested.size());
+        assertEquals(ResponseDigest.of(changed), saved.get(KEY));
+    }
+
+    @Test
+    public void digestOfAnotherKey_doesNotCount() {
+        check.sync(KEY, BODY, new Recording(KEY, BODY));
+
+        assertFalse(check.isUnchanged("response/EXAM", ResponseDigest.of(BODY)));
+        assertEquals(SyncResult.Outcome.SUCCESS, check.sync("response/EXAM", BODY, new Recording("response/EXAM", BODY)));
+    }
+
+    @Test
+    public void emptyBody_isNeverUnchanged() {
+        saved.put(KEY, ResponseDigest.of(""));
+
+        assertFalse(check.isUnchanged(KEY, ResponseDigest.of("")));
+        assertEquals(SyncResult.Outcome.SUCCESS, check.sync(KEY, "", new Recording(KEY, "")));
+        assertEquals(1, ingested.size());
+    }
+
+    @Test
+    public void failedIngest_isIngestedAgainNextTime() {
+        SyncResult.Outcome failed = check.sync(KEY, BODY, new DigestCheck.Ingest() {
+            @Override
+            public SyncResult.Outcome run(String digest) {
+                return SyncResult.Outcome.FAILED;
+            }
+        });
+
+        assertEquals(SyncResult.Outcome.FAILED, failed);
+        assertEquals(SyncResult.Outcome.SUCCESS, check.sync(KEY, BODY, new Recording(KEY, BODY)));
+    }
+
+    private class Recording implements DigestCheck.Ingest {
+        private final String key;
+        private final String body;
+
+        Recording(String key, String body) {
+            this.key = key;
+            this.body = body;
+        }
+
+        @Override
+        public SyncResult.Outcome run(String digest) {
+            assertEquals(ResponseDigest.of(body), digest);
+            ingested.add(body);
+            saved.put(key, digest);
+            return SyncResult.Outcome.SUCCESS;
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package com.directdev.portal.tools.sync;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.*;
+
+/**
+ * The store counts its transactions, the writes add rows to it, like the datasets of a refresh do to
+ * Realm.
+ */
+public class GroupCommitWriterTest {
+
+    @Test
+    public void concurrentCommits_shareTransactions() throws Exception {
+        final CountingStore store = new CountingStore();
+        final GroupCommitWriter<CountingStore> writer = new GroupCommitWriter<>(new CountingTransactor(store), 64, 100);
+        final CountDownLatch start = new CountDownLatch(1);
+        List<Thread> datasets = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            final String row = "dataset " + i;
+            Thread dataset = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    writer.commit(add(row));
+                }
+            });
+            dataset.start();
+            datasets.add(dataset);
+        }
+        start.countDown();
+        for (Thread dataset : datasets) {
+            dataset.join();
+        }
+
+        assertEquals(8, store.rows.size());
+        assertTrue(store.commits + " commits", store.commits < 8);
+    }
+
+    @Test
+    public void failedWrite_onlyFailsItsCaller() throws Exception {
+        final CountingStore store = new CountingStore();
+        final GroupCommitWriter<CountingStore> writer = new GroupCommitWriter<>(new CountingTransactor(store), 64, 200);
+        final List<RuntimeException> failures = new ArrayList<>();
+        Thread broken = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    writer.commit(new StagedWrite<CountingStore>() {
+                        @Override
+                        public void apply(CountingStore store) {
+                            store.rows.add("half written");
+                            throw new IllegalStateException();
+                        }
+                    });
+                } catch (IllegalStateException e) {
+                    synchronized (failures) {
+                        failures.add(e);
+                    }
+                }
+            }
+        });
+        broken.start();
+        writer.commit(add("schedule"));
+        broken.join();
+
+        assertEquals(1, failures.size());
+        assertEquals(1, store.rows.size());
+        assertEquals("schedule", store.rows.get(0));
+    }
+
+    @Test
+    public void atomic_holdsWritesUntilFlush() {
+        CountingStore store = new CountingStore();
+        GroupCommitWriter<CountingStore> writer = new GroupCommitWriter<>(new CountingTransactor(store));
+        writer.setAtomic(true);
+
+        writer.commit(add("terms"));
+        writer.commit(add("grades"));
+        writer.commit(add("schedule"));
+        assertTrue(store.rows.isEmpty());
+
+        writer.flush();
+        assertEquals(3, store.rows.size());
+        assertEquals(1, store.commits);
+    }
+
+    @Test
+    public void atomic_discardSavesNothing() {
+        CountingStore store = new CountingStore();
+        GroupCommitWriter<CountingStore> writer = new GroupCommitWriter<>(new CountingTransactor(store));
+        writer.setAtomic(true);
+
+        writer.commit(add("terms"));
+        assertEquals(1, writer.discard());
+        writer.flush();
+
+        assertTrue(store.rows.isEmpty());
+        assertEquals(0, store.commits);
+    }
+
+    @Test
+    public void backToBatched_savesWhatIsHeld() throws Exception {
+        CountingStore store = new CountingStore();
+        GroupCommitWriter<CountingStore> writer = new GroupCommitWriter<>(new CountingTransactor(store), 64, 0);
+        writer.setAtomic(true);
+        writer.commit(add("terms"));
+
+        writer.setAtomic(false);
+        assertEquals(1, store.rows.size());
+        writer.commit(add("schedule"));
+        assertEquals(2, store.rows.size());
+        assertEquals(2, store.commits);
+    }
+
+    private static StagedWrite<CountingStore> add(final String row) {
+        return new StagedWrite<CountingStore>() {
+            @Override
+            public void apply(CountingStore store) {
+                store.rows.add(row);
+            }
+        };
+    }
+
+    private static class CountingStore {
+        final List<String> rows = new ArrayList<>();
+        List<String> snapshot;
+        int commits;
+    }
+
+    //Writes only ever run on the writer thread, the test thread reads after they are done
+    private static class CountingTransactor implements Transactor<CountingStore> {
+        private final CountingStore store;
+
+        CountingTransactor(CountingStore store) {
+            this.store = store;
+        }
+
+        @Override
+        public CountingStore open() {
+            return store;
+        }
+
+        @Override
+        public void begin(CountingStore store) {
+            synchronized (store) {
+                store.snapshot = new ArrayList<>(store.rows);
+            }
+        }
+
+        @Override
+        public void commit(CountingStore store) {
+            synchronized (store) {
+                store.commits++;
+            }
+        }
+
+        @Override
+        public void cancel(CountingStore store) {
+            synchronized (store) {
+                store.rows.clear();
+                store.rows.addAll(store.snapshot);
+            }
+        }
+
+        @Override
+        public void close(CountingStore store) {
+        }
+    }
+}
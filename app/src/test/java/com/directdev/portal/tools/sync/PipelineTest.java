@@ -0,0 +1,224 @@
+package com.directdev.portal.tools.sync;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * The store is a list of rows, the items are terms that are "parsed" into rows and then written.
+ */
+public class PipelineTest {
+
+    @Test
+    public void submit_returnsBeforeTheItemIsParsed() throws Exception {
+        List<String> store = new ArrayList<>();
+        final CountDownLatch parsing = new CountDownLatch(1);
+        Pipeline<List<String>, String, String> pipeline = pipeline(store, new Pipeline.Parse<String, String>() {
+            @Override
+            public String parse(String item) {
+                await(parsing);
+                return "row " + item;
+            }
+        }, Pipeline.DEFAULT_CAPACITY);
+
+        pipeline.submit("1410");
+        pipeline.submit("1420");
+        //Nothing is parsed yet, but the network stage is free to download the next term
+        assertTrue(store.isEmpty());
+
+        parsing.countDown();
+        pipeline.finish();
+        Collections.sort(store);
+        assertEquals(2, store.size());
+        assertEquals("row 1410", store.get(0));
+    }
+
+    @Test
+    public void submit_blocksAtCapacity() throws Exception {
+        List<String> store = new ArrayList<>();
+        final CountDownLatch parsing = new CountDownLatch(1);
+        final Pipeline<List<String>, String, String> pipeline = pipeline(store, new Pipeline.Parse<String, String>() {
+            @Override
+            public String parse(String item) {
+                await(parsing);
+                return item;
+            }
+        }, 2);
+        pipeline.submit("1410");
+        pipeline.submit("1420");
+
+        final CountDownLatch submitted = new CountDownLatch(1);
+        Thread network = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    pipeline.submit("1510");
+                    submitted.countDown();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        network.start();
+        assertFalse(submitted.await(100, TimeUnit.MILLISECONDS));
+
+        parsing.countDown();
+        assertTrue(submitted.await(1, TimeUnit.SECONDS));
+        network.join();
+        pipeline.finish();
+        assertEquals(3, store.size());
+    }
+
+    @Test
+    public void failure_isThrownByFinishAndDropsLaterItems() throws Exception {
+        List<String> store = new ArrayList<>();
+        Pipeline<List<String>, String, String> pipeline = pipeline(store, new Pipeline.Parse<String, String>() {
+            @Override
+            public String parse(String item) {
+                if (item.equals("broken")) {
+                    throw new IllegalStateException(item);
+                }
+                return item;
+            }
+        }, Pipeline.DEFAULT_CAPACITY);
+
+        pipeline.submit("1410");
+        pipeline.submit("broken");
+        try {
+            pipeline.finish();
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+        pipeline.submit("1510");
+        try {
+            pipeline.finish();
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+
+        assertEquals(Collections.singletonList("1410"), store);
+    }
+
+    @Test
+    public void metrics_ofTheDatasetAreAttachedToTheStages() throws Exception {
+        List<String> store = new ArrayList<>();
+        DatasetMetrics metrics = DatasetMetrics.begin(0);
+        try {
+            Pipeline<List<String>, String, String> pipeline = pipeline(store, new Pipeline.Parse<String, String>() {
+                @Override
+                public String parse(String item) {
+                    DatasetMetrics.recordParse(1000000);
+                    return item;
+                }
+            }, Pipeline.DEFAULT_CAPACITY);
+            for (int i = 0; i < 10; i++) {
+                pipeline.submit(String.valueOf(i));
+            }
+            pipeline.finish();
+        } finally {
+            DatasetMetrics.end();
+        }
+
+        assertEquals(10, metrics.getParseNanos() / 1000000);
+        assertEquals(10, metrics.getRowsChanged());
+        //The writes went through the StagedWriter on the writer thread
+        assertTrue(metrics.getWriteNanos() > 0);
+    }
+
+    @Test
+    public void itemsWithNothingToSave_openNoTransaction() throws Exception {
+        final List<String> store = new ArrayList<>();
+        ListTransactor transactor = new ListTransactor(store);
+        Pipeline<List<String>, String, String> pipeline = new Pipeline<>(new StagedWriter<>(transactor),
+                new Pipeline.Parse<String, String>() {
+                    @Override
+                    public String parse(String item) {
+                        return item;
+                    }
+                },
+                new Pipeline.Persist<List<String>, String>() {
+                    @Override
+                    public StagedWrite<List<String>> persist(final String parsed) {
+                        if (parsed.startsWith("unchanged")) {
+                            return null;
+                        }
+                        return new StagedWrite<List<String>>() {
+                            @Override
+                            public void apply(List<String> store) {
+                                store.add(parsed);
+                            }
+                        };
+                    }
+                });
+
+        pipeline.submit("unchanged 1410");
+        pipeline.submit("1420");
+        pipeline.submit("unchanged 1430");
+        pipeline.finish();
+
+        assertEquals(Collections.singletonList("1420"), store);
+        assertEquals(1, transactor.transactions);
+    }
+
+    private static Pipeline<List<String>, String, String> pipeline(List<String> store, Pipeline.Parse<String, String> parse,
+                                                                   int capacity) {
+        return new Pipeline<>(new StagedWriter<>(new ListTransactor(store)), parse,
+                new Pipeline.Persist<List<String>, String>() {
+                    @Override
+                    public StagedWrite<List<String>> persist(final String parsed) {
+                        return new StagedWrite<List<String>>() {
+                            @Override
+                            public void apply(List<String> store) {
+                                store.add(parsed);
+                                DatasetMetrics.recordRows(1);
+                            }
+                        };
+                    }
+                }, capacity);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static class ListTransactor implements Transactor<List<String>> {
+        private final List<String> store;
+        volatile int transactions;
+
+        ListTransactor(List<String> store) {
+            this.store = store;
+        }
+
+        @Override
+        public List<String> open() {
+            return store;
+        }
+
+        @Override
+        public void begin(List<String> store) {
+            transactions++;
+        }
+
+        @Override
+        public void commit(List<String> store) {
+        }
+
+        @Override
+        public void cancel(List<String> store) {
+        }
+
+        @Override
+        public void close(List<String> store) {
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.directdev.portal.tools.sync;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+
+import static org.junit.Assert.*;
+
+public class RefreshGraphTest {
+    private static final SyncTask TASK = new SyncTask() {
+        @Override
+        public SyncResult.Outcome run(Dataset dataset) {
+            return SyncResult.Outcome.SUCCESS;
+        }
+    };
+
+    @Test
+    public void add_onlyStartsDatasetsWithoutPendingDependencies() {
+        RefreshGraph graph = new RefreshGraph();
+
+        RefreshGraph.Step step = graph.add(Arrays.asList(Dataset.TERMS, Dataset.GRADES, Dataset.SCHEDULE), TASK);
+
+        assertEquals(EnumSet.of(Dataset.TERMS, Dataset.SCHEDULE), step.ready.keySet());
+        assertTrue(step.skipped.isEmpty());
+    }
+
+    @Test
+    public void add_dependencyOutsideTheRefreshDoesNotBlock() {
+        RefreshGraph graph = new RefreshGraph();
+
+        //Terms are already in Realm from an earlier refresh
+        RefreshGraph.Step step = graph.add(Collections.singletonList(Dataset.GRADES), TASK);
+
+        assertEquals(EnumSet.of(Dataset.GRADES), step.ready.keySet());
+    }
+
+    @Test
+    public void complete_startsTheDependents() {
+        RefreshGraph graph = new RefreshGraph();
+        graph.add(Arrays.asList(Dataset.TERMS, Dataset.GRADES, Dataset.COURSE), TASK);
+
+        RefreshGraph.Step step = graph.complete(Dataset.TERMS, SyncResult.Outcome.NOT_MODIFIED);
+
+        assertEquals(EnumSet.of(Dataset.GRADES, Dataset.COURSE), step.ready.keySet());
+    }
+
+    @Test
+    public void complete_failedDependencySkipsEveryDependent() {
+        RefreshGraph graph = new RefreshGraph();
+        graph.add(Arrays.asList(Dataset.TERMS, Dataset.GRADES, Dataset.COURSE, Dataset.RESOURCES, Dataset.EXAM), TASK);
+
+        RefreshGraph.Step step = graph.complete(Dataset.TERMS, SyncResult.Outcome.FAILED);
+
+        //Resources need courses, which need terms
+        assertTrue(step.ready.isEmpty());
+        assertEquals(Arrays.asList(Dataset.GRADES, Dataset.COURSE, Dataset.RESOURCES), step.skipped);
+    }
+
+    @Test
+    public void add_whileRunning_doesNotStartADatasetTwice() {
+        RefreshGraph graph = new RefreshGraph();
+        graph.add(Arrays.asList(Dataset.TERMS, Dataset.GRADES), TASK);
+
+        RefreshGraph.Step step = graph.add(Arrays.asList(Dataset.TERMS, Dataset.GRADES, Dataset.EXAM), TASK);
+
+        assertEquals(EnumSet.of(Dataset.EXAM), step.ready.keySet());
+        assertEquals(EnumSet.of(Dataset.GRADES), graph.complete(Dataset.TERMS, SyncResult.Outcome.SUCCESS).ready.keySet());
+    }
+
+    @Test
+    public void add_afterItFinished_runsADatasetAgain() {
+        RefreshGraph graph = new RefreshGraph();
+        graph.add(Collections.singletonList(Dataset.SCHEDULE), TASK);
+        graph.complete(Dataset.SCHEDULE, SyncResult.Outcome.SUCCESS);
+
+        RefreshGraph.Step step = graph.add(Collections.singletonList(Dataset.SCHEDULE), TASK);
+
+        assertEquals(EnumSet.of(Dataset.SCHEDULE), step.ready.keySet());
+    }
+}
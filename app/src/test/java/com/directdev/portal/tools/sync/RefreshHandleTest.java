@@ -0,0 +1,104 @@
+package com.directdev.portal.tools.sync;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class RefreshHandleTest {
+
+    @Test
+    public void coalesce_onlyReturnsDatasetsThatAreNotPending() {
+        RefreshHandle refresh = new RefreshHandle();
+        refresh.expect(Arrays.asList(Dataset.SCHEDULE, Dataset.FINANCE));
+
+        //Pull to refresh while the first run of the app is still syncing
+        List<Dataset> added = refresh.coalesce(Arrays.asList(Dataset.SCHEDULE, Dataset.FINANCE, Dataset.EXAM));
+
+        assertEquals(Collections.singletonList(Dataset.EXAM), added);
+        assertTrue(refresh.isPending(Dataset.EXAM));
+    }
+
+    @Test
+    public void coalesce_runsAFinishedDatasetAgain() {
+        RefreshHandle refresh = new RefreshHandle();
+        refresh.expect(Arrays.asList(Dataset.SCHEDULE, Dataset.EXAM));
+        refresh.finish(new SyncResult(Dataset.SCHEDULE, SyncResult.Outcome.SUCCESS, 0, 1));
+
+        List<Dataset> added = refresh.coalesce(Collections.singletonList(Dataset.SCHEDULE));
+
+        assertEquals(Collections.singletonList(Dataset.SCHEDULE), added);
+    }
+
+    @Test
+    public void coalesce_onAFinishedRefresh() {
+        RefreshHandle refresh = new RefreshHandle();
+        refresh.expect(Collections.singletonList(Dataset.SCHEDULE));
+        refresh.finish(new SyncResult(Dataset.SCHEDULE, SyncResult.Outcome.SUCCESS, 0, 1));
+
+        assertNull(refresh.coalesce(Collections.singletonList(Dataset.SCHEDULE)));
+        assertFalse(refresh.isPending(Dataset.SCHEDULE));
+    }
+
+    @Test
+    public void coalesce_onACancelledRefresh() {
+        RefreshHandle refresh = new RefreshHandle();
+        refresh.expect(Arrays.asList(Dataset.SCHEDULE, Dataset.GRADES));
+
+        //Signed out while grades were still downloading
+        refresh.cancel();
+
+        assertNull(refresh.coalesce(Collections.singletonList(Dataset.EXAM)));
+        assertFalse(refresh.expect(Collections.singletonList(Dataset.EXAM)));
+        assertFalse(refresh.isPending(Dataset.EXAM));
+    }
+
+    @Test
+    public void finish_journalFinishesBeforeTheRestOfTheRefresh() {
+        RefreshHandle refresh = new RefreshHandle();
+        refresh.expect(Arrays.asList(Dataset.SCHEDULE, Dataset.EXAM, Dataset.GRADES));
+        final List<Dataset.Priority> finished = new ArrayList<>();
+        refresh.addListener(new RefreshHandle.Listener() {
+            @Override
+            public void onDatasetFinished(SyncResult result) {
+            }
+
+            @Override
+            public void onPriorityFinished(RefreshHandle refresh, Dataset.Priority priority) {
+                finished.add(priority);
+            }
+
+            @Override
+            public void onRefreshFinished(RefreshHandle refresh) {
+            }
+        });
+
+        refresh.finish(new SyncResult(Dataset.SCHEDULE, SyncResult.Outcome.SUCCESS, 0, 1));
+        assertTrue(finished.isEmpty());
+        refresh.finish(new SyncResult(Dataset.EXAM, SyncResult.Outcome.NOT_MODIFIED, 0, 2));
+
+        assertEquals(Collections.singletonList(Dataset.Priority.FOREGROUND), finished);
+        assertFalse(refresh.isPending(Dataset.Priority.FOREGROUND));
+        assertTrue(refresh.isPending(Dataset.Priority.BACKGROUND));
+        assertFalse(refresh.isFinished());
+
+        refresh.finish(new SyncResult(Dataset.GRADES, SyncResult.Outcome.SUCCESS, 0, 3));
+        assertEquals(Arrays.asList(Dataset.Priority.FOREGROUND, Dataset.Priority.BACKGROUND), finished);
+    }
+
+    @Test
+    public void coalesce_journalIsPendingAgain() {
+        RefreshHandle refresh = new RefreshHandle();
+        refresh.expect(Arrays.asList(Dataset.SCHEDULE, Dataset.GRADES));
+        refresh.finish(new SyncResult(Dataset.SCHEDULE, SyncResult.Outcome.SUCCESS, 0, 1));
+
+        //Pull to refresh while grades are still downloading
+        refresh.coalesce(Collections.singletonList(Dataset.SCHEDULE));
+
+        assertTrue(refresh.isPending(Dataset.Priority.FOREGROUND));
+    }
+}
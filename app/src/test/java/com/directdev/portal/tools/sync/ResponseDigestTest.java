@@ -0,0 +1,39 @@
+package com.directdev.portal.tools.sync;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class ResponseDigestTest {
+
+    @Test
+    public void of_isTheHexSha1OfTheUtf8Body() {
+        assertEquals("da39a3ee5e6b4b0d3255bfef95601890afd80709", ResponseDigest.of(""));
+        assertEquals("a9993e364706816aba3e25717850c26c9cd0d89d", ResponseDigest.of("abc"));
+        //The two UTF-8 bytes of an e with an acute accent, not the one byte of ISO-8859-1
+        assertEquals("bf15be717ac1b080b4f1c456692825891ff5073d", ResponseDigest.of("\u00e9"));
+    }
+
+    @Test
+    public void of_changesWithTheBody() {
+        String body = "[{\"STRM\":\"1510\",\"COURSE_GRADE\":\"A\"}]";
+
+        assertEquals(ResponseDigest.of(body), ResponseDigest.of(new String(body)));
+        assertNotEquals(ResponseDigest.of(body), ResponseDigest.of(body.replace("\"A\"", "\"B\"")));
+    }
+
+    @Test
+    public void ofList_dependsOnEveryBodyAndTheirOrder() {
+        String lec = "[{\"title\":\"Session 1\"}]";
+        String lab = "[{\"title\":\"Lab 1\"}]";
+
+        assertEquals(ResponseDigest.of(lec), ResponseDigest.of(Collections.singletonList(lec)));
+        assertEquals(ResponseDigest.of(Arrays.asList(lec, lab)), ResponseDigest.of(Arrays.asList(lec, lab)));
+        assertNotEquals(ResponseDigest.of(Arrays.asList(lec, lab)), ResponseDigest.of(Arrays.asList(lab, lec)));
+        assertNotEquals(ResponseDigest.of(Arrays.asList(lec, lab)), ResponseDigest.of(Arrays.asList(lec, lab + " ")));
+        assertEquals(ResponseDigest.of(""), ResponseDigest.of(Arrays.asList(lec, "")));
+    }
+}
@@ -0,0 +1,85 @@
+package com.directdev.portal.tools.sync;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class RowDiffTest {
+    private static final RowFormat<Row> FORMAT = new RowFormat<Row>() {
+        @Override
+        public String naturalKey(Row row) {
+            return row.course;
+        }
+
+        @Override
+        public String getId(Row row) {
+            return row.id;
+        }
+
+        @Override
+        public void setId(Row row, String id) {
+            row.id = id;
+        }
+
+        @Override
+        public String content(Row row) {
+            return row.course + "|" + row.room;
+        }
+    };
+
+    @Test
+    public void unchangedRefresh_writesNothing() {
+        List<Row> saved = rows(new Row("COMP6047", "R401"), new Row("MATH6025", "R502"));
+        List<Row> incoming = rows(new Row("COMP6047", "R401"), new Row("MATH6025", "R502"));
+
+        RowDiff<Row> diff = RowDiff.compute(saved, incoming, FORMAT);
+
+        assertTrue(diff.isEmpty());
+        assertEquals(2, diff.getUnchanged());
+    }
+
+    @Test
+    public void onlyChangedRowsAreWritten() {
+        List<Row> saved = rows(new Row("COMP6047", "R401"), new Row("MATH6025", "R502"), new Row("CHAR6013", "R101"));
+        List<Row> incoming = rows(new Row("COMP6047", "R401"), new Row("MATH6025", "R703"), new Row("ENGL6128", "R201"));
+
+        RowDiff<Row> diff = RowDiff.compute(saved, incoming, FORMAT);
+
+        assertEquals(2, diff.getUpserts().size());
+        assertEquals("MATH6025", diff.getUpserts().get(0).id);
+        assertEquals("ENGL6128", diff.getUpserts().get(1).id);
+        assertEquals(Arrays.asList("CHAR6013"), diff.getDeletes());
+        assertEquals(1, diff.getUnchanged());
+    }
+
+    @Test
+    public void duplicateNaturalKeys_getStableIds() {
+        List<Row> incoming = new ArrayList<>(Arrays.asList(new Row("COMP6047", "R401"), new Row("COMP6047", "R402")));
+
+        RowDiff.assignIds(incoming, FORMAT);
+
+        assertEquals("COMP6047", incoming.get(0).id);
+        assertEquals("COMP6047#1", incoming.get(1).id);
+    }
+
+    private static List<Row> rows(Row... rows) {
+        List<Row> list = new ArrayList<>(Arrays.asList(rows));
+        RowDiff.assignIds(list, FORMAT);
+        return list;
+    }
+
+    private static class Row {
+        String id;
+        final String course;
+        final String room;
+
+        Row(String course, String room) {
+            this.course = course;
+            this.room = room;
+        }
+    }
+}
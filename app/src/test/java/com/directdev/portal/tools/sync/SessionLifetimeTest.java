@@ -0,0 +1,88 @@
+package com.directdev.portal.tools.sync;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SessionLifetimeTest {
+
+    @Test
+    public void unknownIssueTime_renews() {
+        SessionLifetime lifetime = new SessionLifetime();
+        assertTrue(lifetime.shouldRenew(1000));
+
+        lifetime.issued(1000);
+        assertFalse(lifetime.shouldRenew(2000));
+        assertTrue(lifetime.shouldRenew(1000 + (long) (SessionLifetime.DEFAULT_LIFETIME_MILLIS * 0.8)));
+    }
+
+    @Test
+    public void learnsTheMedianLifetime() {
+        SessionLifetime lifetime = new SessionLifetime(3, 0.5);
+        long[] lifetimes = {10000, 9000, 500000, 11000};
+        long now = 0;
+        for (long sample : lifetimes) {
+            lifetime.issued(now);
+            lifetime.used(now + sample - 100);
+            lifetime.expired(now + sample + 100);
+            //The requests that were in flight with the same cookie don't count again
+            lifetime.expired(now + sample + 105);
+            now += sample + 110;
+        }
+        //The oldest sample is dropped, 9000, 11000 and the outlier are left
+        assertEquals(11000, lifetime.getTypicalLifetime());
+
+        lifetime.issued(now);
+        assertFalse(lifetime.shouldRenew(now + 5000));
+        assertTrue(lifetime.shouldRenew(now + 5500));
+    }
+
+    @Test
+    public void idleGap_isNotTakenForTheLifetime() {
+        SessionLifetime lifetime = new SessionLifetime();
+        long minute = 60 * 1000;
+
+        //Used for 5 minutes, then the app sat idle for 3 hours before the next request
+        lifetime.issued(0);
+        lifetime.used(5 * minute);
+        lifetime.expired(185 * minute);
+        assertEquals(SessionLifetime.DEFAULT_LIFETIME_MILLIS, lifetime.getTypicalLifetime());
+
+        //A refresh that ran into the expiry, it was somewhere between 14 and 16 minutes
+        lifetime.issued(200 * minute);
+        lifetime.used(214 * minute);
+        lifetime.expired(216 * minute);
+        assertEquals(15 * minute, lifetime.getTypicalLifetime());
+
+        //Idle again, but the session was still good after 40 minutes
+        lifetime.issued(300 * minute);
+        lifetime.used(340 * minute);
+        lifetime.expired(700 * minute);
+        assertEquals(40 * minute, lifetime.getTypicalLifetime());
+    }
+
+    @Test
+    public void encode_roundTrips() {
+        SessionLifetime lifetime = new SessionLifetime();
+        lifetime.issued(100);
+        lifetime.used(59100);
+        lifetime.expired(61100);
+        lifetime.issued(70000);
+        lifetime.used(80000);
+
+        SessionLifetime decoded = SessionLifetime.decode(lifetime.encode());
+        assertEquals(70000, decoded.getIssuedAt());
+        assertEquals(80000, decoded.getLastUsedAt());
+        assertEquals(60000, decoded.getTypicalLifetime());
+
+        //Saved before the last use was kept
+        SessionLifetime old = SessionLifetime.decode("70000;60000");
+        assertEquals(70000, old.getIssuedAt());
+        assertEquals(0, old.getLastUsedAt());
+        assertEquals(60000, old.getTypicalLifetime());
+
+        assertEquals(0, SessionLifetime.decode("").getIssuedAt());
+        assertEquals(0, SessionLifetime.decode("x;1,2").getIssuedAt());
+        assertEquals(SessionLifetime.DEFAULT_LIFETIME_MILLIS, SessionLifetime.decode(null).getTypicalLifetime());
+    }
+}
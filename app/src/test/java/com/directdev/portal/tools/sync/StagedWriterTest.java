@@ -0,0 +1,138 @@
+package com.directdev.portal.tools.sync;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static org.junit.Assert.*;
+
+/**
+ * The store here stands in for Realm, its lock is taken in begin() and released in commit() or
+ * cancel() just like the Realm write lock.
+ */
+public class StagedWriterTest {
+    private static final long FETCH_MILLIS = 300;
+
+    @Test
+    public void writeLock_isOnlyHeldDuringCommit() throws Exception {
+        final LockedStore store = new LockedStore();
+        final StagedWriter<LockedStore> writer = new StagedWriter<>(new LockedTransactor(store));
+        final CountDownLatch fetching = new CountDownLatch(1);
+
+        Thread sync = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                //Same order as the handle functions in UpdateService, download and parse, then commit
+                fetching.countDown();
+                final List<String> rows = fetch();
+                writer.commit(new StagedWrite<LockedStore>() {
+                    @Override
+                    public void apply(LockedStore store) {
+                        store.rows.addAll(rows);
+                    }
+                });
+            }
+        });
+        sync.start();
+
+        //While the dataset is downloading another writer gets the lock right away
+        assertTrue(fetching.await(1, TimeUnit.SECONDS));
+        assertTrue(store.lock.tryLock(50, TimeUnit.MILLISECONDS));
+        store.lock.unlock();
+
+        sync.join();
+        assertEquals(3, store.rows.size());
+        assertEquals(1, store.holds.size());
+        assertTrue("lock held for " + store.holds.get(0) + "ms", store.holds.get(0) < FETCH_MILLIS / 3);
+    }
+
+    @Test
+    public void failedWrite_cancelsAndReleasesLock() {
+        LockedStore store = new LockedStore();
+        StagedWriter<LockedStore> writer = new StagedWriter<>(new LockedTransactor(store));
+
+        try {
+            writer.commit(new StagedWrite<LockedStore>() {
+                @Override
+                public void apply(LockedStore store) {
+                    store.rows.add("half written");
+                    throw new IllegalStateException();
+                }
+            });
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+
+        assertFalse(store.lock.isLocked());
+        assertTrue(store.rows.isEmpty());
+        assertEquals(1, store.cancelled);
+    }
+
+    private static List<String> fetch() {
+        try {
+            Thread.sleep(FETCH_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        List<String> rows = new ArrayList<>();
+        rows.add("1410");
+        rows.add("1420");
+        rows.add("1510");
+        return rows;
+    }
+
+    private static class LockedStore {
+        final ReentrantLock lock = new ReentrantLock();
+        final List<String> rows = new ArrayList<>();
+        final List<Long> holds = new ArrayList<>();
+        List<String> snapshot;
+        long lockedAt;
+        int cancelled;
+    }
+
+    private static class LockedTransactor implements Transactor<LockedStore> {
+        private final LockedStore store;
+
+        LockedTransactor(LockedStore store) {
+            this.store = store;
+        }
+
+        @Override
+        public LockedStore open() {
+            return store;
+        }
+
+        @Override
+        public void begin(LockedStore store) {
+            store.lock.lock();
+            store.lockedAt = System.currentTimeMillis();
+            store.snapshot = new ArrayList<>(store.rows);
+        }
+
+        @Override
+        public void commit(LockedStore store) {
+            release(store);
+        }
+
+        @Override
+        public void cancel(LockedStore store) {
+            store.rows.clear();
+            store.rows.addAll(store.snapshot);
+            store.cancelled++;
+            release(store);
+        }
+
+        @Override
+        public void close(LockedStore store) {
+        }
+
+        private void release(LockedStore store) {
+            store.holds.add(System.currentTimeMillis() - store.lockedAt);
+            store.lock.unlock();
+        }
+    }
+}
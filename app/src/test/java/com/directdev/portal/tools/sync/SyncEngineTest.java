@@ -0,0 +1,179 @@
+package com.directdev.portal.tools.sync;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * The SyncTask here stands in for the handle functions of UpdateService, it records the order the
+ * datasets ran in and can hold a dataset until the test lets it go.
+ */
+public class SyncEngineTest {
+    private static final long TIMEOUT_SECONDS = 5;
+
+    @Test
+    public void dependents_runAfterTheirDependency() throws Exception {
+        SyncEngine engine = new SyncEngine(SyncEngine.DEFAULT_WORKERS);
+        RecordingTask task = new RecordingTask();
+        List<Dataset> datasets = Arrays.asList(Dataset.TERMS, Dataset.GRADES, Dataset.COURSE, Dataset.RESOURCES);
+
+        RefreshHandle refresh = run(engine, datasets, task);
+
+        assertTrue(refresh.isSuccessful());
+        List<Dataset> order = task.getOrder();
+        assertEquals(Dataset.TERMS, order.get(0));
+        assertTrue(order.indexOf(Dataset.COURSE) < order.indexOf(Dataset.RESOURCES));
+        assertEquals(4, order.size());
+    }
+
+    @Test
+    public void failedDependency_skipsOnlyItsDependents() throws Exception {
+        SyncEngine engine = new SyncEngine(SyncEngine.DEFAULT_WORKERS);
+        RecordingTask task = new RecordingTask();
+        task.outcomes.put(Dataset.TERMS, SyncResult.Outcome.FAILED);
+
+        RefreshHandle refresh = run(engine, Arrays.asList(Dataset.TERMS, Dataset.GRADES, Dataset.SCHEDULE), task);
+
+        assertEquals(SyncResult.Outcome.SKIPPED, outcomeOf(refresh, Dataset.GRADES));
+        assertEquals(SyncResult.Outcome.SUCCESS, outcomeOf(refresh, Dataset.SCHEDULE));
+        assertFalse(task.getOrder().contains(Dataset.GRADES));
+    }
+
+    @Test
+    public void foregroundDatasets_takeTheNextWorkerFirst() throws Exception {
+        SyncEngine engine = new SyncEngine(1);
+        RecordingTask task = new RecordingTask();
+        task.hold(Dataset.GPA);
+        RefreshHandle refresh = new RefreshHandle();
+        refresh.expect(Arrays.asList(Dataset.GPA, Dataset.ACCOUNT, Dataset.TERMS, Dataset.EXAM, Dataset.FINANCE));
+
+        //GPA keeps the only worker busy while the rest are queued, background ones first
+        engine.submit(refresh, Collections.singletonList(Dataset.GPA), task);
+        assertTrue(task.started.get(Dataset.GPA).await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        engine.submit(refresh, Collections.singletonList(Dataset.ACCOUNT), task);
+        engine.submit(refresh, Collections.singletonList(Dataset.TERMS), task);
+        engine.submit(refresh, Collections.singletonList(Dataset.EXAM), task);
+        engine.submit(refresh, Collections.singletonList(Dataset.FINANCE), task);
+        task.release(Dataset.GPA);
+        assertTrue(refresh.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+
+        assertEquals(Arrays.asList(Dataset.GPA, Dataset.EXAM, Dataset.FINANCE, Dataset.ACCOUNT, Dataset.TERMS),
+                task.getOrder());
+    }
+
+    @Test
+    public void datasetsAddedToARunningRefresh_runInIt() throws Exception {
+        SyncEngine engine = new SyncEngine(SyncEngine.DEFAULT_WORKERS);
+        RecordingTask task = new RecordingTask();
+        task.hold(Dataset.TERMS);
+        RefreshHandle refresh = new RefreshHandle();
+        refresh.expect(Arrays.asList(Dataset.TERMS, Dataset.GRADES));
+        engine.submit(refresh, Arrays.asList(Dataset.TERMS, Dataset.GRADES), task);
+
+        //Same as UpdateService.refresh(), only what isn't pending yet is handed to the engine
+        List<Dataset> added = refresh.coalesce(Arrays.asList(Dataset.GRADES, Dataset.EXAM));
+        engine.submit(refresh, added, task);
+        task.release(Dataset.TERMS);
+
+        assertTrue(refresh.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertEquals(Collections.singletonList(Dataset.EXAM), added);
+        assertEquals(3, refresh.getResults().size());
+        assertEquals(3, task.getOrder().size());
+    }
+
+    @Test
+    public void cancelledRefresh_finishesWithoutRunningTheRest() throws Exception {
+        SyncEngine engine = new SyncEngine(1);
+        RecordingTask task = new RecordingTask();
+        task.hold(Dataset.SCHEDULE);
+        RefreshHandle refresh = new RefreshHandle();
+        refresh.expect(Arrays.asList(Dataset.SCHEDULE, Dataset.EXAM));
+        engine.submit(refresh, Arrays.asList(Dataset.SCHEDULE, Dataset.EXAM), task);
+        assertTrue(task.started.get(Dataset.SCHEDULE).await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+
+        refresh.cancel();
+        task.release(Dataset.SCHEDULE);
+
+        assertTrue(refresh.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertEquals(SyncResult.Outcome.CANCELLED, outcomeOf(refresh, Dataset.EXAM));
+        assertEquals(Collections.singletonList(Dataset.SCHEDULE), task.getOrder());
+    }
+
+    @Test
+    public void currentDataset_isTheOneTheWorkerRuns() throws Exception {
+        SyncEngine engine = new SyncEngine(SyncEngine.DEFAULT_WORKERS);
+        final Map<Dataset, Dataset> seen = Collections.synchronizedMap(new EnumMap<Dataset, Dataset>(Dataset.class));
+
+        run(engine, Arrays.asList(Dataset.SCHEDULE, Dataset.GRADES), new SyncTask() {
+            @Override
+            public SyncResult.Outcome run(Dataset dataset) {
+                seen.put(dataset, SyncEngine.currentDataset());
+                return SyncResult.Outcome.SUCCESS;
+            }
+        });
+
+        assertEquals(Dataset.SCHEDULE, seen.get(Dataset.SCHEDULE));
+        assertEquals(Dataset.GRADES, seen.get(Dataset.GRADES));
+        assertNull(SyncEngine.currentDataset());
+    }
+
+    private static RefreshHandle run(SyncEngine engine, List<Dataset> datasets, SyncTask task) throws InterruptedException {
+        RefreshHandle refresh = new RefreshHandle();
+        refresh.expect(datasets);
+        engine.submit(refresh, datasets, task);
+        assertTrue(refresh.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        return refresh;
+    }
+
+    private static SyncResult.Outcome outcomeOf(RefreshHandle refresh, Dataset dataset) {
+        for (SyncResult result : refresh.getResults()) {
+            if (result.getDataset() == dataset) {
+                return result.getOutcome();
+            }
+        }
+        return null;
+    }
+
+    private static class RecordingTask implements SyncTask {
+        final Map<Dataset, SyncResult.Outcome> outcomes = new EnumMap<>(Dataset.class);
+        final Map<Dataset, CountDownLatch> started = new EnumMap<>(Dataset.class);
+        private final Map<Dataset, CountDownLatch> released = new EnumMap<>(Dataset.class);
+        private final List<Dataset> order = new ArrayList<>();
+
+        //Set up before the dataset is submitted
+        void hold(Dataset dataset) {
+            started.put(dataset, new CountDownLatch(1));
+            released.put(dataset, new CountDownLatch(1));
+        }
+
+        void release(Dataset dataset) {
+            released.get(dataset).countDown();
+        }
+
+        synchronized List<Dataset> getOrder() {
+            return new ArrayList<>(order);
+        }
+
+        @Override
+        public SyncResult.Outcome run(Dataset dataset) throws Exception {
+            synchronized (this) {
+                order.add(dataset);
+            }
+            if (released.containsKey(dataset)) {
+                started.get(dataset).countDown();
+                assertTrue(released.get(dataset).await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+            }
+            SyncResult.Outcome outcome = outcomes.get(dataset);
+            return outcome == null ? SyncResult.Outcome.SUCCESS : outcome;
+        }
+    }
+}
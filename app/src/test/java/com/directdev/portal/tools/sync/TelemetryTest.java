@@ -0,0 +1,120 @@
+package com.directdev.portal.tools.sync;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class TelemetryTest {
+    private File dir;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = File.createTempFile("telemetry", "");
+        assertTrue(dir.delete() && dir.mkdir());
+    }
+
+    @After
+    public void tearDown() {
+        for (File file : dir.listFiles()) {
+            file.delete();
+        }
+        dir.delete();
+    }
+
+    @Test
+    public void ring_keepsTheLatestRecords() {
+        Telemetry telemetry = new Telemetry(dir, 3, Telemetry.DEFAULT_MAX_LOG_BYTES);
+        for (int i = 1; i <= 5; i++) {
+            telemetry.record(record(i, Dataset.SCHEDULE));
+        }
+
+        List<TelemetryRecord> recent = telemetry.getRecent();
+        assertEquals(3, recent.size());
+        assertEquals(3, recent.get(0).getFinishedAt());
+        assertEquals(5, recent.get(2).getFinishedAt());
+        //The log has all of them
+        assertEquals(5, telemetry.readLog().size());
+    }
+
+    @Test
+    public void getRecent_ofADataset() {
+        Telemetry telemetry = new Telemetry(dir);
+        telemetry.record(record(1, Dataset.SCHEDULE));
+        telemetry.record(record(2, Dataset.GRADES));
+        telemetry.record(record(3, Dataset.SCHEDULE));
+
+        List<TelemetryRecord> schedules = telemetry.getRecent(Dataset.SCHEDULE);
+        assertEquals(2, schedules.size());
+        assertEquals(3, schedules.get(1).getFinishedAt());
+    }
+
+    @Test
+    public void log_rollsOverAndSurvivesANewInstance() {
+        //About two records per log
+        Telemetry telemetry = new Telemetry(dir, 10, 200);
+        for (int i = 1; i <= 9; i++) {
+            telemetry.record(record(i, Dataset.EXAM));
+        }
+
+        List<TelemetryRecord> logged = new Telemetry(dir, 10, 200).readLog();
+        assertTrue(logged.size() < 9);
+        assertEquals(9, logged.get(logged.size() - 1).getFinishedAt());
+        assertEquals(2, dir.listFiles().length);
+    }
+
+    @Test
+    public void record_fromSyncResult() {
+        DatasetMetrics metrics = DatasetMetrics.begin(40);
+        try {
+            DatasetMetrics.recordFetch(1000, 20000000, 50000000);
+            DatasetMetrics.recordFailedFetch();
+            DatasetMetrics.recordParse(3000000);
+            DatasetMetrics.recordWrite(7000000);
+            DatasetMetrics.recordRows(12);
+        } finally {
+            DatasetMetrics.end();
+        }
+        TelemetryRecord record = TelemetryRecord.of(new SyncResult(Dataset.FINANCE, SyncResult.Outcome.SUCCESS, 100, 250, metrics));
+
+        assertEquals(150, record.getDurationMs());
+        assertEquals(40, record.getQueueWaitMs());
+        assertEquals(2, record.getRequests());
+        assertEquals(1, record.getFailedRequests());
+        assertEquals(1000, record.getBytes());
+        assertEquals(20, record.getFirstByteMs());
+        assertEquals(50, record.getDownloadMs());
+        assertEquals(3, record.getParseMs());
+        assertEquals(7, record.getWriteMs());
+        assertEquals(12, record.getRowsChanged());
+    }
+
+    @Test
+    public void export_csvAndJson() {
+        Telemetry telemetry = new Telemetry(dir);
+        telemetry.record(record(1, Dataset.TERMS));
+        List<TelemetryRecord> records = telemetry.getRecent();
+
+        String[] csv = Telemetry.toCsv(records).split("\n");
+        assertEquals(2, csv.length);
+        assertTrue(csv[0].startsWith("finishedAt,dataset,outcome"));
+        assertEquals(records.get(0).getDataset(), TelemetryRecord.fromCsv(csv[1]).getDataset());
+        assertTrue(Telemetry.toJson(records).contains("\"dataset\":\"TERMS\""));
+    }
+
+    @Test
+    public void fromCsv_skipsBrokenLines() {
+        assertNull(TelemetryRecord.fromCsv("1,SCHEDULE,SUCC"));
+        assertNull(TelemetryRecord.fromCsv("1,NOPE,SUCCESS,1,1,1,1,1,1,1,1,1,1"));
+    }
+
+    private static TelemetryRecord record(long finishedAt, Dataset dataset) {
+        return new TelemetryRecord(finishedAt, dataset, SyncResult.Outcome.SUCCESS, 120, 3, 1, 0, 2048, 40, 90, 6,
+                11, 25);
+    }
+}
@@ -0,0 +1,84 @@
+package com.directdev.portal.tools.sync;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+
+import static org.junit.Assert.*;
+
+public class TraceTest {
+    private File file;
+
+    @After
+    public void tearDown() {
+        Trace.setEnabled(false);
+        if (file != null) {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void disabled_recordsNothing() throws IOException {
+        file = File.createTempFile("trace", ".json");
+        file.delete();
+
+        assertSame(Trace.Span.NONE, Trace.begin("parse", "parse"));
+        Trace.complete("fetch", "/terms", 0, 1000);
+
+        assertFalse(Trace.flush(file));
+        assertFalse(file.exists());
+    }
+
+    @Test
+    public void flush_writesCompleteEvents() throws Exception {
+        file = File.createTempFile("trace", ".json");
+        Trace.setEnabled(true);
+
+        Trace.Span span = Trace.begin("write", "commit");
+        Thread.sleep(5);
+        span.end();
+        Trace.complete("fetch", "/terms", 2000000, 5000000);
+        assertTrue(Trace.flush(file));
+
+        JsonArray events = read(file).getAsJsonArray("traceEvents");
+        JsonObject fetch = null;
+        int complete = 0;
+        int threadNames = 0;
+        for (JsonElement element : events) {
+            JsonObject event = element.getAsJsonObject();
+            if (event.get("ph").getAsString().equals("X")) {
+                complete++;
+                if (event.get("cat").getAsString().equals("fetch")) {
+                    fetch = event;
+                }
+            } else if (event.get("name").getAsString().equals("thread_name")) {
+                threadNames++;
+            }
+        }
+        assertEquals(2, complete);
+        assertEquals(1, threadNames);
+        //Microseconds
+        assertEquals(2000, fetch.get("ts").getAsLong());
+        assertEquals(3000, fetch.get("dur").getAsLong());
+        //Flushed events are gone
+        assertFalse(Trace.flush(file));
+    }
+
+    private static JsonObject read(File file) throws IOException {
+        Reader reader = new FileReader(file);
+        try {
+            return new JsonParser().parse(reader).getAsJsonObject();
+        } finally {
+            reader.close();
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.directdev.portal.tools.sync.parse;
+
+import com.directdev.portal.tools.helper.GsonHelper;
+import com.directdev.portal.tools.model.Finance;
+import com.directdev.portal.tools.model.Resource;
+import com.google.gson.JsonParseException;
+
+import org.junit.Test;
+
+import java.io.StringReader;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ResponseParserTest {
+    private final ResponseParser parser = new ResponseParser(GsonHelper.get());
+
+    @Test
+    public void grades_getTheTermOfTheRequest() {
+        String response = "{\"score\":[{\"kodemtk\":\"COMP6047\",\"course_grade\":\"A\"},{\"kodemtk\":\"MATH6025\",\"course_grade\":\"\"}]}";
+
+        GradesPage page = parser.grades(new StringReader(response), "1510");
+
+        assertEquals(2, page.grades.size());
+        assertEquals("1510", page.grades.get(1).getStrm());
+        assertEquals("MATH6025", page.courses.get(1).getKodemtk());
+        assertEquals("1510", page.courses.get(1).getSTRM());
+    }
+
+    @Test
+    public void finances_readRowsAndDatesInOnePass() {
+        String response = "{\"Status\":[{\"ITEM_TERM\":\"1510\",\"ITEM_EFFECTIVE_DT\":\"2016-02-01\",\"ITEM_AMT\":100}]}";
+
+        DatedRows<Finance> finances = parser.finances(new StringReader(response));
+
+        assertEquals(1, finances.rows.size());
+        assertEquals(100, finances.rows.get(0).getITEM_AMT());
+        assertEquals("2016-02-01", finances.dates.get(0).getDatePK());
+    }
+
+    @Test
+    public void resources_takeTheSessionOfTheirTopic() {
+        //Resources can come before Path, the sessions are matched after the whole object is read
+        String response = "{\"Resources\":[{\"courseOutlineTopicID\":7,\"sessionIDNUM\":\"3\"},{\"courseOutlineTopicID\":7,\"sessionIDNUM\":\"9\"}],"
+                + "\"Path\":[{\"courseOutlineTopicID\":7,\"Title\":\"Week 3\"},{\"courseOutlineTopicID\":8,\"Title\":\"Extra\"}]}";
+
+        List<Resource> resources = parser.resources(new StringReader(response), "COMP6047");
+
+        assertEquals("3", resources.get(0).getCourseOutlineTopicID());
+        assertEquals("8", resources.get(1).getCourseOutlineTopicID());
+        assertEquals("COMP6047", resources.get(0).getDescription());
+    }
+
+    @Test(expected = JsonParseException.class)
+    public void resources_malformedNumberIsAParseError() {
+        String response = "{\"Resources\":[{\"courseOutlineTopicID\":7,\"sessionIDNUM\":\"3\"}],"
+                + "\"Path\":[{\"courseOutlineTopicID\":7,\"mediaTypeId\":\"pdf\",\"Title\":\"Week 3\"}]}";
+
+        parser.resources(new StringReader(response), "COMP6047");
+    }
+
+    @Test(expected = JsonParseException.class)
+    public void failedRequest_isAParseError() {
+        parser.grades(new StringReader(""), "1510");
+    }
+}
@@ -0,0 +1,68 @@
+package com.directdev.portal.benchmarks;
+
+import com.directdev.portal.replay.BinusmayaRoutes;
+import com.directdev.portal.replay.ReplayServer;
+import com.directdev.portal.tools.helper.ConnectionWarmer;
+import com.directdev.portal.tools.helper.Transport;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * The first request of a refresh with and without ConnectionWarmer having run before it. Every
+ * invocation gets a new replay server, so there is never a connection to it in the pool unless the
+ * warm-up left one. connectLatency stands in for what DNS, TCP and TLS take on a phone, the
+ * difference between warm=false and warm=true is the time the warm-up saves the first request.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ConnectionWarmupBenchmark {
+    @Param({"false", "true"})
+    public boolean warm;
+
+    @Param({"300"})
+    public long connectLatency;
+
+    private BinusmayaRoutes routes;
+    private ReplayServer server;
+
+    @Setup(Level.Trial)
+    public void setUpRoutes() {
+        routes = new BinusmayaRoutes(BinusmayaRoutes.Scale.X1);
+    }
+
+    @Setup(Level.Invocation)
+    public void setUp() throws IOException {
+        server = new ReplayServer.Builder().connectLatency(connectLatency).start(routes);
+        if (warm && ConnectionWarmer.warm(server.getBaseUrl(), false) < 0) {
+            throw new IOException("Warm-up failed");
+        }
+    }
+
+    @TearDown(Level.Invocation)
+    public void tearDown() throws IOException {
+        server.close();
+    }
+
+    @Benchmark
+    public int firstRequest() throws IOException {
+        Response response = Transport.get().newCall(new Request.Builder()
+                .url(server.getBaseUrl() + BinusmayaRoutes.SCHEDULE).build()).execute();
+        return response.body().bytes().length;
+    }
+}
@@ -0,0 +1,81 @@
+package com.directdev.portal.benchmarks;
+
+import com.directdev.portal.tools.helper.GsonHelper;
+import com.directdev.portal.tools.model.Course;
+import com.directdev.portal.tools.model.Exam;
+import com.directdev.portal.tools.model.Finance;
+import com.directdev.portal.tools.model.Resource;
+import com.directdev.portal.tools.model.Schedule;
+import com.directdev.portal.tools.sync.parse.DatedRows;
+import com.directdev.portal.tools.sync.parse.GradesPage;
+import com.directdev.portal.tools.sync.parse.ResponseParser;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.StringReader;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing of the fixtures exactly the way UpdateService does it, through ResponseParser and the
+ * Gson of GsonHelper
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FixtureParseBenchmark {
+    private ResponseParser parser;
+    private String schedule;
+    private String exam;
+    private String finance;
+    private String grades;
+    private String course;
+    private String resources;
+
+    @Setup
+    public void setUp() {
+        parser = new ResponseParser(GsonHelper.get());
+        schedule = Fixtures.read("schedule.json");
+        exam = Fixtures.read("exam.json");
+        finance = Fixtures.read("finance.json");
+        grades = Fixtures.read("grades.json");
+        course = Fixtures.read("course.json");
+        resources = Fixtures.read("resources.json");
+    }
+
+    @Benchmark
+    public DatedRows<Schedule> schedule() {
+        return parser.schedules(new StringReader(schedule));
+    }
+
+    @Benchmark
+    public DatedRows<Exam> exam() {
+        return parser.exams(new StringReader(exam));
+    }
+
+    @Benchmark
+    public DatedRows<Finance> finance() {
+        return parser.finances(new StringReader(finance));
+    }
+
+    @Benchmark
+    public GradesPage grades() {
+        return parser.grades(new StringReader(grades), "1510");
+    }
+
+    @Benchmark
+    public List<Course> course() {
+        return parser.courses(new StringReader(course), "1510");
+    }
+
+    @Benchmark
+    public List<Resource> resources() {
+        return parser.resources(new StringReader(resources), "COMP6047");
+    }
+}
@@ -0,0 +1,99 @@
+package com.directdev.portal.benchmarks;
+
+import com.directdev.portal.tools.helper.GsonHelper;
+import com.directdev.portal.tools.model.Exam;
+import com.directdev.portal.tools.model.Schedule;
+import com.google.gson.ExclusionStrategy;
+import com.google.gson.FieldAttributes;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.reflect.TypeToken;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.lang.reflect.Type;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import io.realm.RealmObject;
+
+/**
+ * The reflective Gson that GsonHelper.create() used to build for every call, against the shared
+ * GsonHelper.get() with the hand written adapters. The threaded variants run on as many threads as
+ * SyncEngine has workers, which is where the synchronized DateFormat of the old Gson hurts.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class GsonAdapterBenchmark {
+    private static final Type SCHEDULES = new TypeToken<List<Schedule>>() {
+    }.getType();
+    private static final Type EXAMS = new TypeToken<List<Exam>>() {
+    }.getType();
+
+    @Param({"10", "150", "1500"})
+    public int rows;
+
+    private String schedule;
+    private String exam;
+    private Gson reflective;
+
+    @Setup
+    public void setUp() {
+        schedule = Payloads.schedule(rows);
+        exam = Payloads.exam(rows);
+        reflective = reflective();
+    }
+
+    //What every handler did before, a new Gson for each response
+    @Benchmark
+    public List<Schedule> schedule_newReflectiveGson() {
+        return reflective().fromJson(schedule, SCHEDULES);
+    }
+
+    @Benchmark
+    public List<Schedule> schedule_sharedReflectiveGson() {
+        return reflective.fromJson(schedule, SCHEDULES);
+    }
+
+    @Benchmark
+    public List<Schedule> schedule_adapters() {
+        return GsonHelper.get().fromJson(schedule, SCHEDULES);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public List<Exam> exam_sharedReflectiveGson_4threads() {
+        return reflective.fromJson(exam, EXAMS);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public List<Exam> exam_adapters_4threads() {
+        return GsonHelper.get().fromJson(exam, EXAMS);
+    }
+
+    //Same as GsonHelper.create() before the adapters
+    private static Gson reflective() {
+        return new GsonBuilder().setDateFormat("yyyy-MM-dd")
+                .setExclusionStrategies(new ExclusionStrategy() {
+                    @Override
+                    public boolean shouldSkipField(FieldAttributes f) {
+                        return f.getDeclaringClass().equals(RealmObject.class);
+                    }
+
+                    @Override
+                    public boolean shouldSkipClass(Class<?> clazz) {
+                        return false;
+                    }
+                }).create();
+    }
+}
@@ -0,0 +1,51 @@
+package com.directdev.portal.benchmarks;
+
+import com.directdev.portal.tools.helper.GsonHelper;
+import com.directdev.portal.tools.model.Dates;
+import com.directdev.portal.tools.sync.parse.ResponseParser;
+import com.directdev.portal.ui.main.journal.JournalDates;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JournalFragment.dateSetup(), which runs on the main thread every time the journal is shown and
+ * after every refresh, over the Dates that the fixtures produce
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class JournalDatesBenchmark {
+    private final List<Dates> dates = new ArrayList<>();
+    private Date now;
+
+    @Setup
+    public void setUp() {
+        ResponseParser parser = new ResponseParser(GsonHelper.get());
+        dates.addAll(parser.schedules(new StringReader(Fixtures.read("schedule.json"))).dates);
+        dates.addAll(parser.exams(new StringReader(Fixtures.read("exam.json"))).dates);
+        dates.addAll(parser.finances(new StringReader(Fixtures.read("finance.json"))).dates);
+
+        //Middle of the fixture semester, so about half of the dates are upcoming
+        Calendar calendar = Calendar.getInstance();
+        calendar.set(2015, Calendar.OCTOBER, 19, 10, 0, 0);
+        now = calendar.getTime();
+    }
+
+    @Benchmark
+    public List<Date> dateSetup() {
+        return JournalDates.upcoming(dates, now);
+    }
+}
@@ -0,0 +1,107 @@
+package com.directdev.portal.benchmarks;
+
+/**
+ * Generated responses shaped like the Binusmaya ones, with the given number of rows
+ */
+class Payloads {
+    static String schedule(int rows) {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < rows; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"CourseID\":\"COMP").append(6000 + i % 12)
+                    .append("\",\"CourseName\":\"Course ").append(i % 12)
+                    .append("\",\"Date\":\"2016-").append(String.format("%02d-%02d", 2 + i / 28 % 5, 1 + i % 28))
+                    .append("\",\"Session\":").append(1 + i % 13)
+                    .append(",\"Room\":\"R").append(400 + i % 30)
+                    .append("\",\"Mode\":\"F2F\",\"Class\":\"LA").append(i % 9)
+                    .append("\",\"Type\":\"LEC\",\"Week\":\"").append(1 + i % 13)
+                    .append("\",\"Shift\":\"").append(7 + i % 6 * 2).append(":20 - ").append(9 + i % 6 * 2).append(":00\"}");
+        }
+        return json.append(']').toString();
+    }
+
+    static String grades(int rows) {
+        StringBuilder json = new StringBuilder("{\"score\":[");
+        for (int i = 0; i < rows; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"kodemtk\":\"COMP").append(6000 + i)
+                    .append("\",\"course\":\"Course ").append(i)
+                    .append("\",\"lam\":\"Final Exam\",\"scu\":\"4\",\"weight\":\"50%\",\"score\":\"").append(60 + i % 40)
+                    .append("\",\"grade\":\"B\",\"course_grade\":\"B+\"}");
+        }
+        return json.append("],\"credit\":{}}").toString();
+    }
+
+    static String resources(int rows) {
+        StringBuilder json = new StringBuilder("{\"Path\":[");
+        for (int i = 0; i < rows; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"courseOutlineTopicID\":").append(1000 + i % 13)
+                    .append(",\"mediaTypeId\":1,\"mediaType\":\"PowerPoint\",\"Title\":\"Topic ").append(i)
+                    .append("\",\"pathid\":\"").append(i)
+                    .append("\",\"path\":\"/materials/").append(i)
+                    .append("\",\"location\":\"LN").append(i)
+                    .append("\",\"filename\":\"topic").append(i).append(".pptx\"}");
+        }
+        json.append("],\"Resources\":[");
+        for (int i = 0; i < 13; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"courseOutlineTopicID\":").append(1000 + i).append(",\"sessionIDNUM\":\"").append(i + 1).append("\"}");
+        }
+        return json.append("]}").toString();
+    }
+
+    static String exam(int rows) {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < rows; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"DESCR\":\"Final Exam\",\"KDMTK\":\"COMP").append(6000 + i)
+                    .append("\",\"ExamDate\":\"2016-06-").append(String.format("%02d", 1 + i % 28))
+                    .append("\",\"ExamStartTime\":\"").append(7 + i % 5 * 2)
+                    .append(":30\",\"Duration\":\"100\",\"ROOM\":\"R").append(400 + i % 30)
+                    .append("\",\"ChairNumber\":\"").append(i % 40)
+                    .append("\",\"COURSE_TITLE_LONG\":\"Course ").append(i).append("\"}");
+        }
+        return json.append(']').toString();
+    }
+
+    static String finance(int rows) {
+        StringBuilder json = new StringBuilder("{\"Status\":[");
+        for (int i = 0; i < rows; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"DUE_DT\":\"2016-").append(String.format("%02d", 1 + i % 12))
+                    .append("-15\",\"ITEM_EFFECTIVE_DT\":\"2016-").append(String.format("%02d", 1 + i % 12))
+                    .append("-01\",\"ITEM_TERM\":\"").append(1410 + i / 12 % 6 * 10)
+                    .append("\",\"DESCR\":\"Tuition Fee\",\"ITEM_TYPE_CD\":\"C\",\"ITEM_AMT\":").append(1000000 + i * 1000)
+                    .append(",\"ITEM_NBR\":\"").append(i).append("\"}");
+        }
+        return json.append("]}").toString();
+    }
+
+    static String course(int rows) {
+        StringBuilder json = new StringBuilder("{\"Courses\":[");
+        for (int i = 0; i < rows; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"CRSE_ID\":\"").append(14000 + i)
+                    .append("\",\"COURSENAME\":\"Course ").append(i)
+                    .append("\",\"COURSEID\":\"COMP").append(6000 + i)
+                    .append("\",\"SSR_COMPONENT\":\"").append(i % 3 == 0 ? "LAB" : "LEC")
+                    .append("\",\"CLASS_NBR\":\"").append(5400 + i).append("\"}");
+        }
+        return json.append("]}").toString();
+    }
+}
@@ -0,0 +1,105 @@
+package com.directdev.portal.benchmarks;
+
+import com.directdev.portal.replay.BinusmayaRoutes;
+import com.directdev.portal.tools.helper.GsonHelper;
+import com.directdev.portal.tools.model.Dates;
+import com.directdev.portal.tools.sync.parse.ResponseParser;
+import com.directdev.portal.ui.main.journal.JournalDates;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Everything a first refresh parses, and the journal dates after it, for the synthetic accounts of
+ * BinusmayaRoutes: a normal student (1) and accounts 10 and 100 times that size
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ScaledAccountBenchmark {
+    @Param({"1", "10", "100"})
+    public int scale;
+
+    private ResponseParser parser;
+    private String schedule;
+    private String exam;
+    private String finance;
+    private final List<String> terms = new ArrayList<>();
+    private final List<String> grades = new ArrayList<>();
+    private final List<String> courses = new ArrayList<>();
+    private final List<String> courseIds = new ArrayList<>();
+    private final List<String> resources = new ArrayList<>();
+    private final List<Dates> dates = new ArrayList<>();
+    private Date now;
+
+    @Setup
+    public void setUp() {
+        parser = new ResponseParser(GsonHelper.get());
+        BinusmayaRoutes routes = new BinusmayaRoutes(BinusmayaRoutes.Scale.X1.times(scale));
+        schedule = routes.respond(BinusmayaRoutes.SCHEDULE);
+        exam = routes.respond(BinusmayaRoutes.EXAM);
+        finance = routes.respond(BinusmayaRoutes.FINANCE);
+        for (int t = 0; t < routes.getScale().terms; t++) {
+            String strm = BinusmayaRoutes.term(t);
+            terms.add(strm);
+            grades.add(routes.respond(BinusmayaRoutes.GRADES + strm));
+            courses.add(routes.respond(BinusmayaRoutes.COURSE + strm));
+        }
+        for (String courseId : routes.getCourseIds()) {
+            courseIds.add(courseId);
+            resources.add(routes.respond(BinusmayaRoutes.RESOURCES + courseId));
+        }
+
+        dates.addAll(parser.schedules(new StringReader(schedule)).dates);
+        dates.addAll(parser.exams(new StringReader(exam)).dates);
+        dates.addAll(parser.finances(new StringReader(finance)).dates);
+        //Before every generated date, so all of them are upcoming
+        now = new Date(0);
+    }
+
+    @Benchmark
+    public void journal(Blackhole blackhole) {
+        blackhole.consume(parser.schedules(new StringReader(schedule)));
+        blackhole.consume(parser.exams(new StringReader(exam)));
+        blackhole.consume(parser.finances(new StringReader(finance)));
+    }
+
+    @Benchmark
+    public void grades(Blackhole blackhole) {
+        for (int i = 0; i < terms.size(); i++) {
+            blackhole.consume(parser.grades(new StringReader(grades.get(i)), terms.get(i)));
+        }
+    }
+
+    @Benchmark
+    public void courses(Blackhole blackhole) {
+        for (int i = 0; i < terms.size(); i++) {
+            blackhole.consume(parser.courses(new StringReader(courses.get(i)), terms.get(i)));
+        }
+    }
+
+    @Benchmark
+    public void resources(Blackhole blackhole) {
+        for (int i = 0; i < courseIds.size(); i++) {
+            blackhole.consume(parser.resources(new StringReader(resources.get(i)), courseIds.get(i)));
+        }
+    }
+
+    @Benchmark
+    public List<Date> journalDates() {
+        return JournalDates.upcoming(dates, now);
+    }
+}
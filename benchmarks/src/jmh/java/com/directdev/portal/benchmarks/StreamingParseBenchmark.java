@@ -0,0 +1,133 @@
+package com.directdev.portal.benchmarks;
+
+import com.directdev.portal.tools.helper.GsonHelper;
+import com.directdev.portal.tools.model.Course;
+import com.directdev.portal.tools.model.Dates;
+import com.directdev.portal.tools.model.Grades;
+import com.directdev.portal.tools.model.GradesCourse;
+import com.directdev.portal.tools.model.Resource;
+import com.directdev.portal.tools.model.Schedule;
+import com.directdev.portal.tools.sync.parse.DatedRows;
+import com.directdev.portal.tools.sync.parse.GradesPage;
+import com.directdev.portal.tools.sync.parse.ResponseParser;
+import com.google.gson.reflect.TypeToken;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.StringReader;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The old way UpdateService parsed responses (String -> JSONObject -> put -> toString -> Gson twice)
+ * against ResponseParser, on payloads shaped like the Binusmaya ones. Both use the same Gson, so
+ * only the number of passes over the response differs. Run with -Pjmh.profilers=gc to see the
+ * allocation per parse next to the time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class StreamingParseBenchmark {
+    private static final String TERM = "1510";
+    private static final String COURSE = "COMP6047";
+
+    //A term has about 10 grades rows, a whole semester about 150 schedule rows
+    @Param({"10", "150", "1500"})
+    public int rows;
+
+    private String schedule;
+    private String grades;
+    private String course;
+    private String resources;
+
+    @Setup
+    public void setUp() {
+        schedule = Payloads.schedule(rows);
+        grades = Payloads.grades(rows);
+        course = Payloads.course(rows);
+        resources = Payloads.resources(rows);
+    }
+
+    @Benchmark
+    public void schedule_legacy(Blackhole blackhole) {
+        List<Schedule> schedules = GsonHelper.get().fromJson(schedule, new TypeToken<List<Schedule>>() {
+        }.getType());
+        List<Dates> dates = GsonHelper.get().fromJson(schedule, new TypeToken<List<Dates>>() {
+        }.getType());
+        blackhole.consume(schedules);
+        blackhole.consume(dates);
+    }
+
+    @Benchmark
+    public DatedRows<Schedule> schedule_streaming() {
+        return new ResponseParser(GsonHelper.get()).schedules(new StringReader(schedule));
+    }
+
+    @Benchmark
+    public void grades_legacy(Blackhole blackhole) throws Exception {
+        JSONArray arrays = new JSONObject(grades).getJSONArray("score");
+        for (int j = 0; j < arrays.length(); j++) {
+            arrays.getJSONObject(j).put("STRM", TERM);
+        }
+        String data = arrays.toString();
+        List<Grades> termGrades = GsonHelper.get().fromJson(data, new TypeToken<List<Grades>>() {
+        }.getType());
+        List<GradesCourse> courses = GsonHelper.get().fromJson(data, new TypeToken<List<GradesCourse>>() {
+        }.getType());
+        blackhole.consume(termGrades);
+        blackhole.consume(courses);
+    }
+
+    @Benchmark
+    public GradesPage grades_streaming() {
+        return new ResponseParser(GsonHelper.get()).grades(new StringReader(grades), TERM);
+    }
+
+    @Benchmark
+    public List<Course> course_legacy() throws Exception {
+        JSONArray arrays = new JSONObject(course).getJSONArray("Courses");
+        for (int j = 0; j < arrays.length(); j++) {
+            arrays.getJSONObject(j).put("STRM", TERM);
+        }
+        return GsonHelper.get().fromJson(arrays.toString(), new TypeToken<List<Course>>() {
+        }.getType());
+    }
+
+    @Benchmark
+    public List<Course> course_streaming() {
+        return new ResponseParser(GsonHelper.get()).courses(new StringReader(course), TERM);
+    }
+
+    @Benchmark
+    public List<Resource> resources_legacy() throws Exception {
+        JSONObject object = new JSONObject(resources);
+        JSONArray pathArray = object.getJSONArray("Path");
+        JSONArray sessionArray = object.getJSONArray("Resources");
+        for (int k = 0; k < pathArray.length(); k++) {
+            pathArray.getJSONObject(k).put("description", COURSE);
+            for (int j = 0; j < sessionArray.length(); j++) {
+                if (sessionArray.getJSONObject(j).getInt("courseOutlineTopicID") == pathArray.getJSONObject(k).getInt("courseOutlineTopicID")) {
+                    pathArray.getJSONObject(k).put("courseOutlineTopicID", sessionArray.getJSONObject(j).getString("sessionIDNUM"));
+                    break;
+                }
+            }
+        }
+        return GsonHelper.get().fromJson(pathArray.toString(), new TypeToken<List<Resource>>() {
+        }.getType());
+    }
+
+    @Benchmark
+    public List<Resource> resources_streaming() {
+        return new ResponseParser(GsonHelper.get()).resources(new StringReader(resources), COURSE);
+    }
+}